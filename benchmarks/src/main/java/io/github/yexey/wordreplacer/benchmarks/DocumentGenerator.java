@@ -0,0 +1,238 @@
+package io.github.yexey.wordreplacer.benchmarks;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.util.Units;
+import org.apache.poi.wp.usermodel.HeaderFooterType;
+import org.apache.poi.xwpf.usermodel.*;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTbl;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * DocumentGenerator - Generates synthetic .docx templates for benchmarks.
+ *
+ * Every fourth body paragraph contains one of {@link #FIELD_COUNT} field placeholders ({@code {{FIELD_0}}} ...),
+ * every tenth paragraph contains one of the optional placeholders ({@code {{OPTIONAL_0}}} ...) meant to be
+ * removed. Placeholders are split across the configured number of runs, as Word does after editing.
+ * Tables are inserted every 50 paragraphs and nested to the configured depth. Images are spread evenly
+ * over the body.
+ *
+ * Usage example:
+ * <pre>
+ *     byte[] template = DocumentGenerator.generate(new DocumentGenerator.Spec()
+ *             .paragraphs(1000)
+ *             .tableDepth(2)
+ *             .runsPerPlaceholder(8)
+ *             .headerFooterCount(3));
+ * </pre>
+ */
+public final class DocumentGenerator {
+
+    /**
+     * Number of distinct field placeholders
+     */
+    public static final int FIELD_COUNT = 20;
+
+    /**
+     * Number of distinct optional placeholders
+     */
+    public static final int OPTIONAL_COUNT = 5;
+
+    private static final String FILLER = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod "
+            + "tempor incididunt ut labore et dolore magna aliqua. ";
+
+    /**
+     * The shape of a generated document
+     */
+    public static class Spec {
+        private int paragraphs = 100;
+        private int tableDepth = 0;
+        private int tableRows = 3;
+        private int runsPerPlaceholder = 1;
+        private int headerFooterCount = 0;
+        private int images = 0;
+
+        public Spec paragraphs(int paragraphs) {
+            this.paragraphs = paragraphs;
+            return this;
+        }
+
+        /**
+         * @param tableDepth 0 for no tables, 1 for flat tables, more for tables nested in their first cell
+         */
+        public Spec tableDepth(int tableDepth) {
+            this.tableDepth = tableDepth;
+            return this;
+        }
+
+        public Spec tableRows(int tableRows) {
+            this.tableRows = tableRows;
+            return this;
+        }
+
+        public Spec runsPerPlaceholder(int runsPerPlaceholder) {
+            this.runsPerPlaceholder = runsPerPlaceholder;
+            return this;
+        }
+
+        /**
+         * @param headerFooterCount the number of headers and of footers, at most 3 (default, first and even pages)
+         */
+        public Spec headerFooterCount(int headerFooterCount) {
+            this.headerFooterCount = headerFooterCount;
+            return this;
+        }
+
+        public Spec images(int images) {
+            this.images = images;
+            return this;
+        }
+    }
+
+    private DocumentGenerator() {
+    }
+
+    /**
+     * Generates a template and returns it as .docx bytes.
+     *
+     * @param spec The shape of the document
+     * @return the .docx file content
+     * @throws IOException if the document cannot be written
+     */
+    public static byte[] generate(Spec spec) throws IOException {
+        try (XWPFDocument document = new XWPFDocument();
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            int imageInterval = spec.images > 0 ? Math.max(1, spec.paragraphs / spec.images) : 0;
+            int imageCount = 0;
+            for (int i = 0; i < spec.paragraphs; i++) {
+                fillParagraph(document.createParagraph(), i, spec.runsPerPlaceholder);
+                if (spec.tableDepth > 0 && i % 50 == 49) {
+                    fillTable(document.createTable(spec.tableRows, 3), i, spec.tableDepth, spec);
+                }
+                if (imageCount < spec.images && i % imageInterval == 0) {
+                    addImage(document.createParagraph(), imageCount++);
+                }
+            }
+
+            HeaderFooterType[] types = {HeaderFooterType.DEFAULT, HeaderFooterType.FIRST, HeaderFooterType.EVEN};
+            for (int i = 0; i < Math.min(spec.headerFooterCount, types.length); i++) {
+                fillParagraph(document.createHeader(types[i]).createParagraph(), i * 4, spec.runsPerPlaceholder);
+                fillParagraph(document.createFooter(types[i]).createParagraph(), i * 4 + 1, spec.runsPerPlaceholder);
+            }
+
+            document.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Returns a replacement value for every field placeholder.
+     *
+     * @return a map of placeholders to their replacement values
+     */
+    public static Map<String, String> fieldValues() {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            values.put(field(i), "Value " + i);
+        }
+        return values;
+    }
+
+    /**
+     * Returns all optional placeholders.
+     *
+     * @return the optional placeholders
+     */
+    public static List<String> optionalPlaceholders() {
+        List<String> placeholders = new ArrayList<>();
+        for (int i = 0; i < OPTIONAL_COUNT; i++) {
+            placeholders.add(optional(i));
+        }
+        return placeholders;
+    }
+
+    public static String field(int index) {
+        return "{{FIELD_" + index + "}}";
+    }
+
+    public static String optional(int index) {
+        return "{{OPTIONAL_" + index + "}}";
+    }
+
+    private static void fillParagraph(XWPFParagraph paragraph, int index, int runsPerPlaceholder) {
+        paragraph.createRun().setText(FILLER);
+        if (index % 10 == 9) {
+            addSplit(paragraph, optional(index / 10 % OPTIONAL_COUNT), runsPerPlaceholder);
+        } else if (index % 4 == 0) {
+            addSplit(paragraph, field(index / 4 % FIELD_COUNT), runsPerPlaceholder);
+        }
+        paragraph.createRun().setText(" " + FILLER);
+    }
+
+    private static void addSplit(XWPFParagraph paragraph, String placeholder, int runs) {
+        int parts = Math.max(1, Math.min(runs, placeholder.length()));
+        int start = 0;
+        for (int i = 0; i < parts; i++) {
+            int end = placeholder.length() * (i + 1) / parts;
+            XWPFRun run = paragraph.createRun();
+            run.setBold(i % 2 == 1);
+            run.setText(placeholder.substring(start, end));
+            start = end;
+        }
+    }
+
+    private static void addImage(XWPFParagraph paragraph, int index) throws IOException {
+        try {
+            paragraph.createRun().addPicture(new ByteArrayInputStream(image(index)), Document.PICTURE_TYPE_PNG,
+                    "image" + index + ".png", Units.toEMU(320), Units.toEMU(240));
+        } catch (InvalidFormatException e) {
+            throw new IOException("Could not add image " + index, e);
+        }
+    }
+
+    /**
+     * Returns a noisy 320x240 PNG, different for every index so the package keeps every image
+     * and none of them compresses to almost nothing.
+     */
+    private static byte[] image(int index) throws IOException {
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(index);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static void fillTable(XWPFTable table, int index, int depth, Spec spec) {
+        for (int r = 0; r < table.getNumberOfRows(); r++) {
+            XWPFTableRow row = table.getRow(r);
+            for (int c = 0; c < row.getTableCells().size(); c++) {
+                XWPFTableCell cell = row.getCell(c);
+                fillParagraph(cell.getParagraphArray(0), index + r * 3 + c, spec.runsPerPlaceholder);
+            }
+        }
+
+        if (depth > 1) {
+            XWPFTableCell cell = table.getRow(0).getCell(0);
+            CTTbl ctTbl = cell.getCTTc().addNewTbl();
+            XWPFTable nested = new XWPFTable(ctTbl, cell, spec.tableRows, 3);
+            cell.insertTable(cell.getTables().size(), nested);
+            // A cell has to end with a paragraph
+            cell.getCTTc().addNewP();
+            fillTable(nested, index + 1, depth - 1, spec);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.yexey.wordreplacer.benchmarks;
+
+import io.github.yexey.wordreplacer.WordReplacer;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link WordReplacer#repeatTableRow} for growing numbers of records.
+ *
+ * Every invocation repeats the row of a fresh table with a header and a sum row, so the new rows are inserted
+ * in the middle of the table. The time per operation should grow linearly with {@code rows}; divide it by
+ * {@code rows} to compare the cost per row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepeatTableRowBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private List<Map<String, String>> records;
+
+    /**
+     * A fresh document for every invocation
+     */
+    @State(Scope.Thread)
+    public static class FreshTable {
+        XWPFDocument document;
+
+        @Setup(Level.Invocation)
+        public void create() {
+            document = new XWPFDocument();
+            XWPFTable table = document.createTable(3, 3);
+            table.getRow(0).getCell(0).getParagraphs().get(0).createRun().setText("Item");
+            table.getRow(1).getCell(0).getParagraphs().get(0).createRun().setText("{{ROW}}{{ITEM}}");
+            table.getRow(1).getCell(1).getParagraphs().get(0).createRun().setText("{{QUANTITY}}");
+            table.getRow(1).getCell(2).getParagraphs().get(0).createRun().setText("{{PRICE}}");
+            table.getRow(2).getCell(0).getParagraphs().get(0).createRun().setText("Sum");
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() throws IOException {
+            document.close();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void generate() {
+        records = new AbstractList<>() {
+            @Override
+            public Map<String, String> get(int index) {
+                return Map.of("{{ITEM}}", "Item " + index, "{{QUANTITY}}", String.valueOf(index % 10),
+                        "{{PRICE}}", index + ".99");
+            }
+
+            @Override
+            public int size() {
+                return rows;
+            }
+        };
+    }
+
+    @Benchmark
+    public int repeatTableRow(FreshTable fresh) {
+        return new WordReplacer(fresh.document).repeatTableRow("{{ROW}}", records.iterator());
+    }
+}
@@ -0,0 +1,161 @@
+package io.github.yexey.wordreplacer.benchmarks;
+
+import io.github.yexey.wordreplacer.WordReplacer;
+import io.github.yexey.wordreplacer.internal.strategy.visitor.impl.ParagraphCollectorVisitor;
+import io.github.yexey.wordreplacer.internal.utils.BookmarkUtils;
+import org.apache.poi.xwpf.usermodel.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the visitor and replacement hot paths over generated documents.
+ *
+ * Mutating benchmarks work on a fresh copy of the template loaded before every invocation, so loading
+ * the document is not part of the measurement. Read-only benchmarks share one loaded document per trial.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReplacementBenchmark {
+
+    private static final int FIELD_LAST = DocumentGenerator.FIELD_COUNT - 1;
+
+    @Param({"100", "1000"})
+    public int paragraphs;
+
+    @Param({"0", "2"})
+    public int tableDepth;
+
+    @Param({"1", "8"})
+    public int runsPerPlaceholder;
+
+    @Param({"0", "3"})
+    public int headerFooterCount;
+
+    private byte[] template;
+    private Map<String, String> values;
+
+    // Shared by the read-only benchmarks
+    private XWPFDocument sharedDocument;
+    private WordReplacer sharedReplacer;
+    private List<XWPFParagraph> sharedParagraphs;
+
+    /**
+     * A fresh copy of the template for every invocation of a mutating benchmark
+     */
+    @State(Scope.Thread)
+    public static class FreshDocument {
+        XWPFDocument document;
+
+        @Setup(Level.Invocation)
+        public void load(ReplacementBenchmark benchmark) throws IOException {
+            document = new XWPFDocument(new ByteArrayInputStream(benchmark.template));
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() throws IOException {
+            document.close();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        template = DocumentGenerator.generate(new DocumentGenerator.Spec()
+                .paragraphs(paragraphs)
+                .tableDepth(tableDepth)
+                .runsPerPlaceholder(runsPerPlaceholder)
+                .headerFooterCount(headerFooterCount));
+        values = DocumentGenerator.fieldValues();
+
+        sharedDocument = new XWPFDocument(new ByteArrayInputStream(template));
+        sharedReplacer = new WordReplacer(sharedDocument);
+        ParagraphCollectorVisitor collector = new ParagraphCollectorVisitor();
+        for (XWPFParagraph paragraph : sharedDocument.getParagraphs()) {
+            collector.visitParagraph(paragraph);
+        }
+        for (XWPFTable table : sharedDocument.getTables()) {
+            collector.visitTable(table);
+        }
+        for (XWPFHeader header : sharedDocument.getHeaderList()) {
+            collector.visitHeader(header);
+        }
+        for (XWPFFooter footer : sharedDocument.getFooterList()) {
+            collector.visitFooter(footer);
+        }
+        sharedParagraphs = collector.getParagraphs();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        sharedDocument.close();
+    }
+
+    @Benchmark
+    public WordReplacer replaceSingle(FreshDocument fresh) {
+        WordReplacer replacer = new WordReplacer(fresh.document);
+        replacer.replace(DocumentGenerator.field(0), "Value 0");
+        return replacer;
+    }
+
+    @Benchmark
+    public WordReplacer replaceEachField(FreshDocument fresh) {
+        WordReplacer replacer = new WordReplacer(fresh.document);
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            replacer.replace(value.getKey(), value.getValue());
+        }
+        return replacer;
+    }
+
+    @Benchmark
+    public WordReplacer replaceMap(FreshDocument fresh) {
+        WordReplacer replacer = new WordReplacer(fresh.document);
+        replacer.replace(values);
+        return replacer;
+    }
+
+    @Benchmark
+    public WordReplacer removeParagraph(FreshDocument fresh) {
+        WordReplacer replacer = new WordReplacer(fresh.document);
+        replacer.removeParagraph(DocumentGenerator.optional(0));
+        return replacer;
+    }
+
+    /**
+     * First lookup on a new replacer, including building the placeholder index
+     */
+    @Benchmark
+    public boolean hasBookmarkCold() {
+        return new WordReplacer(sharedDocument).hasBookmark(DocumentGenerator.field(FIELD_LAST));
+    }
+
+    /**
+     * Repeated lookups answered from the placeholder index
+     */
+    @Benchmark
+    public void hasBookmarkWarm(Blackhole blackhole) {
+        for (int i = 0; i < DocumentGenerator.FIELD_COUNT; i++) {
+            blackhole.consume(sharedReplacer.hasBookmark(DocumentGenerator.field(i)));
+        }
+    }
+
+    @Benchmark
+    public int containsBookmark() {
+        int count = 0;
+        String bookmark = DocumentGenerator.field(FIELD_LAST);
+        for (XWPFParagraph paragraph : sharedParagraphs) {
+            if (BookmarkUtils.containsBookmark(paragraph, bookmark)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,153 @@
+package io.github.yexey.wordreplacer.benchmarks.coldstart;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ColdStartHarness - Measures the first documents of fresh JVMs with and without an AppCDS archive.
+ *
+ * First a training run of {@code WarmUp} creates a dynamic class data sharing archive for the benchmark jar.
+ * Then {@link ColdStartProbe} is started in a new JVM {@code runs} times without the archive and
+ * {@code runs} times with it. Every phase reports the median and minimum of the first and second document,
+ * the JVM uptime after both and the wall time of the whole process. Requires JDK 13 or later.
+ *
+ * Settings are {@code key=value} arguments:
+ * <pre>
+ *     java -cp target/benchmarks.jar io.github.yexey.wordreplacer.benchmarks.coldstart.ColdStartHarness \
+ *             runs=20 jvmArgs=-Xmx512m
+ * </pre>
+ */
+public final class ColdStartHarness {
+
+    private static final String[] METRICS = {"firstMillis", "secondMillis", "uptimeMillis", "wallMillis"};
+
+    private final String java;
+    private final String classPath;
+    private final List<String> jvmArgs;
+
+    private ColdStartHarness(String java, String classPath, List<String> jvmArgs) {
+        this.java = java;
+        this.classPath = classPath;
+        this.jvmArgs = jvmArgs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties settings = new Properties();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got " + arg);
+            }
+            settings.setProperty(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        int runs = Integer.parseInt(settings.getProperty("runs", "10"));
+        String java = settings.getProperty("java", Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        String jvmArgs = settings.getProperty("jvmArgs", "").trim();
+        Path archive = Path.of(settings.getProperty("archive", "target/cold-start.jsa")).toAbsolutePath();
+
+        ColdStartHarness harness = new ColdStartHarness(java, System.getProperty("java.class.path"),
+                jvmArgs.isEmpty() ? List.of() : Arrays.asList(jvmArgs.split("\\s+")));
+
+        Files.deleteIfExists(archive);
+        harness.launch(List.of("-XX:ArchiveClassesAtExit=" + archive), "io.github.yexey.wordreplacer.WarmUp");
+        if (!Files.isRegularFile(archive)) {
+            throw new IllegalStateException("No archive was created at " + archive + ", JDK 13 or later is required");
+        }
+
+        System.out.printf("Cold start over %d runs per phase, archive %s (%d KB)%n", runs, archive,
+                Files.size(archive) / 1024);
+        System.out.printf("%-8s %-12s %10s %10s%n", "phase", "metric", "median", "min");
+        Map<String, long[]> baseline = harness.phase("default", List.of(), runs);
+        Map<String, long[]> appCds = harness.phase("appcds", List.of("-XX:SharedArchiveFile=" + archive), runs);
+
+        long before = median(baseline.get("firstMillis"));
+        long after = median(appCds.get("firstMillis"));
+        System.out.printf("%nFirst document: %d ms without, %d ms with the archive (%.1fx)%n",
+                before, after, after == 0 ? 0 : (double) before / after);
+    }
+
+    /**
+     * Starts the probe {@code runs} times with the given JVM options and prints the statistics
+     *
+     * @return the values of each metric, one per run
+     */
+    private Map<String, long[]> phase(String name, List<String> options, int runs) throws Exception {
+        Map<String, long[]> values = new LinkedHashMap<>();
+        for (String metric : METRICS) {
+            values.put(metric, new long[runs]);
+        }
+        for (int run = 0; run < runs; run++) {
+            long start = System.nanoTime();
+            String output = launch(options, ColdStartProbe.class.getName());
+            long wall = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            Map<String, Long> measured = parse(output);
+            measured.put("wallMillis", wall);
+            for (String metric : METRICS) {
+                Long value = measured.get(metric);
+                if (value == null) {
+                    throw new IllegalStateException("The probe did not report " + metric + ": " + output);
+                }
+                values.get(metric)[run] = value;
+            }
+        }
+        for (String metric : METRICS) {
+            long[] sorted = values.get(metric).clone();
+            Arrays.sort(sorted);
+            System.out.printf("%-8s %-12s %10d %10d%n", name, metric, median(sorted), sorted[0]);
+        }
+        return values;
+    }
+
+    /**
+     * Runs the main class in a new JVM and returns its output
+     */
+    private String launch(List<String> options, String mainClass) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(jvmArgs);
+        command.addAll(options);
+        command.add("-cp");
+        command.add(classPath);
+        command.add(mainClass);
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                output.append(line).append('\n');
+            }
+        }
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException(mainClass + " failed: " + output);
+        }
+        return output.toString();
+    }
+
+    /**
+     * Reads the key=value pairs of the probe output, ignoring lines logged by the JVM
+     */
+    private static Map<String, Long> parse(String output) {
+        Map<String, Long> measured = new HashMap<>();
+        for (String token : output.split("\\s+")) {
+            int separator = token.indexOf('=');
+            if (separator > 0 && token.substring(separator + 1).matches("\\d+")) {
+                measured.put(token.substring(0, separator), Long.parseLong(token.substring(separator + 1)));
+            }
+        }
+        return measured;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
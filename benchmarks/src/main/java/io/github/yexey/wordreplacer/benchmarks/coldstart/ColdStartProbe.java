@@ -0,0 +1,27 @@
+package io.github.yexey.wordreplacer.benchmarks.coldstart;
+
+import io.github.yexey.wordreplacer.WordReplacer;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+/**
+ * Renders the first documents of a fresh JVM and prints how long they took, see {@link ColdStartHarness}.
+ *
+ * Nothing else touches POI before, so the first render pays all class loading. The output is a single line
+ * of {@code key=value} pairs.
+ */
+public final class ColdStartProbe {
+
+    private ColdStartProbe() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Duration first = WordReplacer.warmUp();
+        Duration second = WordReplacer.warmUp();
+        // Uptime from JVM start to the end of the first two documents, including class loading of the JDK
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        System.out.printf("firstMillis=%d secondMillis=%d uptimeMillis=%d%n",
+                first.toMillis(), second.toMillis(), uptime);
+    }
+}
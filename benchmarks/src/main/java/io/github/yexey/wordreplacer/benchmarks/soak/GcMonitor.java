@@ -0,0 +1,94 @@
+package io.github.yexey.wordreplacer.benchmarks.soak;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records GC pauses and the peak heap usage while it is started.
+ *
+ * Pauses are taken from the GC notifications of the JVM; concurrent collection cycles are not counted
+ * as pauses. The peak heap is the sum of the peak usages of all heap memory pools, which may slightly
+ * overestimate the true peak as the pools do not necessarily peak at the same time.
+ */
+class GcMonitor implements NotificationListener {
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+
+    private long pauses;
+    private long totalPauseMillis;
+    private long maxPauseMillis;
+
+    void start() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) collector;
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+    }
+
+    void stop() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (Exception e) {
+                // Already removed
+            }
+        }
+        emitters.clear();
+    }
+
+    @Override
+    public synchronized void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        if (info.getGcAction().toLowerCase().contains("concurrent")
+                || info.getGcName().toLowerCase().contains("concurrent")) {
+            return;
+        }
+        long duration = info.getGcInfo().getDuration();
+        pauses++;
+        totalPauseMillis += duration;
+        maxPauseMillis = Math.max(maxPauseMillis, duration);
+    }
+
+    long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    synchronized long getPauses() {
+        return pauses;
+    }
+
+    synchronized long getTotalPauseMillis() {
+        return totalPauseMillis;
+    }
+
+    synchronized long getMaxPauseMillis() {
+        return maxPauseMillis;
+    }
+}
@@ -0,0 +1,277 @@
+package io.github.yexey.wordreplacer.benchmarks.soak;
+
+import io.github.yexey.wordreplacer.WordReplacer;
+import io.github.yexey.wordreplacer.benchmarks.DocumentGenerator;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * SoakHarness - End-to-end throughput and heap soak test of WordReplacer.
+ *
+ * Generates a synthetic corpus ranging from small forms to a document of about 1,000 pages with large
+ * tables and images. For every corpus document, all threads repeatedly open it, replace all fields,
+ * remove the optional paragraphs and write the result, for a fixed duration after a warm-up. Each phase
+ * reports documents per second, p50/p99 latency, peak heap and GC pauses, and is checked against the
+ * configured thresholds. The process exits with status 1 if any threshold is violated.
+ *
+ * Settings are read from {@code soak.properties} on the classpath, then from the file given as
+ * {@code config=<path>}, then from {@code key=value} arguments:
+ * <pre>
+ *     java -Xmx2g -cp target/benchmarks.jar io.github.yexey.wordreplacer.benchmarks.soak.SoakHarness \
+ *             duration.seconds=300 threads=8 corpus=form,report book.maxP99Millis=4000
+ * </pre>
+ *
+ * Thresholds are named {@code <corpus>.minDocsPerSecond}, {@code <corpus>.maxP50Millis},
+ * {@code <corpus>.maxP99Millis}, {@code <corpus>.maxPeakHeapMb} and {@code <corpus>.maxGcPauseMillis};
+ * thresholds that are not set are not checked.
+ */
+public final class SoakHarness {
+
+    /**
+     * The synthetic corpus, from small forms to a 1,000 page document
+     */
+    private static final Map<String, DocumentGenerator.Spec> CORPUS = new LinkedHashMap<>();
+
+    static {
+        CORPUS.put("form", new DocumentGenerator.Spec()
+                .paragraphs(20)
+                .headerFooterCount(1));
+        CORPUS.put("letter", new DocumentGenerator.Spec()
+                .paragraphs(200)
+                .tableDepth(1)
+                .runsPerPlaceholder(4)
+                .headerFooterCount(2)
+                .images(1));
+        CORPUS.put("report", new DocumentGenerator.Spec()
+                .paragraphs(2_000)
+                .tableDepth(2)
+                .tableRows(20)
+                .runsPerPlaceholder(4)
+                .headerFooterCount(3)
+                .images(10));
+        CORPUS.put("book", new DocumentGenerator.Spec()
+                .paragraphs(12_000)
+                .tableDepth(1)
+                .tableRows(100)
+                .runsPerPlaceholder(2)
+                .headerFooterCount(3)
+                .images(50));
+    }
+
+    private final Properties settings;
+
+    private SoakHarness(Properties settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties settings = new Properties();
+        try (InputStream in = SoakHarness.class.getClassLoader().getResourceAsStream("soak.properties")) {
+            if (in != null) {
+                settings.load(in);
+            }
+        }
+        Properties overrides = new Properties();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got " + arg);
+            }
+            overrides.setProperty(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        if (overrides.containsKey("config")) {
+            try (Reader reader = Files.newBufferedReader(Path.of(overrides.getProperty("config")))) {
+                settings.load(reader);
+            }
+        }
+        settings.putAll(overrides);
+
+        List<String> violations = new SoakHarness(settings).run();
+        if (!violations.isEmpty()) {
+            System.out.println();
+            System.out.println("FAILED, thresholds violated:");
+            violations.forEach(violation -> System.out.println("  " + violation));
+            System.exit(1);
+        }
+        System.out.println();
+        System.out.println("PASSED");
+    }
+
+    /**
+     * Runs one phase per configured corpus document.
+     *
+     * @return the threshold violations, empty if all phases passed
+     */
+    private List<String> run() throws Exception {
+        int threads = Integer.parseInt(settings.getProperty("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        long warmUpSeconds = Long.parseLong(settings.getProperty("warmup.seconds", "10"));
+        long durationSeconds = Long.parseLong(settings.getProperty("duration.seconds", "60"));
+        List<String> corpus = Arrays.asList(settings.getProperty("corpus", String.join(",", CORPUS.keySet())).split(","));
+
+        System.out.printf("Soak test with %d threads, %d s warm-up and %d s per document, max heap %d MB%n",
+                threads, warmUpSeconds, durationSeconds, Runtime.getRuntime().maxMemory() / (1024 * 1024));
+        System.out.printf("%-8s %10s %8s %10s %10s %10s %12s %8s %12s%n", "corpus", "size (KB)",
+                "docs", "docs/s", "p50 (ms)", "p99 (ms)", "heap (MB)", "GCs", "max GC (ms)");
+
+        List<String> violations = new ArrayList<>();
+        for (String name : corpus) {
+            DocumentGenerator.Spec spec = CORPUS.get(name.trim());
+            if (spec == null) {
+                throw new IllegalArgumentException("Unknown corpus document " + name + ", expected one of " + CORPUS.keySet());
+            }
+            byte[] template = DocumentGenerator.generate(spec);
+            PhaseResult result = runPhase(template, threads, warmUpSeconds, durationSeconds);
+            System.out.printf("%-8s %10d %8d %10.1f %10.1f %10.1f %12d %8d %12d%n", name.trim(), template.length / 1024,
+                    result.documents, result.documentsPerSecond(), result.p50Millis, result.p99Millis,
+                    result.peakHeapBytes / (1024 * 1024), result.gcPauses, result.maxGcPauseMillis);
+            violations.addAll(check(name.trim(), result));
+        }
+        return violations;
+    }
+
+    private PhaseResult runPhase(byte[] template, int threads, long warmUpSeconds, long durationSeconds)
+            throws Exception {
+        Map<String, String> values = DocumentGenerator.fieldValues();
+        List<String> optional = DocumentGenerator.optionalPlaceholders();
+
+        // Warm up without measuring
+        runWorkers(template, values, optional, threads, TimeUnit.SECONDS.toNanos(warmUpSeconds));
+
+        System.gc();
+        GcMonitor gcMonitor = new GcMonitor();
+        gcMonitor.start();
+        long start = System.nanoTime();
+        long[] latencies;
+        try {
+            latencies = runWorkers(template, values, optional, threads, TimeUnit.SECONDS.toNanos(durationSeconds));
+        } finally {
+            gcMonitor.stop();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        PhaseResult result = new PhaseResult();
+        result.documents = latencies.length;
+        result.elapsedNanos = elapsed;
+        result.p50Millis = percentile(latencies, 0.50) / 1_000_000d;
+        result.p99Millis = percentile(latencies, 0.99) / 1_000_000d;
+        result.peakHeapBytes = gcMonitor.peakHeapBytes();
+        result.gcPauses = gcMonitor.getPauses();
+        result.maxGcPauseMillis = gcMonitor.getMaxPauseMillis();
+        return result;
+    }
+
+    /**
+     * Renders documents on all threads until the duration has passed.
+     *
+     * @return the latency of every rendered document in nanoseconds
+     */
+    private long[] runWorkers(byte[] template, Map<String, String> values, List<String> optional,
+                              int threads, long durationNanos) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long deadline = System.nanoTime() + durationNanos;
+            List<Future<long[]>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long begin = System.nanoTime();
+                        render(template, values, optional);
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - begin;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+
+            long[] all = new long[0];
+            for (Future<long[]> worker : workers) {
+                long[] latencies = worker.get();
+                int offset = all.length;
+                all = Arrays.copyOf(all, offset + latencies.length);
+                System.arraycopy(latencies, 0, all, offset, latencies.length);
+            }
+            return all;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * One end-to-end render: open, replace, remove paragraphs, write
+     */
+    private static long render(byte[] template, Map<String, String> values, List<String> optional) throws IOException {
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(template));
+             CountingOutputStream out = new CountingOutputStream(NullOutputStream.INSTANCE)) {
+            WordReplacer replacer = new WordReplacer(document);
+            replacer.replace(values);
+            replacer.removeParagraphs(optional);
+            document.write(out);
+            return out.getByteCount();
+        }
+    }
+
+    private List<String> check(String name, PhaseResult result) {
+        List<String> violations = new ArrayList<>();
+        checkMin(violations, name, "minDocsPerSecond", result.documentsPerSecond());
+        checkMax(violations, name, "maxP50Millis", result.p50Millis);
+        checkMax(violations, name, "maxP99Millis", result.p99Millis);
+        checkMax(violations, name, "maxPeakHeapMb", result.peakHeapBytes / (1024d * 1024d));
+        checkMax(violations, name, "maxGcPauseMillis", result.maxGcPauseMillis);
+        return violations;
+    }
+
+    private void checkMin(List<String> violations, String name, String threshold, double actual) {
+        String limit = settings.getProperty(name + "." + threshold);
+        if (limit != null && actual < Double.parseDouble(limit)) {
+            violations.add(String.format("%s.%s: %.1f < %s", name, threshold, actual, limit));
+        }
+    }
+
+    private void checkMax(List<String> violations, String name, String threshold, double actual) {
+        String limit = settings.getProperty(name + "." + threshold);
+        if (limit != null && actual > Double.parseDouble(limit)) {
+            violations.add(String.format("%s.%s: %.1f > %s", name, threshold, actual, limit));
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * The measurements of one phase
+     */
+    private static class PhaseResult {
+        private long documents;
+        private long elapsedNanos;
+        private double p50Millis;
+        private double p99Millis;
+        private long peakHeapBytes;
+        private long gcPauses;
+        private long maxGcPauseMillis;
+
+        private double documentsPerSecond() {
+            return elapsedNanos == 0 ? 0 : documents * 1_000_000_000d / elapsedNanos;
+        }
+    }
+}
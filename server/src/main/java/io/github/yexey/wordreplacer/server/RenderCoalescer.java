@@ -0,0 +1,154 @@
+package io.github.yexey.wordreplacer.server;
+
+import io.github.yexey.wordreplacer.CompiledTemplate;
+import io.github.yexey.wordreplacer.TemplateCache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups concurrent render requests for the same template into one batch.
+ *
+ * The first request for a template opens a batch and schedules its flush after the coalescing window.
+ * Requests for the same template arriving until then join the batch. The flush runs on the render executor:
+ * it looks the template up in the cache once and renders every document of the batch, so a burst for a cold
+ * template compiles it once. No request thread waits for the window; they only wait for their documents.
+ */
+final class RenderCoalescer {
+
+    /**
+     * The documents waiting for one template
+     */
+    private static final class Batch {
+        private final List<Map<String, String>> records = new ArrayList<>();
+        private final List<CompletableFuture<byte[]>> results = new ArrayList<>();
+        private int joined;
+    }
+
+    private final TemplateCache cache;
+    private final Executor renderExecutor;
+    private final ScheduledExecutorService scheduler;
+    private final long windowMillis;
+    private final int maxBatch;
+    private final ServerStats stats;
+
+    // Open batches by template file, guarded by this
+    private final Map<Path, Batch> open = new HashMap<>();
+
+    /**
+     * @param scheduler starts the flush of a batch after the window, only hands it to the render executor
+     */
+    RenderCoalescer(TemplateCache cache, Executor renderExecutor, ScheduledExecutorService scheduler,
+                    long windowMillis, int maxBatch, ServerStats stats) {
+        this.cache = cache;
+        this.renderExecutor = renderExecutor;
+        this.scheduler = scheduler;
+        this.windowMillis = windowMillis;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.stats = stats;
+    }
+
+    /**
+     * Renders one document per record, batched with concurrent requests for the same template.
+     * Returns right away; a failure to look up or render the template completes the futures exceptionally.
+     *
+     * @param template the template file
+     * @param records  the values of each document
+     * @return the future .docx file content of each record, in record order
+     */
+    List<CompletableFuture<byte[]>> render(Path template, List<Map<String, String>> records) {
+        List<CompletableFuture<byte[]>> results = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            results.add(new CompletableFuture<>());
+        }
+
+        Batch batch;
+        synchronized (this) {
+            batch = open.get(template);
+            if (batch != null && batch.records.size() < maxBatch) {
+                batch.records.addAll(records);
+                batch.results.addAll(results);
+                batch.joined++;
+                return results;
+            }
+            // Open a new batch; a full batch is no longer joined and flushed as scheduled
+            batch = new Batch();
+            batch.records.addAll(records);
+            batch.results.addAll(results);
+            open.put(template, batch);
+        }
+
+        Batch scheduled = batch;
+        try {
+            if (windowMillis > 0) {
+                scheduler.schedule(() -> flushLater(template, scheduled), windowMillis, TimeUnit.MILLISECONDS);
+            } else {
+                flushLater(template, scheduled);
+            }
+        } catch (RejectedExecutionException e) {
+            close(template, batch);
+            batch.results.forEach(result -> result.completeExceptionally(e));
+        }
+        return results;
+    }
+
+    private void flushLater(Path template, Batch batch) {
+        try {
+            renderExecutor.execute(() -> flush(template, batch));
+        } catch (RejectedExecutionException e) {
+            close(template, batch);
+            batch.results.forEach(result -> result.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Looks the template up once and renders every document of the batch
+     */
+    private void flush(Path template, Batch batch) {
+        close(template, batch);
+        CompiledTemplate compiled;
+        try {
+            compiled = cache.get(template);
+        } catch (IOException | RuntimeException e) {
+            batch.results.forEach(result -> result.completeExceptionally(e));
+            return;
+        }
+
+        stats.batchStarted(batch.joined);
+        for (int i = 0; i < batch.records.size(); i++) {
+            Map<String, String> record = batch.records.get(i);
+            CompletableFuture<byte[]> result = batch.results.get(i);
+            try {
+                renderExecutor.execute(() -> {
+                    try {
+                        ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        compiled.render(record, out);
+                        stats.documentRendered();
+                        result.complete(out.toByteArray());
+                    } catch (Throwable e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Stops the batch from being joined; afterwards its lists are only read by its flush
+     */
+    private synchronized void close(Path template, Batch batch) {
+        open.remove(template, batch);
+    }
+}
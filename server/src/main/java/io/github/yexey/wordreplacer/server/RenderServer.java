@@ -0,0 +1,295 @@
+package io.github.yexey.wordreplacer.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.github.yexey.wordreplacer.CompiledTemplate;
+import io.github.yexey.wordreplacer.TemplateCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * RenderServer - Local HTTP server rendering templates that stay compiled between requests.
+ *
+ * Running one long-lived JVM pays the class loading of POI and XMLBeans and the JIT warm-up once instead of
+ * per job. Templates are compiled on first use, or for the whole template directory at startup, and kept in a
+ * {@link TemplateCache}. Concurrent requests for the same template are coalesced into one batch by a
+ * {@link RenderCoalescer}. The server only listens on the loopback interface by default, e.g. as a sidecar.
+ *
+ * Endpoints:
+ * - {@code POST /render/<template>} with a JSON object of placeholders to values answers the .docx
+ * - {@code POST /batch/<template>} with a JSON array of such objects answers a ZIP of one .docx per object,
+ *   named by its position, e.g. {@code 00001.docx}
+ * - {@code GET /stats} answers the throughput, latency and cache statistics as JSON
+ * - {@code GET /health} answers {@code ok}
+ *
+ * Settings are read from {@code server.properties} on the classpath, then from the file given as
+ * {@code config=<path>}, then from {@code key=value} arguments:
+ * <pre>
+ *     java -jar target/render-server.jar templates.dir=/srv/templates port=8765 render.threads=8
+ *     curl -X POST --data '{"{{NAME}}": "John Doe"}' http://localhost:8765/render/letter.docx -o letter.docx
+ * </pre>
+ */
+public final class RenderServer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(RenderServer.class);
+    private static final String DOCX_TYPE = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+    private static final TypeReference<Map<String, String>> RECORD = new TypeReference<>() {
+    };
+    private static final TypeReference<List<Map<String, String>>> RECORDS = new TypeReference<>() {
+    };
+
+    /**
+     * A request that cannot be answered, with the HTTP status to answer instead
+     */
+    private static final class HttpError extends IOException {
+        private final int status;
+
+        private HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final Path templatesDir;
+    private final TemplateCache cache;
+    private final ServerStats stats = new ServerStats();
+    private final ExecutorService renderExecutor;
+    private final ExecutorService httpExecutor;
+    private final ScheduledExecutorService scheduler;
+    private final RenderCoalescer coalescer;
+    private final HttpServer http;
+
+    private RenderServer(Properties settings) throws IOException {
+        this.templatesDir = Path.of(settings.getProperty("templates.dir", "templates")).toAbsolutePath().normalize();
+        Pattern placeholders = Pattern.compile(settings.getProperty("placeholders", "\\{\\{[A-Za-z0-9_]+}}"));
+        this.cache = new TemplateCache(bytes -> CompiledTemplate.compile(bytes, placeholders),
+                Long.parseLong(settings.getProperty("cache.hot.mb", "256")) * 1024 * 1024,
+                Long.parseLong(settings.getProperty("cache.cold.mb", "1024")) * 1024 * 1024);
+
+        int renderThreads = Integer.parseInt(settings.getProperty("render.threads", "0"));
+        this.renderExecutor = Executors.newFixedThreadPool(
+                renderThreads > 0 ? renderThreads : Runtime.getRuntime().availableProcessors());
+        this.httpExecutor = Executors.newFixedThreadPool(Integer.parseInt(settings.getProperty("http.threads", "32")));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "render-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.coalescer = new RenderCoalescer(cache, renderExecutor, scheduler,
+                Long.parseLong(settings.getProperty("coalesce.window.millis", "2")),
+                Integer.parseInt(settings.getProperty("coalesce.maxBatch", "64")), stats);
+
+        this.http = HttpServer.create(new InetSocketAddress(settings.getProperty("host", "127.0.0.1"),
+                Integer.parseInt(settings.getProperty("port", "8765"))), 0);
+        http.createContext("/render/", timed(this::render));
+        http.createContext("/batch/", timed(this::batch));
+        http.createContext("/stats", exchange -> respond(exchange, 200, "application/json",
+                json.writeValueAsBytes(stats.snapshot(cache.getStats()))));
+        http.createContext("/health", exchange -> respond(exchange, 200, "text/plain",
+                "ok".getBytes(StandardCharsets.UTF_8)));
+        http.setExecutor(httpExecutor);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties settings = new Properties();
+        try (InputStream in = RenderServer.class.getClassLoader().getResourceAsStream("server.properties")) {
+            if (in != null) {
+                settings.load(in);
+            }
+        }
+        Properties overrides = new Properties();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got " + arg);
+            }
+            overrides.setProperty(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        if (overrides.containsKey("config")) {
+            try (Reader reader = Files.newBufferedReader(Path.of(overrides.getProperty("config")))) {
+                settings.load(reader);
+            }
+        }
+        settings.putAll(overrides);
+
+        RenderServer server = start(settings);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "render-server-shutdown"));
+    }
+
+    /**
+     * Starts a server with the given settings, see {@code server.properties}.
+     *
+     * @param settings the settings
+     * @return the running server
+     * @throws IOException if the port cannot be bound
+     */
+    public static RenderServer start(Properties settings) throws IOException {
+        RenderServer server = new RenderServer(settings);
+        if (Boolean.parseBoolean(settings.getProperty("templates.warm", "true"))) {
+            server.warmTemplates();
+        }
+        server.http.start();
+        log.info("Rendering templates from {} on http://{}", server.templatesDir, server.getAddress());
+        return server;
+    }
+
+    /**
+     * @return the address the server listens on
+     */
+    public InetSocketAddress getAddress() {
+        return http.getAddress();
+    }
+
+    /**
+     * Stops accepting requests and waits up to a second for running requests to finish.
+     */
+    @Override
+    public void close() {
+        http.stop(1);
+        httpExecutor.shutdown();
+        scheduler.shutdown();
+        renderExecutor.shutdown();
+    }
+
+    /**
+     * Compiles every template of the template directory, so the first requests do not pay for it
+     */
+    private void warmTemplates() throws IOException {
+        if (!Files.isDirectory(templatesDir)) {
+            log.warn("Template directory {} does not exist", templatesDir);
+            return;
+        }
+        long start = System.nanoTime();
+        int count = 0;
+        try (Stream<Path> files = Files.list(templatesDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!file.getFileName().toString().endsWith(".docx")) {
+                    continue;
+                }
+                try {
+                    cache.get(file);
+                    count++;
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not compile template {}", file, e);
+                }
+            }
+        }
+        log.info("Compiled {} templates in {} ms", count, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void render(HttpExchange exchange) throws IOException {
+        Path template = template(exchange, "/render/");
+        Map<String, String> record = read(exchange, RECORD);
+        byte[] document = await(coalescer.render(template, List.of(record)).get(0));
+        respond(exchange, 200, DOCX_TYPE, document);
+    }
+
+    private void batch(HttpExchange exchange) throws IOException {
+        Path template = template(exchange, "/batch/");
+        List<Map<String, String>> records = read(exchange, RECORDS);
+        List<CompletableFuture<byte[]>> documents = coalescer.render(template, records);
+
+        // Wait for all documents first, so a failure can still be answered with an error status
+        for (CompletableFuture<byte[]> document : documents) {
+            await(document);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/zip");
+        exchange.sendResponseHeaders(200, 0);
+        try (ZipOutputStream zip = new ZipOutputStream(exchange.getResponseBody())) {
+            // The documents are compressed already
+            zip.setLevel(Deflater.NO_COMPRESSION);
+            for (int i = 0; i < documents.size(); i++) {
+                zip.putNextEntry(new ZipEntry(String.format("%05d.docx", i + 1)));
+                zip.write(documents.get(i).join());
+                zip.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Resolves the template named by the request path, which must lie in the template directory
+     */
+    private Path template(HttpExchange exchange, String prefix) throws HttpError {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            throw new HttpError(405, "Use POST");
+        }
+        String name = exchange.getRequestURI().getPath().substring(prefix.length());
+        Path template = templatesDir.resolve(name).normalize();
+        if (name.isEmpty() || !template.startsWith(templatesDir) || !Files.isRegularFile(template)) {
+            throw new HttpError(404, "Unknown template " + name);
+        }
+        return template;
+    }
+
+    private <T> T read(HttpExchange exchange, TypeReference<T> type) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return json.readValue(in, type);
+        } catch (JsonProcessingException e) {
+            throw new HttpError(400, "Invalid request body: " + e.getOriginalMessage());
+        }
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> document) throws IOException {
+        try {
+            return document.join();
+        } catch (CompletionException e) {
+            throw new IOException("Could not render the document", e.getCause());
+        }
+    }
+
+    /**
+     * Answers errors and records the latency of every request
+     */
+    private HttpHandler timed(HttpHandler handler) {
+        return exchange -> {
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                handler.handle(exchange);
+                failed = false;
+            } catch (HttpError e) {
+                respond(exchange, e.status, "text/plain", e.getMessage().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Request {} failed", exchange.getRequestURI(), e);
+                respond(exchange, 500, "text/plain", String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            } finally {
+                exchange.close();
+                stats.requestCompleted(System.nanoTime() - start, failed);
+            }
+        };
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
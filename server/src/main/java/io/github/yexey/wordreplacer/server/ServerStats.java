@@ -0,0 +1,102 @@
+package io.github.yexey.wordreplacer.server;
+
+import io.github.yexey.wordreplacer.TemplateCache;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput and latency statistics of the render server.
+ *
+ * Counters cover the whole uptime. Latency percentiles are computed over the most recent requests only,
+ * so they follow the current load rather than the warm-up. All methods are thread-safe.
+ */
+final class ServerStats {
+
+    /**
+     * The number of most recent request latencies the percentiles are computed over
+     */
+    private static final int LATENCY_WINDOW = 4096;
+
+    private final long startNanos = System.nanoTime();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failedRequests = new LongAdder();
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder coalescedRequests = new LongAdder();
+
+    // Ring buffer of the latest request latencies in nanoseconds
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private long latencyCount;
+
+    void requestCompleted(long elapsedNanos, boolean failed) {
+        requests.increment();
+        if (failed) {
+            failedRequests.increment();
+        }
+        synchronized (latencies) {
+            latencies[(int) (latencyCount++ % LATENCY_WINDOW)] = elapsedNanos;
+        }
+    }
+
+    void documentRendered() {
+        documents.increment();
+    }
+
+    /**
+     * @param joined the number of requests that joined the batch of another request
+     */
+    void batchStarted(int joined) {
+        batches.increment();
+        coalescedRequests.add(joined);
+    }
+
+    /**
+     * Returns a snapshot of the statistics, ready to be serialized as JSON.
+     *
+     * @param cacheStats the statistics of the template cache
+     * @return the statistics by name
+     */
+    Map<String, Object> snapshot(TemplateCache.Stats cacheStats) {
+        long[] window;
+        synchronized (latencies) {
+            window = Arrays.copyOf(latencies, (int) Math.min(latencyCount, LATENCY_WINDOW));
+        }
+        Arrays.sort(window);
+        double uptimeSeconds = (System.nanoTime() - startNanos) / 1_000_000_000d;
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("uptimeSeconds", Math.round(uptimeSeconds));
+        snapshot.put("requests", requests.sum());
+        snapshot.put("failedRequests", failedRequests.sum());
+        snapshot.put("documents", documents.sum());
+        snapshot.put("documentsPerSecond", uptimeSeconds == 0 ? 0 : documents.sum() / uptimeSeconds);
+        snapshot.put("batches", batches.sum());
+        snapshot.put("coalescedRequests", coalescedRequests.sum());
+        snapshot.put("p50Millis", percentileMillis(window, 0.50));
+        snapshot.put("p99Millis", percentileMillis(window, 0.99));
+        snapshot.put("maxMillis", window.length == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(window[window.length - 1]));
+
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("hits", cacheStats.getHits());
+        cache.put("coldHits", cacheStats.getColdHits());
+        cache.put("misses", cacheStats.getMisses());
+        cache.put("hotEntries", cacheStats.getHotEntries());
+        cache.put("hotBytes", cacheStats.getHotBytes());
+        cache.put("coldEntries", cacheStats.getColdEntries());
+        cache.put("coldBytes", cacheStats.getColdBytes());
+        snapshot.put("templateCache", cache);
+        return snapshot;
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000d;
+    }
+}
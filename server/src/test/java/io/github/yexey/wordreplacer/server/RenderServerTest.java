@@ -0,0 +1,134 @@
+package io.github.yexey.wordreplacer.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.yexey.wordreplacer.CompiledTemplate;
+import io.github.yexey.wordreplacer.TemplateCache;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Prüft Start, Einzel- und Batch-Rendering, Statistiken und Beenden des Servers
+     */
+    @Test
+    public void testRenderAndStats() throws Exception {
+        createTemplate(tempDir.resolve("letter.docx"));
+        Properties settings = new Properties();
+        settings.setProperty("templates.dir", tempDir.toString());
+        settings.setProperty("port", "0");
+
+        HttpClient client = HttpClient.newHttpClient();
+        RenderServer server = RenderServer.start(settings);
+        try {
+            String base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+            HttpResponse<byte[]> single = client.send(HttpRequest.newBuilder(URI.create(base + "/render/letter.docx"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"{{NAME}}\": \"John Doe\"}")).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, single.statusCode());
+            assertEquals("Hallo John Doe", text(single.body()));
+
+            // Ein Dokument je Objekt, als ZIP in Eingabereihenfolge
+            HttpResponse<byte[]> batch = client.send(HttpRequest.newBuilder(URI.create(base + "/batch/letter.docx"))
+                    .POST(HttpRequest.BodyPublishers.ofString("[{\"{{NAME}}\": \"John\"}, {\"{{NAME}}\": \"Jane\"}]")).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, batch.statusCode());
+            List<String> texts = new ArrayList<>();
+            try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(batch.body()))) {
+                for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                    texts.add(entry.getName() + ": " + text(zip.readAllBytes()));
+                }
+            }
+            assertEquals(List.of("00001.docx: Hallo John", "00002.docx: Hallo Jane"), texts);
+
+            // Unbekannte Templates und ungültige Anfragen
+            assertEquals(404, client.send(HttpRequest.newBuilder(URI.create(base + "/render/fehlt.docx"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{}")).build(), HttpResponse.BodyHandlers.discarding()).statusCode());
+            assertEquals(400, client.send(HttpRequest.newBuilder(URI.create(base + "/render/letter.docx"))
+                    .POST(HttpRequest.BodyPublishers.ofString("[")).build(), HttpResponse.BodyHandlers.discarding()).statusCode());
+
+            HttpResponse<String> stats = client.send(HttpRequest.newBuilder(URI.create(base + "/stats")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, stats.statusCode());
+            Map<?, ?> values = new ObjectMapper().readValue(stats.body(), Map.class);
+            assertEquals(4, ((Number) values.get("requests")).intValue());
+            assertEquals(3, ((Number) values.get("documents")).intValue());
+        } finally {
+            server.close();
+        }
+
+        // Nach dem Beenden werden keine Verbindungen mehr angenommen
+        assertThrows(Exception.class, () -> client.send(HttpRequest.newBuilder(URI.create(
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/health")).build(), HttpResponse.BodyHandlers.discarding()));
+    }
+
+    /**
+     * Prüft, dass Anfragen innerhalb des Zeitfensters ohne blockierten Aufrufer zu einem Batch zusammengefasst werden
+     */
+    @Test
+    public void testCoalescing() throws Exception {
+        Path template = tempDir.resolve("letter.docx");
+        createTemplate(template);
+        TemplateCache cache = new TemplateCache(bytes -> CompiledTemplate.compile(bytes, List.of("{{NAME}}")),
+                Long.MAX_VALUE, Long.MAX_VALUE);
+        ServerStats stats = new ServerStats();
+        ExecutorService renderExecutor = Executors.newFixedThreadPool(2);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            RenderCoalescer coalescer = new RenderCoalescer(cache, renderExecutor, scheduler, 500, 64, stats);
+            List<CompletableFuture<byte[]>> documents = new ArrayList<>();
+            for (String name : List.of("Anna", "Bernd", "Clara")) {
+                documents.addAll(coalescer.render(template, List.of(Map.of("{{NAME}}", name))));
+            }
+            assertEquals("Hallo Clara", text(documents.get(2).get()));
+            assertEquals("Hallo Anna", text(documents.get(0).get()));
+
+            Map<String, Object> snapshot = stats.snapshot(cache.getStats());
+            assertEquals(1L, snapshot.get("batches"));
+            assertEquals(2L, snapshot.get("coalescedRequests"));
+            assertEquals(1, cache.getStats().getMisses());
+        } finally {
+            scheduler.shutdownNow();
+            renderExecutor.shutdownNow();
+        }
+    }
+
+    private static void createTemplate(Path path) throws Exception {
+        try (XWPFDocument document = new XWPFDocument(); OutputStream out = Files.newOutputStream(path)) {
+            document.createParagraph().createRun().setText("Hallo {{NAME}}");
+            document.write(out);
+        }
+    }
+
+    private static String text(byte[] docx) throws Exception {
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(docx))) {
+            return document.getParagraphs().get(0).getText();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package io.github.yexey.wordreplacer;
+
+import io.github.yexey.wordreplacer.internal.strategy.tracker.ReplacementTracker;
+import io.github.yexey.wordreplacer.internal.strategy.tracker.impl.ConcurrentReplacementTracker;
+import io.github.yexey.wordreplacer.internal.strategy.tracker.impl.NoOpReplacementTracker;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AsyncRenderer - Renders compiled templates on a bounded thread pool without blocking the caller.
+ *
+ * At most {@code threads} documents are rendered at once and at most {@code queueCapacity} more wait
+ * for a thread. When both are taken, a new render is either rejected right away, completing its future
+ * with a {@link RejectedExecutionException}, or the caller waits up to {@code maxWait} for a slot,
+ * depending on the {@link OverflowPolicy}. Bursts therefore queue up to a known depth instead of
+ * exhausting threads or memory, which keeps the latency of accepted renders predictable.
+ *
+ * Use {@link OverflowPolicy#REJECT} when calling from an event loop, e.g. to answer with 503 when saturated;
+ * {@link OverflowPolicy#WAIT} blocks the calling thread and suits batch producers. All methods are thread-safe.
+ *
+ * Usage example:
+ * <pre>
+ *     AsyncRenderer renderer = AsyncRenderer.builder()
+ *             .threads(8)
+ *             .queueCapacity(64)
+ *             .build();
+ *     renderer.render(compiledTemplate, values)
+ *             .thenAccept(document -&gt; response.send(document));
+ * </pre>
+ */
+@Slf4j
+public class AsyncRenderer implements AutoCloseable {
+
+    /**
+     * What to do with a render when all threads are busy and the queue is full
+     */
+    public enum OverflowPolicy {
+        /**
+         * Complete the future with a {@link RejectedExecutionException} right away
+         */
+        REJECT,
+
+        /**
+         * Block the calling thread until a slot is free, at most for maxWait, and reject then
+         */
+        WAIT
+    }
+
+    /**
+     * Renders one document on a pool thread
+     */
+    @FunctionalInterface
+    private interface RenderTask<T> {
+        T render() throws Exception;
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore slots;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final long maxWaitNanos;
+    private final ReplacementTracker tracker;
+
+    /**
+     * Creates a new AsyncRenderer
+     *
+     * @param threads        The number of threads rendering documents, 0 for one per core
+     * @param queueCapacity  The number of renders waiting for a thread before the overflow policy applies,
+     *                       0 for two per thread
+     * @param overflowPolicy What to do when all threads are busy and the queue is full, REJECT if not set
+     * @param maxWait        How long the WAIT policy blocks the caller at most, one second if not set
+     * @param tracker        The tracker all renders report to. Must be thread-safe, e.g. a
+     *                       {@link ConcurrentReplacementTracker}; no statistics are collected if not set.
+     */
+    @Builder
+    private AsyncRenderer(int threads, int queueCapacity, OverflowPolicy overflowPolicy, Duration maxWait,
+                          ReplacementTracker tracker) {
+        if (threads < 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException("threads and queueCapacity must not be negative");
+        }
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.capacity = poolSize + (queueCapacity > 0 ? queueCapacity : 2 * poolSize);
+        this.slots = new Semaphore(capacity);
+        this.overflowPolicy = overflowPolicy != null ? overflowPolicy : OverflowPolicy.REJECT;
+        this.maxWaitNanos = (maxWait != null ? maxWait : Duration.ofSeconds(1)).toNanos();
+        this.tracker = tracker != null ? tracker : NoOpReplacementTracker.INSTANCE;
+
+        // The queue is bounded by the slots, so it never rejects on its own
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "word-replacer-render-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Renders the values into the template on a pool thread.
+     *
+     * @param template The template to render
+     * @param values   A map of placeholders to their replacement values
+     * @return the future .docx file content; completed exceptionally with a {@link RejectedExecutionException}
+     * if the renderer is saturated or closed
+     */
+    public CompletableFuture<byte[]> render(CompiledTemplate template, Map<String, String> values) {
+        return submit(() -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            template.render(values, tracker, out);
+            return out.toByteArray();
+        });
+    }
+
+    /**
+     * Renders the values into the template on a pool thread and writes the .docx to the channel.
+     * The channel is not closed.
+     *
+     * @param template The template to render
+     * @param values   A map of placeholders to their replacement values
+     * @param channel  The channel to write the rendered document to
+     * @return a future completed once the document has been written; completed exceptionally with a
+     * {@link RejectedExecutionException} if the renderer is saturated or closed
+     */
+    public CompletableFuture<Void> render(CompiledTemplate template, Map<String, String> values,
+                                         WritableByteChannel channel) {
+        return submit(() -> {
+            // Not closed, closing the stream would close the channel
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+            template.render(values, tracker, out);
+            out.flush();
+            return null;
+        });
+    }
+
+    /**
+     * Returns the number of renders accepted but not finished yet, i.e. running or queued.
+     *
+     * @return the number of renders in flight
+     */
+    public int getInFlight() {
+        return capacity - slots.availablePermits();
+    }
+
+    /**
+     * Stops accepting renders. Renders already accepted are finished.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(RenderTask<T> task) {
+        if (!acquireSlot()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Renderer saturated, " + capacity + " renders running or queued"));
+        }
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.render());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed
+            slots.release();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private boolean acquireSlot() {
+        if (overflowPolicy == OverflowPolicy.REJECT) {
+            return slots.tryAcquire();
+        }
+        try {
+            return slots.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.debug("Interrupted while waiting for a render slot");
+            return false;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package io.github.yexey.wordreplacer;
+
+import io.github.yexey.wordreplacer.internal.strategy.matcher.PlaceholderMatcher;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.impl.AhoCorasickMatcher;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.impl.RegexMatcher;
+import io.github.yexey.wordreplacer.internal.strategy.tracker.ReplacementTracker;
+import io.github.yexey.wordreplacer.internal.strategy.tracker.impl.NoOpReplacementTracker;
+import io.github.yexey.wordreplacer.internal.template.ParagraphSlots;
+import io.github.yexey.wordreplacer.internal.template.PlaceholderSlot;
+import io.github.yexey.wordreplacer.internal.template.TemplateIndexer;
+import io.github.yexey.wordreplacer.internal.utils.RunUtils;
+import lombok.Getter;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * CompiledTemplate - A Word template whose placeholders have been located once and can be rendered many times.
+ *
+ * Compiling parses the template, records where each placeholder lives (part, body element path,
+ * run range and offsets) and keeps the raw template bytes. Rendering loads a fresh copy of the
+ * document and writes the values directly into the recorded slots, without searching the document again.
+ *
+ * Rendering a compiled template gives the same result as calling {@link WordReplacer#replace(Map)}
+ * on a freshly loaded copy of the template. Paragraphs whose placeholders each lie within one run,
+ * e.g. in templates written by {@link TemplateNormalizer}, are filled by editing the run texts in place.
+ * Instances are immutable and can be rendered from several threads concurrently.
+ *
+ * Usage example:
+ * <pre>
+ *     CompiledTemplate template = CompiledTemplate.compile(templateBytes, List.of("{{NAME}}", "{{EMAIL}}"));
+ *
+ *     Map&lt;String, String&gt; values = new HashMap&lt;&gt;();
+ *     values.put("{{NAME}}", "John Doe");
+ *     values.put("{{EMAIL}}", "john.doe@example.com");
+ *     template.render(values, outputStream);
+ * </pre>
+ */
+public class CompiledTemplate {
+
+    /**
+     * The raw .docx bytes every render starts from
+     */
+    private final byte[] template;
+
+    /**
+     * The placeholder slots, grouped by paragraph
+     */
+    private final List<ParagraphSlots> paragraphs;
+
+    /**
+     * The distinct placeholders found in the template
+     */
+    @Getter
+    private final Set<String> placeholders;
+
+    private CompiledTemplate(byte[] template, List<ParagraphSlots> paragraphs) {
+        this.template = template;
+        this.paragraphs = paragraphs;
+
+        Set<String> found = new LinkedHashSet<>();
+        for (ParagraphSlots paragraph : paragraphs) {
+            for (PlaceholderSlot slot : paragraph.getSlots()) {
+                found.add(slot.getPlaceholder());
+            }
+        }
+        this.placeholders = Collections.unmodifiableSet(found);
+    }
+
+    /**
+     * Compiles a template for the given placeholders.
+     *
+     * @param template     The .docx file content
+     * @param placeholders The placeholders to locate
+     * @return the compiled template
+     * @throws IOException if the template cannot be read
+     */
+    public static CompiledTemplate compile(byte[] template, Collection<String> placeholders) throws IOException {
+        return compile(template, new AhoCorasickMatcher(placeholders));
+    }
+
+    /**
+     * Compiles a template for all placeholders matching the given pattern, e.g. {@code \{\{[A-Z_]+}}}.
+     *
+     * @param template           The .docx file content
+     * @param placeholderPattern The pattern describing the placeholders
+     * @return the compiled template
+     * @throws IOException if the template cannot be read
+     */
+    public static CompiledTemplate compile(byte[] template, Pattern placeholderPattern) throws IOException {
+        return compile(template, new RegexMatcher(placeholderPattern));
+    }
+
+    /**
+     * Compiles a template read from a stream for the given placeholders.
+     *
+     * @param template     The stream providing the .docx file content
+     * @param placeholders The placeholders to locate
+     * @return the compiled template
+     * @throws IOException if the template cannot be read
+     */
+    public static CompiledTemplate compile(InputStream template, Collection<String> placeholders) throws IOException {
+        return compile(template.readAllBytes(), placeholders);
+    }
+
+    private static CompiledTemplate compile(byte[] template, PlaceholderMatcher matcher) throws IOException {
+        byte[] copy = template.clone();
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(copy))) {
+            return new CompiledTemplate(copy, TemplateIndexer.index(document, matcher));
+        }
+    }
+
+    /**
+     * Renders the values into a fresh copy of the template.
+     * Placeholders without an entry in the map are left untouched.
+     *
+     * @param values A map of placeholders to their replacement values
+     * @return the rendered document, to be closed by the caller
+     * @throws IOException if the template cannot be loaded
+     */
+    public XWPFDocument render(Map<String, String> values) throws IOException {
+        return render(values, NoOpReplacementTracker.INSTANCE);
+    }
+
+    /**
+     * Renders the values into a fresh copy of the template and reports the number of replacements
+     * per placeholder to the tracker, once per render. Values whose placeholder does not occur in the
+     * template are reported as failed.
+     *
+     * @param values  A map of placeholders to their replacement values
+     * @param tracker The tracker receiving the replacement statistics, shared by concurrent renders if thread-safe
+     * @return the rendered document, to be closed by the caller
+     * @throws IOException if the template cannot be loaded
+     */
+    public XWPFDocument render(Map<String, String> values, ReplacementTracker tracker) throws IOException {
+        XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(template));
+        boolean tracking = tracker != NoOpReplacementTracker.INSTANCE;
+        Map<String, Integer> hits = tracking ? new HashMap<>() : null;
+        for (ParagraphSlots paragraphSlots : paragraphs) {
+            if (paragraphSlots.isSingleRun()) {
+                fillRuns(document, paragraphSlots, values, hits);
+                continue;
+            }
+            XWPFParagraph paragraph = null;
+            List<PlaceholderSlot> slots = paragraphSlots.getSlots();
+
+            // Replace from right to left so the run positions of earlier slots stay valid
+            for (int i = slots.size() - 1; i >= 0; i--) {
+                PlaceholderSlot slot = slots.get(i);
+                if (!values.containsKey(slot.getPlaceholder())) {
+                    continue;
+                }
+                if (paragraph == null) {
+                    paragraph = paragraphSlots.getLocation().resolve(document);
+                }
+                RunUtils.replaceRuns(paragraph, slot.getStartRunIndex(), slot.getStartInRun(),
+                        slot.getEndRunIndex(), slot.getEndInRun(), values.get(slot.getPlaceholder()));
+                if (tracking) {
+                    hits.merge(slot.getPlaceholder(), 1, Integer::sum);
+                }
+            }
+        }
+
+        if (tracking) {
+            for (Map.Entry<String, String> value : values.entrySet()) {
+                tracker.trackReplacements(value.getKey(), value.getValue(), hits.getOrDefault(value.getKey(), 0));
+            }
+        }
+        return document;
+    }
+
+    /**
+     * Fast path for paragraphs whose placeholders each lie within one run: the new text of every run
+     * containing slots is built in one pass and set in place, no run is merged or removed.
+     */
+    private static void fillRuns(XWPFDocument document, ParagraphSlots paragraphSlots, Map<String, String> values,
+                                 Map<String, Integer> hits) {
+        XWPFParagraph paragraph = null;
+        List<XWPFRun> runs = null;
+        List<PlaceholderSlot> slots = paragraphSlots.getSlots();
+        int i = 0;
+        while (i < slots.size()) {
+            int runIndex = slots.get(i).getStartRunIndex();
+            String text = null;
+            StringBuilder newText = null;
+            int pos = 0;
+            for (; i < slots.size() && slots.get(i).getStartRunIndex() == runIndex; i++) {
+                PlaceholderSlot slot = slots.get(i);
+                if (!values.containsKey(slot.getPlaceholder())) {
+                    continue;
+                }
+                if (newText == null) {
+                    if (paragraph == null) {
+                        paragraph = paragraphSlots.getLocation().resolve(document);
+                        runs = paragraph.getRuns();
+                    }
+                    text = runs.get(runIndex).getText(0);
+                    newText = new StringBuilder(text.length() + 32);
+                }
+                newText.append(text, pos, slot.getStartInRun()).append(values.get(slot.getPlaceholder()));
+                pos = slot.getEndInRun();
+                if (hits != null) {
+                    hits.merge(slot.getPlaceholder(), 1, Integer::sum);
+                }
+            }
+            if (newText != null) {
+                newText.append(text, pos, text.length());
+                runs.get(runIndex).setText(newText.toString(), 0);
+            }
+        }
+    }
+
+    /**
+     * Renders the values into a fresh copy of the template and writes the result as .docx.
+     *
+     * @param values A map of placeholders to their replacement values
+     * @param out    The stream to write the rendered document to
+     * @throws IOException if the template cannot be loaded or the result cannot be written
+     */
+    public void render(Map<String, String> values, OutputStream out) throws IOException {
+        render(values, NoOpReplacementTracker.INSTANCE, out);
+    }
+
+    /**
+     * Renders the values into a fresh copy of the template, reports the replacements to the tracker
+     * and writes the result as .docx.
+     *
+     * @param values  A map of placeholders to their replacement values
+     * @param tracker The tracker receiving the replacement statistics
+     * @param out     The stream to write the rendered document to
+     * @throws IOException if the template cannot be loaded or the result cannot be written
+     */
+    public void render(Map<String, String> values, ReplacementTracker tracker, OutputStream out) throws IOException {
+        try (XWPFDocument document = render(values, tracker)) {
+            document.write(out);
+        }
+    }
+
+    /**
+     * Returns the raw template bytes without copying them. Callers must not modify the array.
+     *
+     * @return the .docx file content the template was compiled from
+     */
+    byte[] getTemplateBytes() {
+        return template;
+    }
+
+    /**
+     * Returns the number of placeholder slots recorded in the template.
+     *
+     * @return the number of slots
+     */
+    public int getSlotCount() {
+        int count = 0;
+        for (ParagraphSlots paragraph : paragraphs) {
+            count += paragraph.getSlots().size();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.yexey.wordreplacer;
+
+import io.github.yexey.wordreplacer.internal.template.ParagraphLocation;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A placeholder found by {@link WordReplacer#discoverPlaceholders} with all its occurrences in document order
+ */
+public class DiscoveredPlaceholder {
+
+    /**
+     * The placeholder text, e.g. {@code {{NAME}}}
+     */
+    @Getter
+    private final String placeholder;
+
+    private final List<Occurrence> occurrences = new ArrayList<>();
+
+    DiscoveredPlaceholder(String placeholder) {
+        this.placeholder = placeholder;
+    }
+
+    void addOccurrence(ParagraphLocation location, int start) {
+        occurrences.add(new Occurrence(location, start));
+    }
+
+    /**
+     * @return the occurrences in document order
+     */
+    public List<Occurrence> getOccurrences() {
+        return Collections.unmodifiableList(occurrences);
+    }
+
+    /**
+     * @return the number of occurrences in all paragraphs, tables, headers and footers
+     */
+    public int getCount() {
+        return occurrences.size();
+    }
+
+    @Override
+    public String toString() {
+        return placeholder + " x" + occurrences.size();
+    }
+
+    /**
+     * The document parts a placeholder can occur in
+     */
+    public enum Part {
+        BODY,
+        HEADER,
+        FOOTER
+    }
+
+    /**
+     * One occurrence of a placeholder: the paragraph it is in and its offset in the paragraph text.
+     *
+     * The paragraph is identified by its part, e.g. the second header, and its path within the part. The path
+     * starts with the index of the body element within the part. For paragraphs inside tables it continues with
+     * the row index, the cell index and the body element index within the cell, once per level of nesting.
+     */
+    @Getter
+    public static class Occurrence {
+        private final Part part;
+
+        /**
+         * The index of the header or footer among the headers or footers of the document, 0 for the body
+         */
+        private final int partIndex;
+
+        /**
+         * The path of the paragraph within its part, unmodifiable
+         */
+        private final List<Integer> path;
+        private final int start;
+
+        Occurrence(ParagraphLocation location, int start) {
+            this.part = Part.valueOf(location.getPartType().name());
+            this.partIndex = location.getPartIndex();
+            List<Integer> path = new ArrayList<>(location.getPath().length);
+            for (int index : location.getPath()) {
+                path.add(index);
+            }
+            this.path = Collections.unmodifiableList(path);
+            this.start = start;
+        }
+
+        @Override
+        public String toString() {
+            return part + "[" + partIndex + "]" + path + "@" + start;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package io.github.yexey.wordreplacer;
+
+import io.github.yexey.wordreplacer.internal.packaging.PassThroughPackageWriter;
+import lombok.Builder;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.zip.Deflater;
+
+/**
+ * DocxWriter - Writes documents edited by a {@link WordReplacer} with configurable compression.
+ *
+ * Every part the replacer did not modify is copied from the template as its original compressed ZIP
+ * entry. The modified parts (main document, headers and footers) are serialized one after the other and
+ * then compressed in parallel on the configured executor, before the ZIP is assembled in the entry order
+ * of the template. Use a compression level of {@link Deflater#NO_COMPRESSION} to store the modified parts
+ * uncompressed, e.g. for intermediate documents that are processed again right away.
+ *
+ * Instances are immutable and can be shared by several threads.
+ *
+ * Usage example:
+ * <pre>
+ *     DocxWriter writer = DocxWriter.builder()
+ *             .executor(executor)
+ *             .compressionLevel(Deflater.BEST_SPEED)
+ *             .build();
+ *     writer.write(replacer, templateBytes, outputStream);
+ * </pre>
+ */
+@Builder
+public class DocxWriter {
+
+    /**
+     * The executor compressing the modified parts. If not set, they are compressed on the calling thread.
+     */
+    private final Executor executor;
+
+    /**
+     * The deflate level of the modified parts, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     * or {@link Deflater#DEFAULT_COMPRESSION}; {@link Deflater#NO_COMPRESSION} stores them uncompressed.
+     */
+    @Builder.Default
+    private final int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Writes the document of the replacer as .docx. The stream is not closed.
+     *
+     * The document must have been loaded from exactly this template and modified only through the
+     * replacer; use {@link org.apache.poi.xwpf.usermodel.XWPFDocument#write} otherwise.
+     *
+     * @param replacer The replacer that edited the document
+     * @param template The .docx file content the document was loaded from
+     * @param out      The stream to write the document to
+     * @throws IOException           if the template cannot be read or the document cannot be written
+     * @throws IllegalStateException if the document has parts other than added images that are not in the template
+     */
+    public void write(WordReplacer replacer, byte[] template, OutputStream out) throws IOException {
+        try (ZipFile zip = ZipFile.builder().setSeekableByteChannel(new SeekableInMemoryByteChannel(template)).get()) {
+            packageWriter().write(replacer.getDocument(), replacer.getModifiedParts(), zip, out);
+        }
+    }
+
+    /**
+     * Writes the document of the replacer as .docx. The stream is not closed.
+     * See {@link #write(WordReplacer, byte[], OutputStream)}.
+     *
+     * @param replacer The replacer that edited the document
+     * @param template The .docx file the document was loaded from
+     * @param out      The stream to write the document to
+     * @throws IOException           if the template cannot be read or the document cannot be written
+     * @throws IllegalStateException if the document has parts other than added images that are not in the template
+     */
+    public void write(WordReplacer replacer, Path template, OutputStream out) throws IOException {
+        try (ZipFile zip = ZipFile.builder().setPath(template).get()) {
+            packageWriter().write(replacer.getDocument(), replacer.getModifiedParts(), zip, out);
+        }
+    }
+
+    /**
+     * Writes the document of a replacer opened by {@link WordReplacer#open} as .docx, copying the unmodified
+     * parts from the template it was opened from. The stream is not closed.
+     *
+     * @param replacer The replacer that opened and edited the document
+     * @param out      The stream to write the document to
+     * @throws IOException           if the template cannot be read or the document cannot be written
+     * @throws IllegalStateException if the replacer did not open the document itself
+     */
+    public void write(WordReplacer replacer, OutputStream out) throws IOException {
+        ZipFile template = replacer.getTemplate();
+        if (template == null) {
+            throw new IllegalStateException("The template of the document is unknown, pass it to write()");
+        }
+        // Owned and closed by the replacer
+        packageWriter().write(replacer.getDocument(), replacer.getModifiedParts(), template, out);
+    }
+
+    private PassThroughPackageWriter packageWriter() {
+        return new PassThroughPackageWriter(compressionLevel, executor != null ? executor : Runnable::run);
+    }
+}
@@ -0,0 +1,224 @@
+package io.github.yexey.wordreplacer;
+
+import io.github.yexey.wordreplacer.internal.strategy.tracker.ReplacementTracker;
+import io.github.yexey.wordreplacer.internal.strategy.tracker.impl.ConcurrentReplacementTracker;
+import io.github.yexey.wordreplacer.internal.strategy.tracker.impl.NoOpReplacementTracker;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * MailMerge - Renders one compiled template for many records concurrently.
+ *
+ * Every record is rendered from the same {@link CompiledTemplate}, which keeps the template bytes and
+ * the placeholder slots in memory, so neither the template file nor the placeholder positions are read
+ * again per record. Rendering runs on the configured executor; pass an executor backed by virtual
+ * threads on Java 21+ or a fixed platform thread pool sized to the number of cores.
+ *
+ * At most {@code maxInFlight} records are rendered or waiting to be handed to the result handler at
+ * any time, so records can be streamed from a database cursor without materializing them. The result
+ * handler is always called on the thread calling {@link #run(Iterable, ResultHandler)}, in input order
+ * if {@code ordered} is set and in completion order otherwise.
+ *
+ * Usage example:
+ * <pre>
+ *     MailMerge merge = MailMerge.builder()
+ *             .template(CompiledTemplate.compile(templateBytes, placeholders))
+ *             .executor(executor)
+ *             .ordered(true)
+ *             .build();
+ *     MailMerge.Stats stats = merge.run(records, (index, record, document) -&gt; store(index, document));
+ *     log.info("Rendered {} documents/s", stats.getDocumentsPerSecond());
+ * </pre>
+ */
+@Slf4j
+@Builder
+public class MailMerge {
+
+    /**
+     * The template every record is rendered from
+     */
+    private final CompiledTemplate template;
+
+    /**
+     * The executor rendering the records. If not set, a fixed pool with one thread per core is used per run.
+     */
+    private final Executor executor;
+
+    /**
+     * Whether results are handed to the result handler in input order
+     */
+    @Builder.Default
+    private final boolean ordered = false;
+
+    /**
+     * The maximum number of records being rendered or waiting for the result handler
+     */
+    @Builder.Default
+    private final int maxInFlight = 2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The tracker all records report their replacements to. Must be thread-safe, e.g. a
+     * {@link ConcurrentReplacementTracker}; no statistics are collected by default.
+     */
+    @Builder.Default
+    private final ReplacementTracker tracker = NoOpReplacementTracker.INSTANCE;
+
+    /**
+     * Receives the rendered documents
+     */
+    @FunctionalInterface
+    public interface ResultHandler {
+        /**
+         * @param index    the position of the record in the input
+         * @param record   the values the document was rendered with
+         * @param document the rendered .docx file content
+         * @throws IOException if the document cannot be stored
+         */
+        void accept(long index, Map<String, String> record, byte[] document) throws IOException;
+    }
+
+    /**
+     * Throughput statistics of a run
+     */
+    @Getter
+    public static class Stats {
+        private final long documents;
+        private final long elapsedNanos;
+
+        public Stats(long documents, long elapsedNanos) {
+            this.documents = documents;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double getDocumentsPerSecond() {
+            return elapsedNanos == 0 ? 0 : documents * 1_000_000_000d / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d documents in %d ms (%.1f documents/s)",
+                    documents, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getDocumentsPerSecond());
+        }
+    }
+
+    /**
+     * Renders the template for every record of the stream.
+     *
+     * @param records The values of each document
+     * @param handler Receives each rendered document
+     * @return the statistics of the run
+     * @throws IOException if a document cannot be rendered or the handler fails
+     */
+    public Stats run(Stream<Map<String, String>> records, ResultHandler handler) throws IOException {
+        return run(records::iterator, handler);
+    }
+
+    /**
+     * Renders the template for every record.
+     *
+     * @param records The values of each document
+     * @param handler Receives each rendered document
+     * @return the statistics of the run
+     * @throws IOException if a document cannot be rendered or the handler fails
+     */
+    public Stats run(Iterable<? extends Map<String, String>> records, ResultHandler handler) throws IOException {
+        ExecutorService ownExecutor = executor == null
+                ? Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())
+                : null;
+        Executor renderExecutor = executor != null ? executor : ownExecutor;
+        long start = System.nanoTime();
+        long count = 0;
+
+        Deque<PendingDocument> inFlight = new ArrayDeque<>();
+        BlockingQueue<PendingDocument> completed = new LinkedBlockingQueue<>();
+        try {
+            long index = 0;
+            for (Map<String, String> record : records) {
+                if (inFlight.size() >= Math.max(1, maxInFlight)) {
+                    deliver(next(inFlight, completed), handler);
+                    count++;
+                }
+                PendingDocument pending = new PendingDocument(index++, record);
+                pending.future = CompletableFuture.supplyAsync(() -> render(record), renderExecutor);
+                if (!ordered) {
+                    pending.future.whenComplete((document, failure) -> completed.add(pending));
+                }
+                inFlight.add(pending);
+            }
+            while (!inFlight.isEmpty()) {
+                deliver(next(inFlight, completed), handler);
+                count++;
+            }
+        } finally {
+            if (ownExecutor != null) {
+                ownExecutor.shutdown();
+            }
+        }
+
+        Stats stats = new Stats(count, System.nanoTime() - start);
+        log.debug("Mail merge finished: {}", stats);
+        return stats;
+    }
+
+    private byte[] render(Map<String, String> record) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            template.render(record, tracker, out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private PendingDocument next(Deque<PendingDocument> inFlight, BlockingQueue<PendingDocument> completed)
+            throws InterruptedIOException {
+        if (ordered) {
+            return inFlight.poll();
+        }
+        try {
+            PendingDocument pending = completed.take();
+            inFlight.remove(pending);
+            return pending;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a rendered document");
+        }
+    }
+
+    private void deliver(PendingDocument pending, ResultHandler handler) throws IOException {
+        byte[] document;
+        try {
+            document = pending.future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a rendered document");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            throw new IOException("Could not render record " + pending.index, cause);
+        }
+        handler.accept(pending.index, pending.record, document);
+    }
+
+    /**
+     * A record that has been submitted for rendering
+     */
+    private static class PendingDocument {
+        private final long index;
+        private final Map<String, String> record;
+        private CompletableFuture<byte[]> future;
+
+        private PendingDocument(long index, Map<String, String> record) {
+            this.index = index;
+            this.record = record;
+        }
+    }
+}
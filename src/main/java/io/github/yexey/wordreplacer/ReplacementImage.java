@@ -0,0 +1,160 @@
+package io.github.yexey.wordreplacer;
+
+import io.github.yexey.wordreplacer.internal.utils.HashUtils;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.xwpf.usermodel.Document;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ReplacementImage - An image prepared for {@link WordReplacer#replaceWithImage}.
+ *
+ * Preparing an image detects its format, reads its size in pixels and hashes its content. Prepared images
+ * are cached per process by the SHA-256 hash of their content, so a logo or signature inserted into thousands
+ * of documents is only prepared once. Within a document, all occurrences of an image share one media part.
+ *
+ * Supported formats are PNG, JPEG, GIF and BMP. Instances are immutable and can be shared by several threads.
+ *
+ * Usage example:
+ * <pre>
+ *     ReplacementImage logo = ReplacementImage.of(Path.of("logo.png"));
+ *     replacer.replaceWithImage("{{LOGO}}", logo);
+ * </pre>
+ */
+@Getter
+public class ReplacementImage {
+
+    /**
+     * The maximum number of prepared images kept in the process wide cache
+     */
+    private static final int MAX_CACHED_IMAGES = 256;
+
+    // In access order, the eldest entry is the least recently used one
+    private static final Map<String, ReplacementImage> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ReplacementImage> eldest) {
+                    return size() > MAX_CACHED_IMAGES;
+                }
+            });
+
+    /**
+     * The SHA-256 hash of the image content, hex encoded
+     */
+    private final String hash;
+
+    /**
+     * The image content, never modified
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private final byte[] data;
+
+    /**
+     * The picture type, one of the PICTURE_TYPE constants of {@link Document}
+     */
+    private final int pictureType;
+
+    /**
+     * The width in pixels
+     */
+    private final int width;
+
+    /**
+     * The height in pixels
+     */
+    private final int height;
+
+    private ReplacementImage(String hash, byte[] data, int pictureType, int width, int height) {
+        this.hash = hash;
+        this.data = data;
+        this.pictureType = pictureType;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Returns the prepared image for the given content, preparing it if it is not cached.
+     *
+     * @param data The image file content
+     * @return the prepared image
+     * @throws IllegalArgumentException if the image format is not supported or the image cannot be read
+     */
+    public static ReplacementImage of(byte[] data) {
+        String hash = HashUtils.sha256Hex(data);
+        ReplacementImage image = CACHE.get(hash);
+        if (image == null) {
+            // Two threads may prepare the same image at once, either result is fine
+            int pictureType = pictureType(data);
+            int[] size = size(data);
+            image = new ReplacementImage(hash, data.clone(), pictureType, size[0], size[1]);
+            CACHE.put(hash, image);
+        }
+        return image;
+    }
+
+    /**
+     * Returns the prepared image for the given file, preparing it if its content is not cached.
+     *
+     * @param file The image file
+     * @return the prepared image
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the image format is not supported or the image cannot be read
+     */
+    public static ReplacementImage of(Path file) throws IOException {
+        return of(Files.readAllBytes(file));
+    }
+
+    private static int pictureType(byte[] data) {
+        switch (FileMagic.valueOf(data)) {
+            case PNG:
+                return Document.PICTURE_TYPE_PNG;
+            case JPEG:
+                return Document.PICTURE_TYPE_JPEG;
+            case GIF:
+                return Document.PICTURE_TYPE_GIF;
+            case BMP:
+                return Document.PICTURE_TYPE_BMP;
+            default:
+                throw new IllegalArgumentException("Unsupported image format, expected PNG, JPEG, GIF or BMP");
+        }
+    }
+
+    /**
+     * Reads the size from the image header without decoding the pixels
+     */
+    private static int[] size(byte[] data) {
+        try (ImageInputStream in = new MemoryCacheImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("No image reader found for the image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return new int[]{reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read the image size", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "image " + width + "x" + height + " sha256:" + hash;
+    }
+}
@@ -0,0 +1,177 @@
+package io.github.yexey.wordreplacer;
+
+import io.github.yexey.wordreplacer.internal.packaging.ZipStreamReader;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.impl.AhoCorasickMatcher;
+import io.github.yexey.wordreplacer.internal.strategy.tracker.ReplacementTracker;
+import io.github.yexey.wordreplacer.internal.strategy.tracker.impl.SimpleReplacementTracker;
+import io.github.yexey.wordreplacer.internal.streaming.StreamingPartRenderer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * StreamingWordReplacer - Replaces placeholders in .docx files without building the XWPFDocument DOM.
+ *
+ * The document is read entry by entry from the ZIP stream. The main document, headers and footers
+ * are streamed as StAX events through a paragraph sized look-ahead buffer, in which placeholders are
+ * replaced (including placeholders split across runs); every other entry is copied with its compressed
+ * data unchanged. Inflated parts are checked against the zip bomb limits configured in ZipSecureFile.
+ * The output ZIP is written as the input is read, so memory use is bounded by the largest paragraph
+ * rather than by the size of the document. Only entries written with a data descriptor, e.g. by POI,
+ * are held in compressed form until their end is found.
+ *
+ * The replacement rules match {@link WordReplacer#replace(Map)}: the first occurrence of each
+ * placeholder per paragraph is replaced and replacement values are not searched again.
+ * Table rows can be repeated from an Iterator of records, see {@link #render(InputStream, OutputStream, Map)}.
+ *
+ * Usage example:
+ * <pre>
+ *     StreamingWordReplacer replacer = new StreamingWordReplacer(replacements);
+ *     try (InputStream in = new FileInputStream("template.docx");
+ *          OutputStream out = new FileOutputStream("output.docx")) {
+ *         replacer.render(in, out);
+ *     }
+ * </pre>
+ */
+@Slf4j
+public class StreamingWordReplacer {
+
+    /**
+     * The parts that contain replaceable text
+     */
+    private static final Pattern TEXT_PARTS = Pattern.compile("word/(document|header\\d*|footer\\d*)\\.xml");
+
+    private static final String MAIN_DOCUMENT = "word/document.xml";
+
+    /**
+     * Matcher for all placeholders, shared by all renders of this replacer
+     */
+    private final AhoCorasickMatcher matcher;
+
+    /**
+     * Replacement values, indexed by placeholder id of the matcher
+     */
+    private final String[] replacements;
+
+    /**
+     * Tracks statistics about replacements performed (success/failure)
+     */
+    @Getter
+    private final ReplacementTracker tracker;
+
+    /**
+     * Creates a new StreamingWordReplacer for the given replacements
+     *
+     * @param replacements A map of placeholders to their replacement values
+     */
+    public StreamingWordReplacer(Map<String, String> replacements) {
+        this(replacements, new SimpleReplacementTracker());
+    }
+
+    /**
+     * Creates a new StreamingWordReplacer for the given replacements reporting to the given tracker.
+     * Use a thread-safe tracker if the same instance renders documents concurrently.
+     *
+     * @param replacements A map of placeholders to their replacement values
+     * @param tracker      The tracker receiving the replacement statistics
+     */
+    public StreamingWordReplacer(Map<String, String> replacements, ReplacementTracker tracker) {
+        this.matcher = new AhoCorasickMatcher(replacements.keySet());
+        List<String> bookmarks = matcher.getPlaceholders();
+        this.replacements = new String[bookmarks.size()];
+        for (int i = 0; i < bookmarks.size(); i++) {
+            this.replacements[i] = replacements.get(bookmarks.get(i));
+        }
+        this.tracker = tracker;
+    }
+
+    /**
+     * Reads a .docx from the input stream and writes the rendered .docx to the output stream.
+     * Neither stream is closed.
+     *
+     * @param in  The stream providing the template
+     * @param out The stream to write the rendered document to
+     * @throws IOException if the template cannot be read or is not a valid .docx
+     */
+    public void render(InputStream in, OutputStream out) throws IOException {
+        render(in, out, Collections.emptyMap());
+    }
+
+    /**
+     * Reads a .docx from the input stream and writes the rendered .docx to the output stream, repeating
+     * the table row containing each row source's marker once per record of the source.
+     * Neither stream is closed.
+     *
+     * The records are pulled while the row is written, so a source backed by a database cursor or a
+     * file reader is never collected in memory. Each source is consumed by the first row containing
+     * its marker; record values take precedence over the replacements of this replacer, and the marker
+     * is removed from every row unless a record has a value for it.
+     *
+     * @param in         The stream providing the template
+     * @param out        The stream to write the rendered document to
+     * @param rowSources The records of each repeated row by the placeholder marking the row
+     * @throws IOException if the template cannot be read, is not a valid .docx or exceeds the zip bomb limits
+     */
+    public void render(InputStream in, OutputStream out, Map<String, Iterator<Map<String, String>>> rowSources)
+            throws IOException {
+        int[] hits = new int[replacements.length];
+        StreamingPartRenderer partRenderer = new StreamingPartRenderer(matcher, replacements, hits,
+                new LinkedHashMap<>(rowSources));
+
+        boolean mainDocument = false;
+        ZipArchiveOutputStream zipOut = new ZipArchiveOutputStream(out);
+        try (ZipStreamReader zipIn = new ZipStreamReader(in)) {
+            ZipArchiveEntry entry;
+            while ((entry = zipIn.nextEntry()) != null) {
+                if (!TEXT_PARTS.matcher(entry.getName()).matches()) {
+                    zipIn.copyRawEntry(zipOut);
+                    continue;
+                }
+                mainDocument |= entry.getName().equals(MAIN_DOCUMENT);
+                ZipArchiveEntry rendered = new ZipArchiveEntry(entry.getName());
+                rendered.setTime(entry.getTime());
+                zipOut.putArchiveEntry(rendered);
+                try (InputStream part = zipIn.getInputStream()) {
+                    partRenderer.render(part, zipOut);
+                } catch (XMLStreamException e) {
+                    throw new IOException("Could not render " + entry.getName(), e);
+                }
+                zipOut.closeArchiveEntry();
+            }
+        }
+        if (!mainDocument) {
+            throw new IOException("Not a .docx file, " + MAIN_DOCUMENT + " is missing");
+        }
+        zipOut.finish();
+        trackHits(hits);
+    }
+
+    /**
+     * Renders a .docx file into another file.
+     *
+     * @param template The template file
+     * @param output   The file to write the rendered document to
+     * @throws IOException if the template cannot be read or the output cannot be written
+     */
+    public void render(Path template, Path output) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(template));
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            render(in, out);
+        }
+    }
+
+    private void trackHits(int[] hits) {
+        List<String> bookmarks = matcher.getPlaceholders();
+        for (int i = 0; i < bookmarks.size(); i++) {
+            tracker.trackReplacements(bookmarks.get(i), replacements[i], hits[i]);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package io.github.yexey.wordreplacer;
+
+import io.github.yexey.wordreplacer.internal.utils.HashUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * TemplateCache - Two tier cache of compiled templates.
+ *
+ * Hot templates are kept on-heap as {@link CompiledTemplate}s, ready to render. When the hot tier
+ * exceeds its size limit, the least recently used templates are demoted to the cold tier, which only
+ * keeps their raw .docx bytes in direct (off-heap) buffers. A cold hit recompiles the template from
+ * those bytes without touching the disk. When the cold tier exceeds its size limit, the least recently
+ * used bytes are dropped.
+ *
+ * Templates are keyed by path, modification time and size, or by the SHA-256 hash of their content.
+ * Concurrent requests for a template that is being loaded wait for the same load. A load that finishes after
+ * its file changed or after {@link #clear()} is returned to its callers but not cached. All methods are thread-safe.
+ *
+ * Usage example:
+ * <pre>
+ *     TemplateCache cache = new TemplateCache(
+ *             bytes -&gt; CompiledTemplate.compile(bytes, Pattern.compile("\\{\\{[A-Z_]+}}")),
+ *             64 * 1024 * 1024, 512 * 1024 * 1024);
+ *     cache.get(Path.of("templates/invoice.docx")).render(values, outputStream);
+ * </pre>
+ */
+@Slf4j
+public class TemplateCache {
+
+    /**
+     * Compiles the raw bytes of a template
+     */
+    @FunctionalInterface
+    public interface TemplateCompiler {
+        CompiledTemplate compile(byte[] template) throws IOException;
+    }
+
+    /**
+     * Reads the raw bytes of a template on a cache miss
+     */
+    @FunctionalInterface
+    private interface TemplateLoader {
+        byte[] load() throws IOException;
+    }
+
+    /**
+     * Snapshot of the cache statistics
+     */
+    @Getter
+    public static class Stats {
+        private final long hits;
+        private final long coldHits;
+        private final long misses;
+        private final long evictions;
+        private final long coldEvictions;
+        private final int hotEntries;
+        private final long hotBytes;
+        private final int coldEntries;
+        private final long coldBytes;
+
+        public Stats(long hits, long coldHits, long misses, long evictions, long coldEvictions,
+                     int hotEntries, long hotBytes, int coldEntries, long coldBytes) {
+            this.hits = hits;
+            this.coldHits = coldHits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.coldEvictions = coldEvictions;
+            this.hotEntries = hotEntries;
+            this.hotBytes = hotBytes;
+            this.coldEntries = coldEntries;
+            this.coldBytes = coldBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, coldHits=%d, misses=%d, evictions=%d, coldEvictions=%d, "
+                            + "hot=%d (%d bytes), cold=%d (%d bytes)",
+                    hits, coldHits, misses, evictions, coldEvictions, hotEntries, hotBytes, coldEntries, coldBytes);
+        }
+    }
+
+    private final TemplateCompiler compiler;
+    private final long maxHotBytes;
+    private final long maxColdBytes;
+
+    // Both tiers in access order, the eldest entry is the least recently used one
+    private final LinkedHashMap<String, CompiledTemplate> hot = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, ByteBuffer> cold = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<CompiledTemplate>> loading = new HashMap<>();
+    private final Map<Path, String> pathKeys = new HashMap<>();
+
+    /**
+     * Incremented by {@link #clear()}, so loads started before are not cached
+     */
+    private long generation;
+
+    private long hotBytes;
+    private long coldBytes;
+    private long hits;
+    private long coldHits;
+    private long misses;
+    private long evictions;
+    private long coldEvictions;
+
+    /**
+     * Creates a new TemplateCache
+     *
+     * @param compiler     Compiles templates on a miss or cold hit
+     * @param maxHotBytes  The maximum total template size kept as compiled templates on-heap
+     * @param maxColdBytes The maximum total template size kept as raw bytes off-heap
+     */
+    public TemplateCache(TemplateCompiler compiler, long maxHotBytes, long maxColdBytes) {
+        this.compiler = compiler;
+        this.maxHotBytes = maxHotBytes;
+        this.maxColdBytes = maxColdBytes;
+    }
+
+    /**
+     * Returns the compiled template for a file, loading it if the file is not cached or has changed.
+     *
+     * @param path The template file
+     * @return the compiled template
+     * @throws IOException if the template cannot be read or compiled
+     */
+    public CompiledTemplate get(Path path) throws IOException {
+        Path normalized = path.toAbsolutePath().normalize();
+        String key = "path:" + normalized + "@" + Files.getLastModifiedTime(normalized).toMillis()
+                + "#" + Files.size(normalized);
+        synchronized (this) {
+            String previousKey = pathKeys.put(normalized, key);
+            if (previousKey != null && !previousKey.equals(key)) {
+                remove(previousKey);
+            }
+        }
+        return get(key, normalized, () -> Files.readAllBytes(normalized));
+    }
+
+    /**
+     * Returns the compiled template for the given content, compiling it if it is not cached.
+     *
+     * @param template The .docx file content
+     * @return the compiled template
+     * @throws IOException if the template cannot be compiled
+     */
+    public CompiledTemplate get(byte[] template) throws IOException {
+        return get("sha256:" + HashUtils.sha256Hex(template), null, () -> template);
+    }
+
+    /**
+     * Returns a snapshot of the cache statistics.
+     *
+     * @return the statistics
+     */
+    public synchronized Stats getStats() {
+        return new Stats(hits, coldHits, misses, evictions, coldEvictions,
+                hot.size(), hotBytes, cold.size(), coldBytes);
+    }
+
+    /**
+     * Removes all templates from both tiers. Loads still in progress complete but are not cached.
+     * Statistics are kept.
+     */
+    public synchronized void clear() {
+        generation++;
+        hot.clear();
+        cold.clear();
+        loading.clear();
+        pathKeys.clear();
+        hotBytes = 0;
+        coldBytes = 0;
+    }
+
+    /**
+     * @param path the normalized template file the key was built for, null for a content hash key
+     */
+    private CompiledTemplate get(String key, Path path, TemplateLoader loader) throws IOException {
+        CompletableFuture<CompiledTemplate> future = null;
+        CompletableFuture<CompiledTemplate> pending;
+        byte[] coldTemplate = null;
+        long loadGeneration;
+        synchronized (this) {
+            loadGeneration = generation;
+            CompiledTemplate template = hot.get(key);
+            if (template != null) {
+                hits++;
+                return template;
+            }
+
+            pending = loading.get(key);
+            if (pending != null) {
+                hits++;
+            } else {
+                future = new CompletableFuture<>();
+                loading.put(key, future);
+                ByteBuffer buffer = cold.remove(key);
+                if (buffer != null) {
+                    coldHits++;
+                    coldBytes -= buffer.capacity();
+                    coldTemplate = new byte[buffer.capacity()];
+                    buffer.duplicate().get(coldTemplate);
+                } else {
+                    misses++;
+                }
+            }
+        }
+
+        // Another thread is already loading the same template
+        if (pending != null) {
+            return await(pending);
+        }
+
+        // Read and compile outside the lock so other templates stay available
+        try {
+            CompiledTemplate template = compiler.compile(coldTemplate != null ? coldTemplate : loader.load());
+            synchronized (this) {
+                loading.remove(key, future);
+                if (isCurrent(key, path, loadGeneration)) {
+                    putHot(key, template);
+                } else {
+                    log.debug("Not caching template {}, it changed or the cache was cleared while loading", key);
+                }
+            }
+            future.complete(template);
+            return template;
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                loading.remove(key, future);
+            }
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private CompiledTemplate await(CompletableFuture<CompiledTemplate> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a template to load");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Checks that a finished load still belongs in the cache, i.e. the cache was not cleared and the file
+     * did not change since it started
+     */
+    private boolean isCurrent(String key, Path path, long loadGeneration) {
+        return loadGeneration == generation && (path == null || key.equals(pathKeys.get(path)));
+    }
+
+    private void putHot(String key, CompiledTemplate template) {
+        hot.put(key, template);
+        hotBytes += template.getTemplateBytes().length;
+
+        // Demote the least recently used templates, always keeping the newest one
+        Iterator<Map.Entry<String, CompiledTemplate>> eldest = hot.entrySet().iterator();
+        while (hotBytes > maxHotBytes && hot.size() > 1) {
+            Map.Entry<String, CompiledTemplate> entry = eldest.next();
+            eldest.remove();
+            byte[] bytes = entry.getValue().getTemplateBytes();
+            hotBytes -= bytes.length;
+            evictions++;
+            putCold(entry.getKey(), bytes);
+        }
+    }
+
+    private void putCold(String key, byte[] bytes) {
+        if (bytes.length > maxColdBytes) {
+            coldEvictions++;
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        cold.put(key, buffer);
+        coldBytes += bytes.length;
+
+        Iterator<Map.Entry<String, ByteBuffer>> eldest = cold.entrySet().iterator();
+        while (coldBytes > maxColdBytes) {
+            coldBytes -= eldest.next().getValue().capacity();
+            eldest.remove();
+            coldEvictions++;
+        }
+        log.debug("Demoted template {} to the cold tier", key);
+    }
+
+    private void remove(String key) {
+        CompiledTemplate template = hot.remove(key);
+        if (template != null) {
+            hotBytes -= template.getTemplateBytes().length;
+        }
+        ByteBuffer buffer = cold.remove(key);
+        if (buffer != null) {
+            coldBytes -= buffer.capacity();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package io.github.yexey.wordreplacer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * WarmUp - Runs the whole rendering path once on a tiny embedded template.
+ *
+ * The first document rendered in a fresh JVM is slow because POI and XMLBeans load, link and initialize
+ * several thousand classes, most of them schema types, on first use. Running the warm-up at startup, e.g.
+ * before a service reports itself ready, moves that cost out of the first request. The template is a
+ * small .docx with a header, a footer, a table and a placeholder split across runs. It is rendered
+ * <ul>
+ *     <li>as an {@link XWPFDocument} edited by a {@link WordReplacer} with replacements, an image, a paragraph
+ *     removal and a repeated table row, and written with both the pass-through writer and POI,</li>
+ *     <li>by a {@link WordReplacer} opened with {@link WordReplacer#open(ByteBuffer)}, which shares the
+ *     package code of {@link WordReplacer#open(java.nio.file.Path)},</li>
+ *     <li>by a {@link StreamingWordReplacer}, and</li>
+ *     <li>as a {@link CompiledTemplate}.</li>
+ * </ul>
+ * {@link AsyncRenderer} and {@link MailMerge} render through {@link CompiledTemplate} and are covered by it.
+ *
+ * The main method runs the same warm-up, which is the training run of the {@code appcds} build profile
+ * creating a class data sharing archive.
+ *
+ * Usage example:
+ * <pre>
+ *     Duration elapsed = WordReplacer.warmUp();
+ *     log.info("Word rendering ready after {} ms", elapsed.toMillis());
+ * </pre>
+ */
+@Slf4j
+public final class WarmUp {
+    private static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+    private static final String R_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String REL_TYPE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships/";
+    private static final String CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.wordprocessingml.";
+
+    /**
+     * A 1x1 pixel PNG
+     */
+    private static final byte[] IMAGE = Base64.getDecoder().decode(
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAYAAAAfFcSJAAAADUlEQVR42mNk+M9QDwADhgGAWjR9awAAAABJRU5ErkJggg==");
+
+    private WarmUp() {
+    }
+
+    /**
+     * Runs the warm-up and prints how long it took.
+     *
+     * @param args ignored
+     * @throws IOException if the embedded template cannot be rendered
+     */
+    public static void main(String[] args) throws IOException {
+        System.out.println("Warmed up in " + run().toMillis() + " ms");
+    }
+
+    /**
+     * Renders the embedded template once through each rendering path listed in the class description.
+     *
+     * @return how long the warm-up took
+     * @throws IOException if the embedded template cannot be rendered
+     */
+    public static Duration run() throws IOException {
+        long start = System.nanoTime();
+        render();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        log.debug("Warm-up took {} ms", elapsed.toMillis());
+        return elapsed;
+    }
+
+    /**
+     * Renders the embedded template through every path of the warm-up.
+     *
+     * @return the rendered documents by rendering path
+     * @throws IOException if the embedded template cannot be rendered
+     */
+    static Map<String, byte[]> render() throws IOException {
+        byte[] template = template();
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("{{NAME}}", "John Doe");
+        values.put("{{EMAIL}}", "john.doe@example.com");
+        values.put("{{PHONE}}", "(555) 123-4567");
+        values.put("{{DATE}}", "2024-01-01");
+        values.put("{{ADDRESS}}", "1 Main Street");
+        values.put("{{LOGO}}", "");
+        Map<String, byte[]> rendered = new LinkedHashMap<>();
+
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(template))) {
+            WordReplacer replacer = new WordReplacer(document);
+            replacer.replaceWithImage("{{LOGO}}", ReplacementImage.of(IMAGE));
+            replacer.replace("{{NAME}}", values.get("{{NAME}}"));
+            replacer.replace(values);
+            replacer.hasBookmark("{{OPTIONAL}}");
+            replacer.removeParagraph("{{OPTIONAL}}");
+            replacer.repeatTableRow("{{ITEM}}", rows());
+            ByteArrayOutputStream passThrough = new ByteArrayOutputStream();
+            replacer.write(template, passThrough);
+            rendered.put("passThrough", passThrough.toByteArray());
+            ByteArrayOutputStream poi = new ByteArrayOutputStream();
+            document.write(poi);
+            rendered.put("poi", poi.toByteArray());
+        }
+
+        try (WordReplacer replacer = WordReplacer.open(ByteBuffer.wrap(template))) {
+            replacer.replace(values);
+            replacer.removeParagraph("{{OPTIONAL}}");
+            replacer.repeatTableRow("{{ITEM}}", rows());
+            ByteArrayOutputStream opened = new ByteArrayOutputStream();
+            replacer.write(opened);
+            rendered.put("open", opened.toByteArray());
+        }
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        new StreamingWordReplacer(values).render(new ByteArrayInputStream(template), streamed, Map.of("{{ITEM}}", rows()));
+        rendered.put("streaming", streamed.toByteArray());
+
+        ByteArrayOutputStream compiled = new ByteArrayOutputStream();
+        CompiledTemplate.compile(template, values.keySet()).render(values, compiled);
+        rendered.put("compiled", compiled.toByteArray());
+        return rendered;
+    }
+
+    private static Iterator<Map<String, String>> rows() {
+        return List.of(
+                Map.of("{{ITEM}}", "Paper", "{{PRICE}}", "4.99"),
+                Map.of("{{ITEM}}", "Pencil", "{{PRICE}}", "0.99")).iterator();
+    }
+
+    /**
+     * Builds the template without POI, so that loading it is part of the warm-up
+     */
+    private static byte[] template() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            entry(zip, "[Content_Types].xml", "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                    + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                    + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                    + "<Override PartName=\"/word/document.xml\" ContentType=\"" + CONTENT_TYPE + "document.main+xml\"/>"
+                    + "<Override PartName=\"/word/header1.xml\" ContentType=\"" + CONTENT_TYPE + "header+xml\"/>"
+                    + "<Override PartName=\"/word/footer1.xml\" ContentType=\"" + CONTENT_TYPE + "footer+xml\"/>"
+                    + "<Override PartName=\"/docProps/core.xml\""
+                    + " ContentType=\"application/vnd.openxmlformats-package.core-properties+xml\"/>"
+                    + "</Types>");
+            entry(zip, "_rels/.rels", "<Relationships xmlns=\"" + REL_NS + "\">"
+                    + "<Relationship Id=\"rId1\" Type=\"" + REL_TYPE + "officeDocument\" Target=\"word/document.xml\"/>"
+                    + "<Relationship Id=\"rId2\" Type=\"http://schemas.openxmlformats.org/package/2006/relationships/"
+                    + "metadata/core-properties\" Target=\"docProps/core.xml\"/>"
+                    + "</Relationships>");
+            entry(zip, "docProps/core.xml", "<cp:coreProperties"
+                    + " xmlns:cp=\"http://schemas.openxmlformats.org/package/2006/metadata/core-properties\""
+                    + " xmlns:dc=\"http://purl.org/dc/elements/1.1/\"><dc:title>Warm-up</dc:title></cp:coreProperties>");
+            entry(zip, "word/_rels/document.xml.rels", "<Relationships xmlns=\"" + REL_NS + "\">"
+                    + "<Relationship Id=\"rId1\" Type=\"" + REL_TYPE + "header\" Target=\"header1.xml\"/>"
+                    + "<Relationship Id=\"rId2\" Type=\"" + REL_TYPE + "footer\" Target=\"footer1.xml\"/>"
+                    + "</Relationships>");
+            entry(zip, "word/document.xml", "<w:document xmlns:w=\"" + W_NS + "\" xmlns:r=\"" + R_NS + "\"><w:body>"
+                    + "<w:p><w:r><w:rPr><w:b/></w:rPr><w:t xml:space=\"preserve\">Dear {{NA</w:t></w:r>"
+                    + "<w:r><w:t>ME}},</w:t></w:r></w:p>"
+                    + paragraph("{{EMAIL}} {{PHONE}}")
+                    + paragraph("{{LOGO}}")
+                    + paragraph("{{OPTIONAL}} This paragraph is removed.")
+                    + "<w:tbl><w:tblPr><w:tblW w:w=\"0\" w:type=\"auto\"/></w:tblPr>"
+                    + "<w:tblGrid><w:gridCol w:w=\"4000\"/><w:gridCol w:w=\"4000\"/></w:tblGrid>"
+                    + "<w:tr><w:tc>" + paragraph("Item") + "</w:tc><w:tc>" + paragraph("Price") + "</w:tc></w:tr>"
+                    + "<w:tr><w:tc>" + paragraph("{{ITEM}}") + "</w:tc><w:tc>" + paragraph("{{PRICE}}") + "</w:tc></w:tr>"
+                    + "</w:tbl>"
+                    + paragraph("")
+                    + "<w:sectPr><w:headerReference w:type=\"default\" r:id=\"rId1\"/>"
+                    + "<w:footerReference w:type=\"default\" r:id=\"rId2\"/></w:sectPr>"
+                    + "</w:body></w:document>");
+            entry(zip, "word/header1.xml", "<w:hdr xmlns:w=\"" + W_NS + "\">" + paragraph("{{DATE}}") + "</w:hdr>");
+            entry(zip, "word/footer1.xml", "<w:ftr xmlns:w=\"" + W_NS + "\">" + paragraph("{{ADDRESS}}") + "</w:ftr>");
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String paragraph(String text) {
+        return "<w:p><w:r><w:t xml:space=\"preserve\">" + text + "</w:t></w:r></w:p>";
+    }
+
+    private static void entry(ZipOutputStream zip, String name, String xml) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" + xml)
+                .getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+}
@@ -1,18 +1,49 @@
 package io.github.yexey.wordreplacer;
 
+import io.github.yexey.wordreplacer.internal.index.PlaceholderIndex;
+import io.github.yexey.wordreplacer.internal.media.PictureInserter;
+import io.github.yexey.wordreplacer.internal.model.DocumentTextModel;
+import io.github.yexey.wordreplacer.internal.model.ValueSlots;
+import io.github.yexey.wordreplacer.internal.packaging.ByteBufferChannel;
+import io.github.yexey.wordreplacer.internal.packaging.ModifiedPartCollector;
+import io.github.yexey.wordreplacer.internal.packaging.RandomAccessZipSource;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.PlaceholderMatch;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.impl.AhoCorasickMatcher;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.impl.RegexMatcher;
 import io.github.yexey.wordreplacer.internal.strategy.tracker.ReplacementTracker;
+import io.github.yexey.wordreplacer.internal.strategy.tracker.impl.ConcurrentReplacementTracker;
+import io.github.yexey.wordreplacer.internal.strategy.tracker.impl.NoOpReplacementTracker;
 import io.github.yexey.wordreplacer.internal.strategy.tracker.impl.SimpleReplacementTracker;
 import io.github.yexey.wordreplacer.internal.strategy.visitor.DocumentElementVisitor;
-import io.github.yexey.wordreplacer.internal.strategy.visitor.impl.BookmarkFinderVisitor;
+import io.github.yexey.wordreplacer.internal.strategy.visitor.impl.MultiReplacementVisitor;
+import io.github.yexey.wordreplacer.internal.strategy.visitor.impl.ImageReplacementVisitor;
+import io.github.yexey.wordreplacer.internal.strategy.visitor.impl.ParagraphCollectorVisitor;
 import io.github.yexey.wordreplacer.internal.strategy.visitor.impl.RemovalVisitor;
 import io.github.yexey.wordreplacer.internal.strategy.visitor.impl.ReplacementVisitor;
+import io.github.yexey.wordreplacer.internal.template.ParagraphWalker;
+import io.github.yexey.wordreplacer.internal.template.RowPrototype;
+import io.github.yexey.wordreplacer.internal.template.SectionEvaluator;
+import io.github.yexey.wordreplacer.internal.utils.TableUtils;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.util.Units;
 import org.apache.poi.xwpf.usermodel.*;
 
-import java.util.Map;
-import java.util.Optional;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
 /**
  * WordReplacer - Main implementation for replacing placeholders in MS Word documents.
@@ -25,9 +56,17 @@ import java.util.Optional;
  * - Single replacements
  * - Batch replacements
  * - Default value replacements
+ * - Lazy and asynchronous values, fetched only for the placeholders present in the document
  * - Optional value replacements
- * - Paragraph removal based on placeholder content
+ * - Updating replaced values in place, e.g. for previews
+ * - Image replacements, adding each distinct image once per document
+ * - Paragraph removal based on placeholder content, for one or many placeholders at once
+ * - Conditional sections spanning paragraphs and tables, kept or removed in a single pass
+ * - Table rows repeated once per record of a data source
+ * - Discovery of all placeholders matching a pattern, with their counts and locations
  * - Tracking of successful and failed replacements
+ * - Writing the result with the untouched parts copied from the template without recompressing them
+ * - Opening templates from a file or buffer, inflating only the parts that are edited
  *
  * Usage example:
  * <pre>
@@ -40,14 +79,17 @@ import java.util.Optional;
  *     replacer.replace(replacements);
  *
  *     replacer.removeParagraph("{{NOTES}}");
+ *
+ *     replacer.write(templateBytes, outputStream);
  * </pre>
  */
 @Slf4j
-public class WordReplacer implements WordReplacerIF {
+public class WordReplacer implements WordReplacerIF, Closeable {
 
     /**
      * The Word document being processed
      */
+    @Getter(AccessLevel.PACKAGE)
     private final XWPFDocument document;
 
     /**
@@ -56,14 +98,127 @@ public class WordReplacer implements WordReplacerIF {
     @Getter
     private final ReplacementTracker tracker;
 
+    /**
+     * Cached text of every paragraph visited so far, shared by all operations and updated in place by edits
+     */
+    private DocumentTextModel textModel = new DocumentTextModel();
+
+    /**
+     * Where the values of replaced placeholders were written, kept up to date by all operations
+     */
+    private ValueSlots slots = new ValueSlots();
+
+    /**
+     * Placeholder occurrence index, built on the first lookup and kept up to date by all operations
+     */
+    private PlaceholderIndex index;
+
+    /**
+     * The parts changed by replacements and removals, kept across index invalidations
+     */
+    private final ModifiedPartCollector modifiedParts = new ModifiedPartCollector();
+
+    /**
+     * Adds the pictures of image replacements, each distinct image once per part
+     */
+    private final PictureInserter pictures = new PictureInserter(modifiedParts);
+
+    /**
+     * The template ZIP the document was opened from by {@link #open(Path)} or {@link #open(ByteBuffer)},
+     * null if the document was passed in
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private final ZipFile template;
+
     /**
      * Creates a new WordReplacer for the given document
      *
      * @param document The XWPFDocument to process (MS Word document)
      */
     public WordReplacer(XWPFDocument document) {
+        this(document, new SimpleReplacementTracker());
+    }
+
+    /**
+     * Creates a new WordReplacer for the given document reporting to the given tracker.
+     *
+     * Pass a {@link ConcurrentReplacementTracker} to collect the statistics of many documents rendered
+     * concurrently, or {@link NoOpReplacementTracker#INSTANCE} to skip tracking altogether.
+     *
+     * @param document The XWPFDocument to process (MS Word document)
+     * @param tracker  The tracker receiving the replacement statistics
+     */
+    public WordReplacer(XWPFDocument document, ReplacementTracker tracker) {
+        this(document, tracker, null);
+    }
+
+    private WordReplacer(XWPFDocument document, ReplacementTracker tracker, ZipFile template) {
         this.document = document;
-        this.tracker = new SimpleReplacementTracker();
+        this.tracker = tracker;
+        this.template = template;
+        textModel.addListener(modifiedParts);
+        textModel.addListener(slots);
+    }
+
+    /**
+     * Opens a template file for replacing its placeholders.
+     *
+     * Unlike {@code new XWPFDocument(new FileInputStream(...))}, which inflates the whole package into memory,
+     * the file is read with random access: only the main document, headers, footers and the other XML parts
+     * POI parses are inflated, while images, fonts and embedded objects stay on disk until {@link #write(OutputStream)}
+     * copies them. The file must not change while the replacer is open; close the replacer to release it.
+     *
+     * The package is opened read-only, so {@link #replaceWithImage} is not supported and the document can only
+     * be written by {@link #write(OutputStream)}.
+     *
+     * @param template The .docx file
+     * @return a replacer owning the opened document
+     * @throws IOException if the file cannot be read or is not a .docx file
+     */
+    public static WordReplacer open(Path template) throws IOException {
+        return open(ZipFile.builder().setPath(template).get());
+    }
+
+    /**
+     * Opens a template held in a buffer for replacing its placeholders, see {@link #open(Path)}.
+     *
+     * The content is the buffer from its position to its limit; neither the buffer nor its position are changed.
+     * Pass a buffer mapped with {@link java.nio.channels.FileChannel#map} to keep the template off the heap
+     * and to share its pages between all replacers opening it.
+     *
+     * @param template The .docx file content
+     * @return a replacer owning the opened document
+     * @throws IOException if the content is not a .docx file
+     */
+    public static WordReplacer open(ByteBuffer template) throws IOException {
+        return open(ZipFile.builder().setSeekableByteChannel(new ByteBufferChannel(template)).get());
+    }
+
+    private static WordReplacer open(ZipFile zip) throws IOException {
+        OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(new RandomAccessZipSource(zip));
+        } catch (InvalidFormatException e) {
+            zip.close();
+            throw new IOException("The template is not a valid .docx file", e);
+        }
+        try {
+            return new WordReplacer(new XWPFDocument(pkg), new SimpleReplacementTracker(), zip);
+        } catch (IOException | RuntimeException e) {
+            pkg.revert();
+            throw e;
+        }
+    }
+
+    /**
+     * Loads the classes of the whole rendering path by rendering a tiny embedded template once, see {@link WarmUp}.
+     * Call it at startup so the first real document does not pay for loading POI and XMLBeans.
+     *
+     * @return how long the warm-up took
+     * @throws IOException if the embedded template cannot be rendered
+     */
+    public static Duration warmUp() throws IOException {
+        return WarmUp.run();
     }
 
     /**
@@ -79,27 +234,156 @@ public class WordReplacer implements WordReplacerIF {
         ReplacementVisitor visitor = new ReplacementVisitor(
                 bookmark,
                 replacement,
-                tracker);
+                textModel,
+                slots);
 
         // Process document elements
         processDocument(visitor);
+
+        // Track the result once for the whole document
+        tracker.trackReplacements(bookmark, replacement, visitor.getHits());
     }
 
     /**
      * Performs multiple replacements in a single pass through the document.
      * This is more efficient than calling replace() multiple times as the document
-     * is only traversed once per entry in the map.
+     * is traversed only once and every paragraph is scanned for all placeholders at once.
+     *
+     * As with replace(), the first occurrence of each placeholder per paragraph is replaced.
+     * Replacement values are not searched for placeholders again.
      *
      * @param replacements A map of placeholders to their replacement values
      */
     @Override
     public void replace(Map<String, String> replacements) {
-        // Process each replacement
-        for (Map.Entry<String, String> entry : replacements.entrySet()) {
-            replace(entry.getKey(), entry.getValue());
+        if (replacements.isEmpty()) {
+            return;
+        }
+        // Create a visitor matching all placeholders at once
+        MultiReplacementVisitor visitor = new MultiReplacementVisitor(replacements, textModel, slots);
+
+        // Process document elements
+        processDocument(visitor);
+
+        // Track the results per placeholder
+        List<String> bookmarks = visitor.getMatcher().getPlaceholders();
+        int[] hits = visitor.getHits();
+        for (int i = 0; i < bookmarks.size(); i++) {
+            String bookmark = bookmarks.get(i);
+            tracker.trackReplacements(bookmark, replacements.get(bookmark), hits[i]);
         }
     }
 
+    /**
+     * Replaces placeholders with lazily computed values. Only the suppliers of placeholders that occur
+     * in the document are called, each once; the others are tracked as failed replacements without
+     * computing their value. The replacement itself works like {@link #replace(Map)}.
+     *
+     * @param values A map of placeholders to the suppliers of their replacement values
+     */
+    public void replaceLazy(Map<String, Supplier<String>> values) {
+        Set<String> present = presentPlaceholders(values.keySet());
+        Map<String, String> replacements = new LinkedHashMap<>();
+        for (Map.Entry<String, Supplier<String>> value : values.entrySet()) {
+            if (present.contains(value.getKey())) {
+                replacements.put(value.getKey(), value.getValue().get());
+            }
+        }
+        replaceFound(values.keySet(), replacements);
+    }
+
+    /**
+     * Replaces placeholders with asynchronously fetched values. The fetches of all placeholders that occur
+     * in the document are started at once, so the call takes as long as the slowest needed fetch rather
+     * than the sum of all of them; the others are never started and tracked as failed replacements.
+     * Once all values are available, they are replaced in a single traversal on the calling thread.
+     *
+     * @param values A map of placeholders to functions starting the fetch of their replacement values
+     * @throws java.util.concurrent.CompletionException if a fetch fails; nothing is replaced then
+     */
+    public void replaceAsync(Map<String, Supplier<CompletableFuture<String>>> values) {
+        Set<String> present = presentPlaceholders(values.keySet());
+        Map<String, CompletableFuture<String>> fetches = new LinkedHashMap<>();
+        for (Map.Entry<String, Supplier<CompletableFuture<String>>> value : values.entrySet()) {
+            if (present.contains(value.getKey())) {
+                fetches.put(value.getKey(), value.getValue().get());
+            }
+        }
+        CompletableFuture.allOf(fetches.values().toArray(CompletableFuture<?>[]::new)).join();
+
+        Map<String, String> replacements = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<String>> fetch : fetches.entrySet()) {
+            replacements.put(fetch.getKey(), fetch.getValue().join());
+        }
+        replaceFound(values.keySet(), replacements);
+    }
+
+    /**
+     * Changes the values of placeholders replaced before, e.g. to refresh a preview after the user edited
+     * a few fields. Every position a placeholder's value was written to by replace() is remembered, so a
+     * changed value is written straight into those runs without traversing the document; values equal
+     * to the current ones are skipped. The cost depends on the number of changed values, not on the size
+     * of the document.
+     *
+     * Placeholders not replaced yet are replaced as by {@link #replace(Map)}, in a single traversal for all
+     * of them. Values in paragraphs removed since, or edited by a later replacement, are gone and not
+     * written again. The positions are forgotten by {@link #invalidateIndex()} and {@link #repeatTableRow}.
+     *
+     * @param values A map of placeholders to their new values
+     * @return the number of positions a changed value was written to, excluding placeholders replaced for the first time
+     */
+    public int update(Map<String, String> values) {
+        int updated = 0;
+        Map<String, String> notReplaced = new LinkedHashMap<>();
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            String bookmark = value.getKey();
+            if (!slots.contains(bookmark)) {
+                notReplaced.put(bookmark, value.getValue());
+            } else if (!Objects.equals(slots.getValue(bookmark), value.getValue())) {
+                int count = slots.update(textModel, bookmark, value.getValue());
+                tracker.trackReplacements(bookmark, value.getValue(), count);
+                updated += count;
+            }
+        }
+        replace(notReplaced);
+        return updated;
+    }
+
+    /**
+     * Replaces a placeholder with an image in its original size, see {@link #replaceWithImage(String, ReplacementImage, int, int)}.
+     *
+     * @param bookmark The placeholder text to find
+     * @param image    The image to insert
+     */
+    public void replaceWithImage(String bookmark, ReplacementImage image) {
+        replaceWithImage(bookmark, image, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Replaces a placeholder with an image throughout the document. As with replace(), the first occurrence
+     * per paragraph is replaced; the image keeps the formatting of the text run the placeholder starts in.
+     *
+     * The image data is added to the document (or header or footer) once, no matter how often the
+     * placeholder occurs, and all occurrences refer to the same media part.
+     *
+     * @param bookmark The placeholder text to find
+     * @param image    The image to insert
+     * @param width    The displayed width in pixels
+     * @param height   The displayed height in pixels
+     * @throws IllegalArgumentException if the image cannot be added to the document
+     */
+    public void replaceWithImage(String bookmark, ReplacementImage image, int width, int height) {
+        long widthEmu = Units.pixelToEMU(width);
+        long heightEmu = Units.pixelToEMU(height);
+        ImageReplacementVisitor visitor = new ImageReplacementVisitor(bookmark,
+                run -> pictures.insert(run, image.getHash(), image.getData(), image.getPictureType(), widthEmu, heightEmu),
+                textModel);
+
+        processDocument(visitor);
+
+        tracker.trackReplacements(bookmark, image.toString(), visitor.getHits());
+    }
+
     /**
      * Replaces a placeholder with the given replacement text, or with a default text
      * if the replacement is null.
@@ -141,24 +425,318 @@ public class WordReplacer implements WordReplacerIF {
         if (StringUtils.isBlank(bookmark)) {
             return;
         }
+        removeParagraphs(List.of(bookmark));
+    }
+
+    /**
+     * Completely removes all paragraphs containing any of the specified placeholders.
+     *
+     * All matching paragraphs in the body, table cells, headers and footers are marked in a single
+     * traversal and then removed in one sweep, so the document is traversed once however many
+     * paragraphs are removed.
+     *
+     * @param bookmarks The placeholder texts to search for; blank entries are ignored
+     * @return the number of removed paragraphs
+     */
+    public int removeParagraphs(Collection<String> bookmarks) {
+        List<String> nonBlank = new ArrayList<>();
+        for (String bookmark : bookmarks) {
+            if (StringUtils.isNotBlank(bookmark)) {
+                nonBlank.add(bookmark);
+            }
+        }
+        if (nonBlank.isEmpty()) {
+            return 0;
+        }
         // Create a removal visitor
-        RemovalVisitor visitor = new RemovalVisitor(document, bookmark);
+        RemovalVisitor visitor = new RemovalVisitor(nonBlank, textModel);
 
-        // Process document elements
+        // Mark the paragraphs in one traversal, then remove them
         processDocument(visitor);
+        visitor.sweep();
+        return visitor.getRemovedCount();
+    }
+
+    /**
+     * Keeps or removes conditional sections marked <code>{{#NAME}}</code> ... <code>{{/NAME}}</code>.
+     *
+     * @param sections whether to keep each section, by section name
+     * @return the number of removed sections
+     * @see #applySections(Map, String, String)
+     */
+    public int applySections(Map<String, Boolean> sections) {
+        return applySections(sections, "{{", "}}");
+    }
+
+    /**
+     * Keeps or removes conditional sections enclosed in a start marker, e.g. <code>{{#NOTES}}</code>, and an
+     * end marker, e.g. <code>{{/NOTES}}</code>. The markers consist of the delimiters around {@code #} or
+     * {@code /} and the section name.
+     *
+     * All sections are evaluated in a single traversal of the body, headers and footers. A removed section
+     * takes every paragraph and table from the paragraph holding its start marker to the paragraph holding
+     * its end marker with it; if both markers are in the same paragraph, only the text in between is removed.
+     * The markers of kept sections are removed, together with their paragraph if nothing else is left in it.
+     * Sections may span paragraphs and tables but must start and end in the same body, e.g. the same table
+     * cell; the start marker of a section without an end marker there is left untouched.
+     *
+     * @param sections whether to keep each section, by section name; sections not in the map are left untouched
+     * @param prefix   the start delimiter of a marker, e.g. <code>{{</code>
+     * @param suffix   the end delimiter of a marker, e.g. <code>}}</code>
+     * @return the number of removed sections
+     */
+    public int applySections(Map<String, Boolean> sections, String prefix, String suffix) {
+        if (sections.isEmpty()) {
+            return 0;
+        }
+        SectionEvaluator evaluator = new SectionEvaluator(sections, prefix, suffix, textModel);
+        evaluator.apply(document);
+        return evaluator.getDroppedCount();
+    }
+
+    /**
+     * Repeats the first table row containing the bookmark once per record and fills each copy with the
+     * record's values. The template row itself is removed.
+     *
+     * The records are consumed one at a time and never collected. The template row is prepared once:
+     * its XML is copied and the placeholders of its cell paragraphs (those of the first record plus the
+     * bookmark) are located, so every record only costs one copy of the prepared row and writing its values.
+     * Each copy is inserted right behind the previous one, so the cost grows linearly with the number of records.
+     * The bookmark is removed from every row unless the record has a value for it; placeholders a record
+     * has no value for are left untouched, e.g. for a later {@link #replace(Map)}.
+     *
+     * @param bookmark The placeholder marking the row to repeat
+     * @param records  The values of each row
+     * @return the number of inserted rows, 0 if there are no records or no row contains the bookmark
+     */
+    public int repeatTableRow(String bookmark, Iterator<Map<String, String>> records) {
+        if (StringUtils.isEmpty(bookmark)) {
+            return 0;
+        }
+        XWPFTableRow templateRow = findTableRow(bookmark);
+        if (templateRow == null) {
+            return 0;
+        }
+
+        XWPFTable table = templateRow.getTable();
+        int position = table.getRows().indexOf(templateRow);
+        Map<String, String> first = records.hasNext() ? records.next() : null;
+        Set<String> placeholders = new LinkedHashSet<>();
+        placeholders.add(bookmark);
+        if (first != null) {
+            placeholders.addAll(first.keySet());
+        }
+        RowPrototype prototype = RowPrototype.of(templateRow, bookmark, new AhoCorasickMatcher(placeholders));
+
+        int count = 0;
+        try (TableUtils.RowInserter rows = new TableUtils.RowInserter(templateRow)) {
+            for (Map<String, String> record = first; record != null; record = records.hasNext() ? records.next() : null) {
+                prototype.insert(rows, record);
+                count++;
+            }
+        }
+        table.removeRow(position);
+
+        // The rows were not edited through the text model
+        modifiedParts.add(table.getPart());
+        invalidateIndex();
+        return count;
     }
 
     /**
      * Checks if a specific placeholder exists anywhere in the document.
      *
+     * The first lookup indexes the text of all paragraphs in one traversal; later lookups are
+     * answered from the index, which is kept up to date by replace() and removeParagraph().
+     *
      * @param bookmark The placeholder text to search for
      * @return true if the placeholder exists in the document, false otherwise
      */
     @Override
     public boolean hasBookmark(String bookmark) {
-        BookmarkFinderVisitor finder = new BookmarkFinderVisitor(bookmark);
-        processDocument(finder);
-        return finder.isFound();
+        return countOccurrences(bookmark) > 0;
+    }
+
+    /**
+     * Counts the occurrences of a specific placeholder in the document.
+     *
+     * @param bookmark The placeholder text to search for
+     * @return the number of occurrences in all paragraphs, tables, headers and footers
+     */
+    public int countOccurrences(String bookmark) {
+        return index().count(bookmark);
+    }
+
+    /**
+     * Finds all placeholders matching the pattern, e.g. {@code \{\{[A-Z_]+}}}, in a single traversal of
+     * all paragraphs, tables, headers and footers. Placeholders split across runs are found as well.
+     *
+     * Use it to fetch only the values a template needs, or after rendering to detect leftover placeholders.
+     *
+     * @param pattern The pattern describing the placeholders
+     * @return the distinct placeholders in the order of their first occurrence
+     */
+    public Map<String, DiscoveredPlaceholder> discoverPlaceholders(Pattern pattern) {
+        RegexMatcher matcher = new RegexMatcher(pattern);
+        Map<String, DiscoveredPlaceholder> found = new LinkedHashMap<>();
+        ParagraphWalker.walk(document, (paragraph, location) -> {
+            for (PlaceholderMatch match : matcher.findAll(textModel.get(paragraph).getText())) {
+                found.computeIfAbsent(match.getPlaceholder(), DiscoveredPlaceholder::new)
+                        .addOccurrence(location, match.getStart());
+            }
+        });
+        return Collections.unmodifiableMap(found);
+    }
+
+    /**
+     * Finds all placeholders enclosed in the given delimiters, e.g. <code>{{</code> and <code>}}</code>.
+     * A placeholder ends at the first end delimiter and does not contain the start delimiter.
+     *
+     * @param prefix The start delimiter of a placeholder
+     * @param suffix The end delimiter of a placeholder
+     * @return the distinct placeholders including their delimiters, in the order of their first occurrence
+     * @see #discoverPlaceholders(Pattern)
+     */
+    public Map<String, DiscoveredPlaceholder> discoverPlaceholders(String prefix, String suffix) {
+        if (StringUtils.isEmpty(prefix) || StringUtils.isEmpty(suffix)) {
+            throw new IllegalArgumentException("Delimiters must not be empty");
+        }
+        String start = Pattern.quote(prefix);
+        return discoverPlaceholders(Pattern.compile(
+                start + "(?:(?!" + start + ").)*?" + Pattern.quote(suffix), Pattern.DOTALL));
+    }
+
+    /**
+     * Discards the cached paragraph texts, the placeholder index and the positions of replaced values.
+     * Call this after modifying the document directly, i.e. other than through this WordReplacer.
+     * Without it, a paragraph found to be edited directly is reread before this WordReplacer edits it,
+     * but the placeholder index and the value positions of {@link #update} may be out of date until then.
+     */
+    public void invalidateIndex() {
+        textModel = new DocumentTextModel();
+        textModel.addListener(modifiedParts);
+        slots = new ValueSlots();
+        textModel.addListener(slots);
+        index = null;
+    }
+
+    /**
+     * Writes the document as .docx, copying every part this WordReplacer did not modify from the
+     * template as its original compressed ZIP entry. Only the main document, headers and footers
+     * changed by replacements or removals are serialized and compressed again, which saves most of the
+     * work of {@link XWPFDocument#write} for templates with images, fonts or other media.
+     * Images added by {@link #replaceWithImage} are stored as new entries.
+     *
+     * The document must have been loaded from exactly this template and modified only through this
+     * WordReplacer; use {@link XWPFDocument#write} otherwise. The stream is not closed.
+     *
+     * @param template The .docx file content the document was loaded from
+     * @param out      The stream to write the document to
+     * @throws IOException           if the template cannot be read or the document cannot be written
+     * @throws IllegalStateException if the document has parts other than added images that are not in the template
+     */
+    public void write(byte[] template, OutputStream out) throws IOException {
+        DocxWriter.builder().build().write(this, template, out);
+    }
+
+    /**
+     * Writes the document as .docx, copying every part this WordReplacer did not modify from the
+     * template file as its original compressed ZIP entry. See {@link #write(byte[], OutputStream)}.
+     * Use a {@link DocxWriter} to compress the modified parts in parallel or with another compression level.
+     *
+     * @param template The .docx file the document was loaded from
+     * @param out      The stream to write the document to
+     * @throws IOException           if the template cannot be read or the document cannot be written
+     * @throws IllegalStateException if the document has parts other than added images that are not in the template
+     */
+    public void write(Path template, OutputStream out) throws IOException {
+        DocxWriter.builder().build().write(this, template, out);
+    }
+
+    /**
+     * Writes the document as .docx, copying every part this WordReplacer did not modify from the template
+     * it was opened from. See {@link #write(byte[], OutputStream)}. The stream is not closed.
+     *
+     * @param out The stream to write the document to
+     * @throws IOException           if the template cannot be read or the document cannot be written
+     * @throws IllegalStateException if the document was not opened by {@link #open(Path)} or {@link #open(ByteBuffer)}
+     */
+    public void write(OutputStream out) throws IOException {
+        DocxWriter.builder().build().write(this, out);
+    }
+
+    /**
+     * Closes the document and releases the template if the document was opened by {@link #open(Path)} or
+     * {@link #open(ByteBuffer)}. A document passed to the constructor belongs to the caller and is left open.
+     *
+     * @throws IOException if the template cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (template != null) {
+            // Read-only, reverting discards the package without the warning close() logs for it
+            document.getPackage().revert();
+            template.close();
+        }
+    }
+
+    /**
+     * Returns the parts changed by replacements and removals so far.
+     *
+     * @return the collector of the modified main document, headers and footers
+     */
+    ModifiedPartCollector getModifiedParts() {
+        return modifiedParts;
+    }
+
+    /**
+     * Returns the placeholder index, building it in one traversal on first use
+     */
+    private PlaceholderIndex index() {
+        if (index == null) {
+            ParagraphCollectorVisitor collector = new ParagraphCollectorVisitor();
+            processDocument(collector);
+            index = new PlaceholderIndex(textModel, collector.getParagraphs());
+            textModel.addListener(index);
+        }
+        return index;
+    }
+
+    private Set<String> presentPlaceholders(Collection<String> bookmarks) {
+        List<String> nonBlank = new ArrayList<>();
+        for (String bookmark : bookmarks) {
+            if (StringUtils.isNotEmpty(bookmark)) {
+                nonBlank.add(bookmark);
+            }
+        }
+        return index().findPresent(nonBlank);
+    }
+
+    /**
+     * Finds the innermost table row containing the bookmark in one of its cell paragraphs
+     */
+    private XWPFTableRow findTableRow(String bookmark) {
+        List<XWPFTableRow> found = new ArrayList<>(1);
+        ParagraphWalker.walk(document, (paragraph, location) -> {
+            if (found.isEmpty() && paragraph.getBody() instanceof XWPFTableCell
+                    && textModel.get(paragraph).getText().contains(bookmark)) {
+                found.add(((XWPFTableCell) paragraph.getBody()).getTableRow());
+            }
+        });
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Replaces the values of the placeholders found in the document and tracks all other
+     * placeholders as failed, without a value
+     */
+    private void replaceFound(Set<String> bookmarks, Map<String, String> replacements) {
+        replace(replacements);
+        for (String bookmark : bookmarks) {
+            if (!replacements.containsKey(bookmark)) {
+                tracker.trackReplacements(bookmark, null, 0);
+            }
+        }
     }
 
     /**
@@ -170,6 +748,8 @@ public class WordReplacer implements WordReplacerIF {
      * - Headers
      * - Footers
      *
+     * Tables, headers and footers whose cached text cannot match the visitor are skipped, so containers
+     * without placeholders are not traversed again by later operations.
      * The visitor is responsible for the actual processing of each element type.
      *
      * @param visitor The DocumentElementVisitor to apply to each element
@@ -182,17 +762,23 @@ public class WordReplacer implements WordReplacerIF {
 
         // Process tables in the document
         for (XWPFTable table : document.getTables()) {
-            visitor.visitTable(table);
+            if (visitor.mayMatch(textModel.getText(table))) {
+                visitor.visitTable(table);
+            }
         }
 
         // Process headers if configured
         for (XWPFHeader header : document.getHeaderList()) {
-            visitor.visitHeader(header);
+            if (visitor.mayMatch(textModel.getText(header))) {
+                visitor.visitHeader(header);
+            }
         }
 
         // Process footers if configured
         for (XWPFFooter footer : document.getFooterList()) {
-            visitor.visitFooter(footer);
+            if (visitor.mayMatch(textModel.getText(footer))) {
+                visitor.visitFooter(footer);
+            }
         }
     }
-}
\ No newline at end of file
+}
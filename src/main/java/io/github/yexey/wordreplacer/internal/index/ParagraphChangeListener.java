@@ -0,0 +1,34 @@
+package io.github.yexey.wordreplacer.internal.index;
+
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+
+/**
+ * Interface for being notified about paragraphs modified or removed through the text model
+ */
+public interface ParagraphChangeListener {
+    void paragraphChanged(XWPFParagraph paragraph, String oldText, String newText);
+    void paragraphRemoved(XWPFParagraph paragraph, String oldText);
+
+    /**
+     * Called before {@link #paragraphChanged} with the text range that changed.
+     *
+     * @param paragraph the changed paragraph
+     * @param start     the start offset of the replaced range in the old text
+     * @param end       the end offset of the replaced range in the old text
+     * @param length    the length of the text that replaced the range
+     */
+    default void rangeReplaced(XWPFParagraph paragraph, int start, int end, int length) {
+    }
+
+    /**
+     * Called instead of {@link #paragraphChanged} when the text model found its cached text of the paragraph
+     * out of date, e.g. after the paragraph was edited directly through POI, and rebuilt it.
+     *
+     * @param paragraph the rebuilt paragraph
+     * @param oldText   the previously cached text
+     * @param newText   the current text
+     */
+    default void paragraphReloaded(XWPFParagraph paragraph, String oldText, String newText) {
+        paragraphChanged(paragraph, oldText, newText);
+    }
+}
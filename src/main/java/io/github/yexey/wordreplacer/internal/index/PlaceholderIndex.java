@@ -0,0 +1,117 @@
+package io.github.yexey.wordreplacer.internal.index;
+
+import io.github.yexey.wordreplacer.internal.model.DocumentTextModel;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.impl.AhoCorasickMatcher;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+
+import java.util.*;
+
+/**
+ * Index answering placeholder occurrence counts without traversing the document.
+ *
+ * The paragraphs of the document are collected once. The placeholders asked for are counted together
+ * in one Aho-Corasick scan of the cached paragraph texts, and their counts are then kept up to date:
+ * when a paragraph changes or is removed, only the matches in its old and new text are counted again,
+ * for all indexed placeholders at once.
+ */
+public class PlaceholderIndex implements ParagraphChangeListener {
+    private final DocumentTextModel textModel;
+    private final Set<XWPFParagraph> paragraphs = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * The indexed placeholders by their id in the matcher
+     */
+    private final Map<String, Integer> ids = new HashMap<>();
+    private AhoCorasickMatcher matcher = new AhoCorasickMatcher(Collections.emptyList());
+
+    /**
+     * The occurrence counts of the indexed placeholders, indexed by placeholder id
+     */
+    private int[] counts = new int[0];
+
+    /**
+     * @param textModel  the text model of the document
+     * @param paragraphs all paragraphs of the document
+     */
+    public PlaceholderIndex(DocumentTextModel textModel, List<XWPFParagraph> paragraphs) {
+        this.textModel = textModel;
+        this.paragraphs.addAll(paragraphs);
+    }
+
+    /**
+     * Returns the number of occurrences of the placeholder across all paragraphs.
+     *
+     * @param bookmark the placeholder to count
+     * @return the number of non-overlapping occurrences
+     */
+    public int count(String bookmark) {
+        index(Collections.singletonList(bookmark));
+        Integer id = ids.get(bookmark);
+        return id != null ? counts[id] : 0;
+    }
+
+    /**
+     * Finds which of the placeholders occur in the document. Placeholders not indexed yet are counted
+     * together in a single scan of the paragraphs.
+     *
+     * @param bookmarks the placeholders to look for
+     * @return the placeholders occurring at least once
+     */
+    public Set<String> findPresent(Collection<String> bookmarks) {
+        index(bookmarks);
+        Set<String> present = new HashSet<>();
+        for (String bookmark : bookmarks) {
+            Integer id = ids.get(bookmark);
+            if (id != null && counts[id] > 0) {
+                present.add(bookmark);
+            }
+        }
+        return present;
+    }
+
+    @Override
+    public void paragraphChanged(XWPFParagraph paragraph, String oldText, String newText) {
+        if (paragraphs.contains(paragraph)) {
+            matcher.countEach(oldText, counts, -1);
+            matcher.countEach(newText, counts, 1);
+        }
+    }
+
+    @Override
+    public void paragraphRemoved(XWPFParagraph paragraph, String oldText) {
+        if (paragraphs.remove(paragraph)) {
+            matcher.countEach(oldText, counts, -1);
+        }
+    }
+
+    /**
+     * Counts the placeholders not indexed yet in one scan of all paragraphs and adds them to the index
+     */
+    private void index(Collection<String> bookmarks) {
+        List<String> added = new ArrayList<>();
+        for (String bookmark : bookmarks) {
+            if (bookmark != null && !bookmark.isEmpty() && !ids.containsKey(bookmark)) {
+                added.add(bookmark);
+            }
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+
+        AhoCorasickMatcher addedMatcher = new AhoCorasickMatcher(added);
+        int[] addedCounts = new int[addedMatcher.getPlaceholders().size()];
+        for (XWPFParagraph paragraph : paragraphs) {
+            addedMatcher.countEach(textModel.get(paragraph).getText(), addedCounts, 1);
+        }
+
+        List<String> placeholders = new ArrayList<>(matcher.getPlaceholders());
+        placeholders.addAll(addedMatcher.getPlaceholders());
+        int[] merged = Arrays.copyOf(counts, placeholders.size());
+        System.arraycopy(addedCounts, 0, merged, counts.length, addedCounts.length);
+        for (int id = counts.length; id < placeholders.size(); id++) {
+            ids.put(placeholders.get(id), id);
+        }
+        matcher = new AhoCorasickMatcher(placeholders);
+        counts = merged;
+    }
+}
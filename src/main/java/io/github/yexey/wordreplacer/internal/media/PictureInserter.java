@@ -0,0 +1,171 @@
+package io.github.yexey.wordreplacer.internal.media;
+
+import io.github.yexey.wordreplacer.internal.packaging.ModifiedPartCollector;
+import org.apache.poi.ooxml.POIXMLDocumentPart;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.xwpf.usermodel.IRunBody;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFFooter;
+import org.apache.poi.xwpf.usermodel.XWPFHeader;
+import org.apache.poi.xwpf.usermodel.XWPFHeaderFooter;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.XmlOptions;
+import org.openxmlformats.schemas.drawingml.x2006.wordprocessingDrawing.CTInline;
+
+import javax.xml.namespace.QName;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.apache.poi.ooxml.POIXMLTypeLoader.DEFAULT_XML_OPTIONS;
+
+/**
+ * Adds pictures to the runs of a document, identified by the hash of their content.
+ *
+ * The picture data is added to a part (main document, header or footer) on its first use in that part only,
+ * so every further occurrence neither adds another media part nor compares the bytes with the pictures
+ * already in the document. The drawing XML of a picture in a given size is parsed once per part and copied
+ * for every further occurrence. Drawing ids continue after the largest id already in the document, which is
+ * looked up once on the first picture.
+ */
+public class PictureInserter {
+    private static final String WP_NS = "http://schemas.openxmlformats.org/drawingml/2006/wordprocessingDrawing";
+    private static final String INLINE_XML = "<wp:inline distT=\"0\" distB=\"0\" distL=\"0\" distR=\"0\""
+            + " xmlns:wp=\"http://schemas.openxmlformats.org/drawingml/2006/wordprocessingDrawing\""
+            + " xmlns:a=\"http://schemas.openxmlformats.org/drawingml/2006/main\""
+            + " xmlns:pic=\"http://schemas.openxmlformats.org/drawingml/2006/picture\""
+            + " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+            + "<wp:extent cx=\"%1$d\" cy=\"%2$d\"/>"
+            + "<wp:docPr id=\"0\" name=\"Picture\"/>"
+            + "<wp:cNvGraphicFramePr><a:graphicFrameLocks noChangeAspect=\"1\"/></wp:cNvGraphicFramePr>"
+            + "<a:graphic><a:graphicData uri=\"http://schemas.openxmlformats.org/drawingml/2006/picture\">"
+            + "<pic:pic><pic:nvPicPr><pic:cNvPr id=\"0\" name=\"Picture\"/><pic:cNvPicPr/></pic:nvPicPr>"
+            + "<pic:blipFill><a:blip r:embed=\"%3$s\"/><a:stretch><a:fillRect/></a:stretch></pic:blipFill>"
+            + "<pic:spPr><a:xfrm><a:off x=\"0\" y=\"0\"/><a:ext cx=\"%1$d\" cy=\"%2$d\"/></a:xfrm>"
+            + "<a:prstGeom prst=\"rect\"><a:avLst/></a:prstGeom></pic:spPr>"
+            + "</pic:pic></a:graphicData></a:graphic></wp:inline>";
+
+    private final ModifiedPartCollector modifiedParts;
+
+    /**
+     * The relationship id of each picture by part and content hash
+     */
+    private final Map<POIXMLDocumentPart, Map<String, String>> relationIds = new IdentityHashMap<>();
+
+    /**
+     * The parsed drawing of each picture by part, content hash and size
+     */
+    private final Map<POIXMLDocumentPart, Map<String, CTInline>> inlines = new IdentityHashMap<>();
+
+    /**
+     * The next free drawing id of each document
+     */
+    private final Map<XWPFDocument, long[]> nextDrawingIds = new IdentityHashMap<>();
+
+    /**
+     * @param modifiedParts receives the parts a picture relationship is added to
+     */
+    public PictureInserter(ModifiedPartCollector modifiedParts) {
+        this.modifiedParts = modifiedParts;
+    }
+
+    /**
+     * Adds a picture to an empty run.
+     *
+     * @param run         the run to hold the picture
+     * @param hash        the content hash identifying the picture
+     * @param data        the picture content
+     * @param pictureType the picture type, one of the PICTURE_TYPE constants of Document
+     * @param width       the displayed width in EMU
+     * @param height      the displayed height in EMU
+     * @throws IllegalArgumentException if the picture cannot be added to the part containing the run
+     */
+    public void insert(XWPFRun run, String hash, byte[] data, int pictureType, long width, long height) {
+        IRunBody parent = run.getParent();
+        POIXMLDocumentPart part = parent.getPart();
+        Map<String, CTInline> partInlines = inlines.computeIfAbsent(part, p -> new HashMap<>());
+        String key = hash + "@" + width + "x" + height;
+        CTInline prototype = partInlines.get(key);
+        if (prototype == null) {
+            prototype = parseInline(relationId(part, hash, data, pictureType), width, height);
+            partInlines.put(key, prototype);
+        }
+
+        CTInline inline = run.getCTR().addNewDrawing().addNewInline();
+        inline.set(prototype);
+        long id = nextDrawingId(parent.getDocument());
+        inline.getDocPr().setId(id);
+        inline.getDocPr().setName("Picture " + id);
+    }
+
+    private String relationId(POIXMLDocumentPart part, String hash, byte[] data, int pictureType) {
+        Map<String, String> partIds = relationIds.computeIfAbsent(part, p -> new HashMap<>());
+        String id = partIds.get(hash);
+        if (id == null) {
+            try {
+                if (part instanceof XWPFDocument) {
+                    id = ((XWPFDocument) part).addPictureData(data, pictureType);
+                } else if (part instanceof XWPFHeaderFooter) {
+                    id = ((XWPFHeaderFooter) part).addPictureData(data, pictureType);
+                } else {
+                    throw new IllegalArgumentException("Cannot add a picture to " + part.getPackagePart().getPartName());
+                }
+            } catch (InvalidFormatException e) {
+                throw new IllegalArgumentException("Could not add the picture", e);
+            }
+            partIds.put(hash, id);
+            modifiedParts.addRelationshipChange(part);
+        }
+        return id;
+    }
+
+    private long nextDrawingId(XWPFDocument document) {
+        long[] next = nextDrawingIds.computeIfAbsent(document, d -> new long[]{maxDrawingId(d) + 1});
+        return next[0]++;
+    }
+
+    /**
+     * Finds the largest drawing id in the body, headers and footers of the document
+     */
+    private static long maxDrawingId(XWPFDocument document) {
+        long max = maxDrawingId(document.getDocument());
+        for (XWPFHeader header : document.getHeaderList()) {
+            max = Math.max(max, maxDrawingId(header._getHdrFtr()));
+        }
+        for (XWPFFooter footer : document.getFooterList()) {
+            max = Math.max(max, maxDrawingId(footer._getHdrFtr()));
+        }
+        return max;
+    }
+
+    private static long maxDrawingId(XmlObject xml) {
+        long max = 0;
+        QName idName = new QName("", "id");
+        for (XmlObject docPr : xml.selectPath("declare namespace wp='" + WP_NS + "' .//wp:docPr")) {
+            try (XmlCursor cursor = docPr.newCursor()) {
+                String id = cursor.getAttributeText(idName);
+                try {
+                    max = Math.max(max, id == null ? 0 : Long.parseLong(id.trim()));
+                } catch (NumberFormatException e) {
+                    // Not a valid id, cannot collide with a number
+                }
+            }
+        }
+        return max;
+    }
+
+    private static CTInline parseInline(String relationId, long width, long height) {
+        try {
+            // Parse the wp:inline element as the inline itself rather than as its content
+            XmlOptions options = new XmlOptions(DEFAULT_XML_OPTIONS);
+            options.setLoadReplaceDocumentElement(null);
+            return CTInline.Factory.parse(String.format(Locale.ROOT, INLINE_XML, width, height, relationId), options);
+        } catch (XmlException e) {
+            throw new IllegalStateException("Could not create the drawing of the picture", e);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package io.github.yexey.wordreplacer.internal.model;
+
+import io.github.yexey.wordreplacer.internal.index.ParagraphChangeListener;
+import io.github.yexey.wordreplacer.internal.utils.RunUtils;
+import org.apache.poi.xwpf.usermodel.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-document cache of paragraph texts, shared by all visitors of a WordReplacer.
+ *
+ * The text and run offset table of a paragraph are built the first time the paragraph is visited and
+ * then reused by every later operation. Edits made through {@link #replace} update the cached entry
+ * incrementally instead of rebuilding it, and are reported to the registered listeners.
+ *
+ * A paragraph edited directly through POI makes its entry stale. {@link #get} rebuilds an entry whose run
+ * count no longer matches, and {@link #replace} checks the runs it edits against the entry first: on a
+ * mismatch it rebuilds the entry and leaves the paragraph untouched rather than editing at wrong offsets.
+ *
+ * The combined text of every header, footer and top-level table is cached as well, so operations can
+ * skip a whole container that cannot match. It is rebuilt after a paragraph in the container was edited, and
+ * when the number of paragraphs or runs in the container changed, e.g. after a direct edit through POI.
+ */
+public class DocumentTextModel {
+    private final Map<XWPFParagraph, ParagraphText> paragraphs = new IdentityHashMap<>();
+    private final Map<Object, ContainerText> containers = new IdentityHashMap<>();
+    private final List<ParagraphChangeListener> listeners = new ArrayList<>();
+
+    public void addListener(ParagraphChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Returns the text of a paragraph, building it on first access and rebuilding it when runs were
+     * added or removed around the text model.
+     *
+     * @param paragraph the paragraph
+     * @return the cached text and run offsets
+     */
+    public ParagraphText get(XWPFParagraph paragraph) {
+        ParagraphText text = paragraphs.get(paragraph);
+        if (text == null) {
+            text = ParagraphText.of(paragraph);
+            paragraphs.put(paragraph, text);
+        } else if (text.getRunCount() != paragraph.getRuns().size()) {
+            text = reload(paragraph, text);
+        }
+        return text;
+    }
+
+    /**
+     * Returns the text of all paragraphs of a table including its nested tables, one paragraph per line.
+     *
+     * @param table the table
+     * @return the cached text of the table
+     */
+    public String getText(XWPFTable table) {
+        int[] size = new int[2];
+        countTable(table, size);
+        ContainerText text = containers.get(table);
+        if (text == null || !text.hasSize(size)) {
+            StringBuilder builder = new StringBuilder();
+            appendTable(table, builder);
+            text = new ContainerText(builder.toString(), size);
+            containers.put(table, text);
+        }
+        return text.text;
+    }
+
+    /**
+     * Returns the text of all paragraphs of a header or footer including its tables, one paragraph per line.
+     *
+     * @param headerFooter the header or footer
+     * @return the cached text of the header or footer
+     */
+    public String getText(XWPFHeaderFooter headerFooter) {
+        int[] size = new int[2];
+        countParagraphs(headerFooter.getParagraphs(), size);
+        for (XWPFTable table : headerFooter.getTables()) {
+            countTable(table, size);
+        }
+        ContainerText text = containers.get(headerFooter);
+        if (text == null || !text.hasSize(size)) {
+            StringBuilder builder = new StringBuilder();
+            appendParagraphs(headerFooter.getParagraphs(), builder);
+            for (XWPFTable table : headerFooter.getTables()) {
+                appendTable(table, builder);
+            }
+            text = new ContainerText(builder.toString(), size);
+            containers.put(headerFooter, text);
+        }
+        return text.text;
+    }
+
+    /**
+     * Replaces the text range [start, end) of the paragraph, which may span multiple runs.
+     * The replacement keeps the formatting of the run the range starts in. An empty range is filled in
+     * at the end of the run ending at its offset, e.g. to write over an empty value again.
+     *
+     * @param paragraph   the paragraph
+     * @param start       the start offset of the range in the paragraph text
+     * @param end         the end offset of the range in the paragraph text
+     * @param replacement the text to replace the range with
+     * @return true if the range was replaced, false if it lies outside the paragraph's runs or the cached
+     *         text was stale, in which case it has been rebuilt and the offsets must be looked up again
+     */
+    public boolean replace(XWPFParagraph paragraph, int start, int end, String replacement) {
+        ParagraphText text = get(paragraph);
+        int startRunIndex = start < end ? text.runContaining(start) : text.firstRunEndingAtLeast(start);
+        int endRunIndex = text.firstRunEndingAtLeast(end);
+        if (startRunIndex == -1 || endRunIndex == -1) {
+            return false;
+        }
+        if (!text.matchesRuns(paragraph.getRuns(), startRunIndex, endRunIndex)) {
+            reload(paragraph, text);
+            return false;
+        }
+
+        int[] positions = text.getRunEndPositions();
+        String value = String.valueOf(replacement);
+        if (!RunUtils.replaceRuns(paragraph, startRunIndex, start - positions[startRunIndex],
+                endRunIndex, end - positions[endRunIndex], value)) {
+            return false;
+        }
+
+        ParagraphText updated = text.replace(startRunIndex, endRunIndex, start, end, value);
+        paragraphs.put(paragraph, updated);
+        invalidateContainers(paragraph);
+        for (ParagraphChangeListener listener : listeners) {
+            listener.rangeReplaced(paragraph, start, end, value.length());
+            listener.paragraphChanged(paragraph, text.getText(), updated.getText());
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the text range [start, end) of the paragraph with an empty run of its own, e.g. to hold a picture.
+     * The new run keeps the formatting of the run the range starts in.
+     *
+     * @param paragraph the paragraph
+     * @param start     the start offset of the range in the paragraph text
+     * @param end       the end offset of the range in the paragraph text
+     * @return the new run, or null if the range lies outside the paragraph's runs or the cached text was stale
+     */
+    public XWPFRun replaceWithRun(XWPFParagraph paragraph, int start, int end) {
+        ParagraphText text = get(paragraph);
+        int startRunIndex = text.runContaining(start);
+        int endRunIndex = text.firstRunEndingAtLeast(end);
+        if (startRunIndex == -1 || endRunIndex == -1) {
+            return null;
+        }
+        if (!text.matchesRuns(paragraph.getRuns(), startRunIndex, endRunIndex)) {
+            reload(paragraph, text);
+            return null;
+        }
+
+        int[] positions = text.getRunEndPositions();
+        int startInRun = start - positions[startRunIndex];
+        if (!RunUtils.replaceRuns(paragraph, startRunIndex, startInRun,
+                endRunIndex, end - positions[endRunIndex], "")) {
+            return null;
+        }
+        XWPFRun run = RunUtils.splitRun(paragraph, startRunIndex, startInRun);
+
+        // The runs were split, so the run end positions are rebuilt rather than shifted
+        ParagraphText updated = ParagraphText.of(paragraph);
+        paragraphs.put(paragraph, updated);
+        invalidateContainers(paragraph);
+        for (ParagraphChangeListener listener : listeners) {
+            listener.rangeReplaced(paragraph, start, end, 0);
+            listener.paragraphChanged(paragraph, text.getText(), updated.getText());
+        }
+        return run;
+    }
+
+    /**
+     * Forgets a paragraph that is about to be removed from the document and notifies the listeners.
+     *
+     * @param paragraph the paragraph being removed
+     */
+    public void remove(XWPFParagraph paragraph) {
+        ParagraphText text = paragraphs.remove(paragraph);
+        invalidateContainers(paragraph);
+        String oldText = text != null ? text.getText() : RunUtils.text(paragraph.getRuns());
+        for (ParagraphChangeListener listener : listeners) {
+            listener.paragraphRemoved(paragraph, oldText);
+        }
+    }
+
+    /**
+     * Rebuilds the stale entry of a paragraph edited around the text model and notifies the listeners
+     */
+    private ParagraphText reload(XWPFParagraph paragraph, ParagraphText stale) {
+        ParagraphText text = ParagraphText.of(paragraph);
+        paragraphs.put(paragraph, text);
+        invalidateContainers(paragraph);
+        for (ParagraphChangeListener listener : listeners) {
+            listener.paragraphReloaded(paragraph, stale.getText(), text.getText());
+        }
+        return text;
+    }
+
+    /**
+     * Forgets the cached text of the tables, header or footer containing the paragraph
+     */
+    private void invalidateContainers(XWPFParagraph paragraph) {
+        IBody body = paragraph.getBody();
+        while (body instanceof XWPFTableCell) {
+            XWPFTable table = ((XWPFTableCell) body).getTableRow().getTable();
+            containers.remove(table);
+            body = table.getBody();
+        }
+        if (body instanceof XWPFHeaderFooter) {
+            containers.remove(body);
+        }
+    }
+
+    private void appendTable(XWPFTable table, StringBuilder builder) {
+        for (XWPFTableRow row : table.getRows()) {
+            for (XWPFTableCell cell : row.getTableCells()) {
+                appendParagraphs(cell.getParagraphs(), builder);
+                for (XWPFTable nestedTable : cell.getTables()) {
+                    appendTable(nestedTable, builder);
+                }
+            }
+        }
+    }
+
+    private void appendParagraphs(List<XWPFParagraph> paragraphs, StringBuilder builder) {
+        for (XWPFParagraph paragraph : paragraphs) {
+            builder.append(get(paragraph).getText()).append('\n');
+        }
+    }
+
+    /**
+     * Adds the number of paragraphs and runs of a table including its nested tables to size
+     */
+    private static void countTable(XWPFTable table, int[] size) {
+        for (XWPFTableRow row : table.getRows()) {
+            for (XWPFTableCell cell : row.getTableCells()) {
+                countParagraphs(cell.getParagraphs(), size);
+                for (XWPFTable nestedTable : cell.getTables()) {
+                    countTable(nestedTable, size);
+                }
+            }
+        }
+    }
+
+    private static void countParagraphs(List<XWPFParagraph> paragraphs, int[] size) {
+        size[0] += paragraphs.size();
+        for (XWPFParagraph paragraph : paragraphs) {
+            size[1] += paragraph.getRuns().size();
+        }
+    }
+
+    /**
+     * The cached text of a container with the number of paragraphs and runs it was built from
+     */
+    private static class ContainerText {
+        private final String text;
+        private final int paragraphCount;
+        private final int runCount;
+
+        private ContainerText(String text, int[] size) {
+            this.text = text;
+            this.paragraphCount = size[0];
+            this.runCount = size[1];
+        }
+
+        private boolean hasSize(int[] size) {
+            return paragraphCount == size[0] && runCount == size[1];
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.yexey.wordreplacer.internal.model;
+
+import io.github.yexey.wordreplacer.internal.utils.RunUtils;
+import lombok.Getter;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+
+import java.util.List;
+
+/**
+ * The concatenated text of a paragraph's runs together with the end position of every run
+ */
+@Getter
+public class ParagraphText {
+    private final String text;
+
+    /**
+     * Entry {@code i + 1} holds the end offset of run {@code i}, entry 0 is always 0
+     */
+    private final int[] runEndPositions;
+
+    public ParagraphText(String text, int[] runEndPositions) {
+        this.text = text;
+        this.runEndPositions = runEndPositions;
+    }
+
+    public static ParagraphText of(XWPFParagraph paragraph) {
+        List<XWPFRun> runs = paragraph.getRuns();
+        return new ParagraphText(RunUtils.text(runs), RunUtils.runEndPositions(runs));
+    }
+
+    public int getRunCount() {
+        return runEndPositions.length - 1;
+    }
+
+    /**
+     * Checks that the paragraph still has the cached number of runs and that the given runs still hold
+     * the cached text, i.e. that the paragraph was not edited around the text model in that range.
+     *
+     * @param runs     the current runs of the paragraph
+     * @param firstRun the first run to check
+     * @param lastRun  the last run to check
+     * @return true if the runs match the cached entry
+     */
+    public boolean matchesRuns(List<XWPFRun> runs, int firstRun, int lastRun) {
+        if (runs.size() != getRunCount()) {
+            return false;
+        }
+        for (int i = firstRun; i <= lastRun; i++) {
+            String runText = runs.get(i).getText(0);
+            int length = runText != null ? runText.length() : 0;
+            if (length != runEndPositions[i + 1] - runEndPositions[i]
+                    || length > 0 && !text.startsWith(runText, runEndPositions[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the run containing the character at the given offset, i.e. the first run ending after it.
+     *
+     * @param offset an offset into the text
+     * @return the run index, or -1 if the offset is beyond the text
+     */
+    public int runContaining(int offset) {
+        return firstRunEndingAtLeast(offset + 1);
+    }
+
+    /**
+     * Finds the first run ending at or after the given offset.
+     *
+     * @param offset an offset into the text
+     * @return the run index, or -1 if the offset is beyond the text
+     */
+    public int firstRunEndingAtLeast(int offset) {
+        int low = 0;
+        int high = getRunCount() - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (runEndPositions[mid + 1] >= offset) {
+                result = mid;
+                high = mid - 1;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the text after the range [start, end) has been replaced and the runs it spans have been
+     * merged into the run it starts in, as done by {@link RunUtils#replaceRuns}.
+     *
+     * @param startRunIndex the run the range starts in
+     * @param endRunIndex   the run the range ends in
+     * @param start         the start offset of the range
+     * @param end           the end offset of the range
+     * @param replacement   the text replacing the range
+     * @return the updated paragraph text
+     */
+    public ParagraphText replace(int startRunIndex, int endRunIndex, int start, int end, String replacement) {
+        String newText = text.substring(0, start) + replacement + text.substring(end);
+        int delta = newText.length() - text.length();
+        int removedRuns = endRunIndex - startRunIndex;
+
+        int[] positions = new int[runEndPositions.length - removedRuns];
+        System.arraycopy(runEndPositions, 0, positions, 0, startRunIndex + 1);
+        for (int i = startRunIndex + 1; i < positions.length; i++) {
+            positions[i] = runEndPositions[i + removedRuns] + delta;
+        }
+        return new ParagraphText(newText, positions);
+    }
+}
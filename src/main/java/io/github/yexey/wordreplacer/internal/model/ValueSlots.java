@@ -0,0 +1,154 @@
+package io.github.yexey.wordreplacer.internal.model;
+
+import io.github.yexey.wordreplacer.internal.index.ParagraphChangeListener;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers where the value of each placeholder was written, so it can be changed later without
+ * searching the document again.
+ *
+ * A slot is the range of a paragraph's text holding a replacement value. Edits through the text model
+ * shift the slots behind them in the same paragraph; a slot overlapped by another edit, or in a removed
+ * paragraph, is dropped because its value is gone. So are the slots of a paragraph edited directly through POI,
+ * once the text model notices.
+ */
+public class ValueSlots implements ParagraphChangeListener {
+
+    private static class Slot {
+        private final XWPFParagraph paragraph;
+        private final String placeholder;
+        private int start;
+        private int end;
+
+        private Slot(XWPFParagraph paragraph, String placeholder, int start, int end) {
+            this.paragraph = paragraph;
+            this.placeholder = placeholder;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private final Map<String, List<Slot>> byPlaceholder = new HashMap<>();
+    private final Map<XWPFParagraph, List<Slot>> byParagraph = new IdentityHashMap<>();
+
+    /**
+     * The value last written for each placeholder
+     */
+    private final Map<String, String> values = new HashMap<>();
+
+    /**
+     * The slot being rewritten by {@link #update}, the only edit a slot survives
+     */
+    private Slot updating;
+
+    /**
+     * Records a value written in place of a placeholder.
+     *
+     * @param paragraph   the paragraph the value was written to
+     * @param placeholder the replaced placeholder
+     * @param start       the start offset of the value in the paragraph text
+     * @param value       the written value
+     */
+    public void record(XWPFParagraph paragraph, String placeholder, int start, String value) {
+        String text = String.valueOf(value);
+        Slot slot = new Slot(paragraph, placeholder, start, start + text.length());
+        byPlaceholder.computeIfAbsent(placeholder, p -> new ArrayList<>()).add(slot);
+        byParagraph.computeIfAbsent(paragraph, p -> new ArrayList<>()).add(slot);
+        values.put(placeholder, value);
+    }
+
+    /**
+     * @param placeholder the placeholder
+     * @return true if a value of the placeholder was written and is still in the document
+     */
+    public boolean contains(String placeholder) {
+        List<Slot> slots = byPlaceholder.get(placeholder);
+        return slots != null && !slots.isEmpty();
+    }
+
+    /**
+     * @param placeholder the placeholder
+     * @return the value last written for the placeholder, null if none was written
+     */
+    public String getValue(String placeholder) {
+        return values.get(placeholder);
+    }
+
+    /**
+     * Writes a new value into every slot of the placeholder.
+     *
+     * @param textModel   the text model of the document, which reports the edits back to these slots
+     * @param placeholder the placeholder
+     * @param value       the new value
+     * @return the number of slots rewritten
+     */
+    public int update(DocumentTextModel textModel, String placeholder, String value) {
+        List<Slot> slots = byPlaceholder.get(placeholder);
+        if (slots == null) {
+            return 0;
+        }
+        int updated = 0;
+        for (Slot slot : new ArrayList<>(slots)) {
+            updating = slot;
+            try {
+                if (textModel.replace(slot.paragraph, slot.start, slot.end, value)) {
+                    updated++;
+                }
+            } finally {
+                updating = null;
+            }
+        }
+        values.put(placeholder, value);
+        return updated;
+    }
+
+    @Override
+    public void rangeReplaced(XWPFParagraph paragraph, int start, int end, int length) {
+        List<Slot> slots = byParagraph.get(paragraph);
+        if (slots == null) {
+            return;
+        }
+        int delta = length - (end - start);
+        for (Iterator<Slot> iterator = slots.iterator(); iterator.hasNext(); ) {
+            Slot slot = iterator.next();
+            if (slot == updating) {
+                slot.end = start + length;
+            } else if (slot.start >= end) {
+                slot.start += delta;
+                slot.end += delta;
+            } else if (slot.end > start) {
+                // Overwritten by another edit
+                iterator.remove();
+                byPlaceholder.get(slot.placeholder).remove(slot);
+            }
+        }
+    }
+
+    @Override
+    public void paragraphChanged(XWPFParagraph paragraph, String oldText, String newText) {
+        // The slots were adjusted by rangeReplaced
+    }
+
+    @Override
+    public void paragraphReloaded(XWPFParagraph paragraph, String oldText, String newText) {
+        // Edited around the text model, the slot offsets can no longer be trusted
+        paragraphRemoved(paragraph, oldText);
+    }
+
+    @Override
+    public void paragraphRemoved(XWPFParagraph paragraph, String oldText) {
+        List<Slot> slots = byParagraph.remove(paragraph);
+        if (slots != null) {
+            for (Slot slot : slots) {
+                byPlaceholder.get(slot.placeholder).remove(slot);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.yexey.wordreplacer.internal.packaging;
+
+import io.github.yexey.wordreplacer.internal.index.ParagraphChangeListener;
+import org.apache.poi.ooxml.POIXMLDocumentPart;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Collects the document parts (main document, headers, footers) containing a paragraph that was
+ * changed or removed through the text model, and the parts whose relationships changed.
+ */
+public class ModifiedPartCollector implements ParagraphChangeListener {
+    private final Set<POIXMLDocumentPart> parts = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<POIXMLDocumentPart> relationshipChanges = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    @Override
+    public void paragraphChanged(XWPFParagraph paragraph, String oldText, String newText) {
+        parts.add(paragraph.getPart());
+    }
+
+    @Override
+    public void paragraphRemoved(XWPFParagraph paragraph, String oldText) {
+        parts.add(paragraph.getPart());
+    }
+
+    /**
+     * Records a part modified other than through the text model.
+     *
+     * @param part the modified part
+     */
+    public void add(POIXMLDocumentPart part) {
+        parts.add(part);
+    }
+
+    /**
+     * Records a part that got a new relationship, e.g. to an added picture.
+     *
+     * @param part the part whose relationships changed
+     */
+    public void addRelationshipChange(POIXMLDocumentPart part) {
+        relationshipChanges.add(part);
+    }
+
+    /**
+     * @return the modified parts, in no particular order
+     */
+    public Set<POIXMLDocumentPart> getParts() {
+        return Collections.unmodifiableSet(parts);
+    }
+
+    /**
+     * @return the parts whose relationships changed, in no particular order
+     */
+    public Set<POIXMLDocumentPart> getRelationshipChanges() {
+        return Collections.unmodifiableSet(relationshipChanges);
+    }
+}
@@ -0,0 +1,320 @@
+package io.github.yexey.wordreplacer.internal.packaging;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.poi.ooxml.POIXMLDocumentPart;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.*;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFFooter;
+import org.apache.poi.xwpf.usermodel.XWPFHeader;
+import org.apache.xmlbeans.XmlOptions;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTDocument1;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.apache.poi.ooxml.POIXMLTypeLoader.DEFAULT_XML_OPTIONS;
+
+/**
+ * Writes an edited document by copying every unmodified part from the template ZIP as its original
+ * compressed entry, without inflating and deflating it again. Only the modified parts are serialized
+ * from the document model and compressed.
+ *
+ * The modified parts are serialized one after the other on the calling thread, since the XML model is
+ * not thread-safe, and then compressed concurrently on the executor. The ZIP is assembled on the calling
+ * thread in the entry order of the template.
+ *
+ * Pictures added to the document are written as new stored entries after the template entries, together
+ * with the relationships of the parts referring to them and a content types entry listing every part.
+ *
+ * This is only correct as long as the modified parts are the only differences between the document
+ * and the template, i.e. the document was loaded from the template and edited through a WordReplacer only.
+ */
+public class PassThroughPackageWriter {
+    private static final String W_NS = CTDocument1.type.getName().getNamespaceURI();
+    private static final String RELATIONSHIPS_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String CONTENT_TYPES_NS = "http://schemas.openxmlformats.org/package/2006/content-types";
+    private static final String CONTENT_TYPES_ENTRY = "[Content_Types].xml";
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private final int compressionLevel;
+    private final Executor executor;
+
+    /**
+     * @param compressionLevel the deflate level of the modified parts, {@link Deflater#NO_COMPRESSION} to store them
+     * @param executor         the executor compressing the modified parts
+     */
+    public PassThroughPackageWriter(int compressionLevel, Executor executor) {
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION
+                && (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+        this.executor = executor;
+    }
+
+    /**
+     * Writes the document to the output stream. The stream is not closed.
+     *
+     * @param document the document loaded from the template
+     * @param modified the parts of the document modified since it was loaded and those with new relationships
+     * @param template the template ZIP
+     * @param out      the stream to write the .docx to
+     * @throws IOException           if the template cannot be read or the document cannot be written
+     * @throws IllegalStateException if the document contains parts other than pictures the template does not have
+     */
+    public void write(XWPFDocument document, ModifiedPartCollector modified, ZipFile template,
+                      OutputStream out) throws IOException {
+        List<PackagePart> parts = parts(document);
+        List<PackagePart> addedPictures = addedPictures(parts, template);
+
+        // The entries replacing template entries, followed by the new entries in the order they are appended
+        Map<String, CompletableFuture<CompressedPart>> compressedParts = new LinkedHashMap<>();
+        for (POIXMLDocumentPart part : modified.getParts()) {
+            String name = entryName(part.getPackagePart().getPartName());
+            byte[] xml = save(part);
+            compressedParts.put(name, compressAsync(name, xml, compressionLevel));
+        }
+        for (POIXMLDocumentPart part : modified.getRelationshipChanges()) {
+            PackagePart packagePart = part.getPackagePart();
+            String name = entryName(PackagingURIHelper.getRelationshipPartName(packagePart.getPartName()));
+            byte[] xml = saveRelationships(packagePart);
+            compressedParts.put(name, compressAsync(name, xml, compressionLevel));
+        }
+        if (!addedPictures.isEmpty()) {
+            byte[] xml = saveContentTypes(parts);
+            compressedParts.put(CONTENT_TYPES_ENTRY, compressAsync(CONTENT_TYPES_ENTRY, xml, compressionLevel));
+            for (PackagePart picture : addedPictures) {
+                String name = entryName(picture.getPartName());
+                byte[] data;
+                try (InputStream in = picture.getInputStream()) {
+                    data = in.readAllBytes();
+                }
+                // Pictures are compressed already
+                compressedParts.put(name, compressAsync(name, data, Deflater.NO_COMPRESSION));
+            }
+        }
+
+        try (ZipArchiveOutputStream zipOut = new ZipArchiveOutputStream(CloseShieldOutputStream.wrap(out))) {
+            Enumeration<ZipArchiveEntry> templateEntries = template.getEntriesInPhysicalOrder();
+            while (templateEntries.hasMoreElements()) {
+                ZipArchiveEntry entry = templateEntries.nextElement();
+                CompletableFuture<CompressedPart> compressed = compressedParts.remove(entry.getName());
+                if (compressed == null) {
+                    try (InputStream raw = template.getRawInputStream(entry)) {
+                        zipOut.addRawArchiveEntry(entry, raw);
+                    }
+                } else {
+                    addCompressedPart(zipOut, compressed);
+                }
+            }
+            for (CompletableFuture<CompressedPart> compressed : compressedParts.values()) {
+                addCompressedPart(zipOut, compressed);
+            }
+            zipOut.finish();
+        }
+    }
+
+    private static List<PackagePart> parts(XWPFDocument document) throws IOException {
+        try {
+            return document.getPackage().getParts();
+        } catch (InvalidFormatException e) {
+            throw new IOException("Could not list the parts of the document", e);
+        }
+    }
+
+    /**
+     * Returns the pictures added to the document; any other part missing in the template cannot be written
+     */
+    private static List<PackagePart> addedPictures(List<PackagePart> parts, ZipFile template) {
+        List<PackagePart> added = new ArrayList<>();
+        for (PackagePart part : parts) {
+            if (template.getEntry(entryName(part.getPartName())) != null) {
+                continue;
+            }
+            if (part.isRelationshipPart() || !part.getContentType().startsWith("image/")) {
+                throw new IllegalStateException("Part " + part.getPartName() + " is not in the template, "
+                        + "the document must be written with XWPFDocument.write()");
+            }
+            added.add(part);
+        }
+        return added;
+    }
+
+    private CompletableFuture<CompressedPart> compressAsync(String name, byte[] data, int level) {
+        return CompletableFuture.supplyAsync(() -> compress(name, data, level), executor);
+    }
+
+    private static void addCompressedPart(ZipArchiveOutputStream zipOut, CompletableFuture<CompressedPart> compressed)
+            throws IOException {
+        CompressedPart part = join(compressed);
+        zipOut.addRawArchiveEntry(part.entry, new ByteArrayInputStream(part.data));
+    }
+
+    /**
+     * Compresses a serialized part and creates its entry with the sizes and checksum set
+     */
+    private static CompressedPart compress(String name, byte[] xml, int compressionLevel) {
+        CRC32 crc = new CRC32();
+        crc.update(xml);
+        ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setSize(xml.length);
+        entry.setCrc(crc.getValue());
+
+        byte[] compressed;
+        if (compressionLevel == Deflater.NO_COMPRESSION) {
+            entry.setMethod(ZipArchiveEntry.STORED);
+            compressed = xml;
+        } else {
+            entry.setMethod(ZipArchiveEntry.DEFLATED);
+            Deflater deflater = new Deflater(compressionLevel, true);
+            try {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(xml.length / 4 + 64);
+                try (DeflaterOutputStream deflaterOut = new DeflaterOutputStream(buffer, deflater)) {
+                    deflaterOut.write(xml);
+                }
+                compressed = buffer.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                deflater.end();
+            }
+        }
+        entry.setCompressedSize(compressed.length);
+        return new CompressedPart(entry, compressed);
+    }
+
+    private static CompressedPart join(CompletableFuture<CompressedPart> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Serializes the XML of a modified part the way its commit() would
+     */
+    private static byte[] save(POIXMLDocumentPart part) throws IOException {
+        XmlOptions options = new XmlOptions(DEFAULT_XML_OPTIONS);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        if (part instanceof XWPFDocument) {
+            options.setSaveSyntheticDocumentElement(new QName(W_NS, "document"));
+            ((XWPFDocument) part).getDocument().save(out, options);
+        } else if (part instanceof XWPFHeader) {
+            options.setSaveSyntheticDocumentElement(new QName(W_NS, "hdr"));
+            ((XWPFHeader) part)._getHdrFtr().save(out, options);
+        } else if (part instanceof XWPFFooter) {
+            options.setSaveSyntheticDocumentElement(new QName(W_NS, "ftr"));
+            ((XWPFFooter) part)._getHdrFtr().save(out, options);
+        } else {
+            throw new IllegalArgumentException("Cannot write modified part " + part.getPackagePart().getPartName());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Serializes the relationships of a part the way the package would when saving
+     */
+    private static byte[] saveRelationships(PackagePart part) throws IOException {
+        PackageRelationshipCollection relationships;
+        try {
+            relationships = part.getRelationships();
+        } catch (InvalidFormatException e) {
+            throw new IOException("Could not read the relationships of " + part.getPartName(), e);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4 * 1024);
+        try {
+            XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeStartElement("Relationships");
+            writer.writeDefaultNamespace(RELATIONSHIPS_NS);
+            for (PackageRelationship relationship : relationships) {
+                writer.writeEmptyElement("Relationship");
+                writer.writeAttribute("Id", relationship.getId());
+                writer.writeAttribute("Type", relationship.getRelationshipType());
+                if (relationship.getTargetMode() == TargetMode.EXTERNAL) {
+                    writer.writeAttribute("Target", relationship.getTargetURI().toString());
+                    writer.writeAttribute("TargetMode", "External");
+                } else {
+                    writer.writeAttribute("Target", PackagingURIHelper.relativizeURI(
+                            part.getPartName().getURI(), relationship.getTargetURI(), true).toString());
+                }
+            }
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not write the relationships of " + part.getPartName(), e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Serializes the content types with an override for every part, so no default of the template is needed
+     */
+    private static byte[] saveContentTypes(List<PackagePart> parts) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4 * 1024);
+        try {
+            XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeStartElement("Types");
+            writer.writeDefaultNamespace(CONTENT_TYPES_NS);
+            writer.writeEmptyElement("Default");
+            writer.writeAttribute("Extension", "rels");
+            writer.writeAttribute("ContentType", ContentTypes.RELATIONSHIPS_PART);
+            writer.writeEmptyElement("Default");
+            writer.writeAttribute("Extension", "xml");
+            writer.writeAttribute("ContentType", ContentTypes.PLAIN_OLD_XML);
+            for (PackagePart part : parts) {
+                if (!part.isRelationshipPart()) {
+                    writer.writeEmptyElement("Override");
+                    writer.writeAttribute("PartName", part.getPartName().getName());
+                    writer.writeAttribute("ContentType", part.getContentType());
+                }
+            }
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not write the content types", e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String entryName(PackagePartName partName) {
+        // Part names are absolute, ZIP entry names are not
+        return partName.getName().substring(1);
+    }
+
+    /**
+     * The entry of a modified part and its compressed content
+     */
+    private static class CompressedPart {
+        private final ZipArchiveEntry entry;
+        private final byte[] data;
+
+        private CompressedPart(ZipArchiveEntry entry, byte[] data) {
+            this.entry = entry;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.yexey.wordreplacer.internal.packaging;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.InputStreamStatistics;
+import org.apache.poi.openxml4j.util.ZipEntrySource;
+import org.apache.poi.openxml4j.util.ZipSecureFile;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+
+/**
+ * Lets POI open a package from a random-access ZIP.
+ *
+ * Only the central directory is read up front; an entry is inflated when POI reads its part, so parts that
+ * are never parsed, e.g. images and fonts, are not loaded into memory. Closing the source closes the ZIP.
+ *
+ * Entries are inflated under the same zip bomb limits POI applies to the files it opens itself, as configured
+ * in {@link ZipSecureFile}: the maximum entry size and, beyond the grace size, the minimum inflate ratio.
+ */
+public class RandomAccessZipSource implements ZipEntrySource {
+    private final ZipFile zip;
+    private boolean closed;
+
+    /**
+     * @param zip the .docx file, owned by this source from now on
+     */
+    public RandomAccessZipSource(ZipFile zip) {
+        this.zip = zip;
+    }
+
+    @Override
+    public Enumeration<? extends ZipArchiveEntry> getEntries() {
+        return zip.getEntries();
+    }
+
+    @Override
+    public ZipArchiveEntry getEntry(String path) {
+        return zip.getEntry(path);
+    }
+
+    @Override
+    public InputStream getInputStream(ZipArchiveEntry entry) throws IOException {
+        ZipLimits.checkSize(entry.getName(), entry.getSize());
+        return new ThresholdInputStream(zip.getInputStream(entry), entry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        zip.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Counts the inflated bytes of an entry and fails as soon as they exceed the limits
+     */
+    private static class ThresholdInputStream extends FilterInputStream {
+        private final ZipArchiveEntry entry;
+        private long count;
+
+        private ThresholdInputStream(InputStream in, ZipArchiveEntry entry) {
+            super(in);
+            this.entry = entry;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                advance(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                advance(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            advance(skipped);
+            return skipped;
+        }
+
+        private void advance(long bytes) throws IOException {
+            count += bytes;
+            long compressed = in instanceof InputStreamStatistics
+                    ? ((InputStreamStatistics) in).getCompressedCount() : entry.getCompressedSize();
+            ZipLimits.checkInflated(entry.getName(), compressed, count);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.yexey.wordreplacer.internal.packaging;
+
+import org.apache.poi.openxml4j.util.ZipSecureFile;
+
+import java.io.IOException;
+
+/**
+ * The zip bomb limits POI applies to the files it opens itself, as configured in {@link ZipSecureFile}:
+ * the maximum entry size and, beyond the grace size, the minimum inflate ratio.
+ */
+public class ZipLimits {
+
+    private ZipLimits() {
+    }
+
+    /**
+     * Checks the declared or inflated size of an entry against the maximum entry size.
+     *
+     * @param name the name of the entry
+     * @param size the size of the entry, or -1 if unknown
+     * @throws IOException if the entry exceeds the limit
+     */
+    public static void checkSize(String name, long size) throws IOException {
+        if (size > ZipSecureFile.getMaxEntrySize()) {
+            throw new IOException("Zip bomb detected! The file would exceed the max size of the expanded data "
+                    + "in the zip-file. Entry: " + name + ", limit: " + ZipSecureFile.getMaxEntrySize()
+                    + " bytes. Raise it with ZipSecureFile.setMaxEntrySize() if the file is not malicious.");
+        }
+    }
+
+    /**
+     * Checks the bytes inflated from an entry so far against the maximum entry size and the minimum inflate ratio.
+     *
+     * @param name       the name of the entry
+     * @param compressed the compressed bytes read so far, or -1 if unknown
+     * @param inflated   the bytes inflated so far
+     * @throws IOException if the entry exceeds one of the limits
+     */
+    public static void checkInflated(String name, long compressed, long inflated) throws IOException {
+        checkSize(name, inflated);
+        if (inflated <= ZipSecureFile.getGraceEntrySize() || compressed < 0) {
+            return;
+        }
+        double ratio = (double) compressed / inflated;
+        if (ratio < ZipSecureFile.getMinInflateRatio()) {
+            throw new IOException("Zip bomb detected! The file would exceed the max. ratio of compressed "
+                    + "file size to the size of the expanded data. Entry: " + name + ", ratio: " + ratio
+                    + ", limit: " + ZipSecureFile.getMinInflateRatio()
+                    + ". Lower it with ZipSecureFile.setMinInflateRatio() if the file is not malicious.");
+        }
+    }
+}
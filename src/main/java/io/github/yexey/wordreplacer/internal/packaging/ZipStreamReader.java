@@ -0,0 +1,359 @@
+package io.github.yexey.wordreplacer.internal.packaging;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipUtil;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Reads a ZIP stream entry by entry from the local file headers, like {@link java.util.zip.ZipInputStream},
+ * but can also copy the compressed data of an entry unchanged into a {@link ZipArchiveOutputStream}.
+ *
+ * An entry whose sizes are stored in its local header is copied as it is read. The sizes of an entry written
+ * with a data descriptor are only known after its data, so its compressed data is inflated to find its end
+ * and held in memory until it can be copied.
+ *
+ * Inflated data is checked against the zip bomb limits of {@link ZipLimits}.
+ */
+public class ZipStreamReader implements Closeable {
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int CENTRAL_FILE_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int DATA_DESCRIPTOR = 0x08074b50;
+    private static final int ZIP64_EXTRA_FIELD = 0x0001;
+
+    private static final int FLAG_ENCRYPTED = 1;
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final PushbackInputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final Inflater inflater = new Inflater(true);
+
+    private ZipArchiveEntry entry;
+    private boolean dataDescriptor;
+    private boolean zip64;
+    private boolean entryRead;
+    private boolean entriesSeen;
+
+    /**
+     * @param in the ZIP stream, positioned at its first local file header and not closed by this reader
+     */
+    public ZipStreamReader(InputStream in) {
+        this.in = new PushbackInputStream(in, BUFFER_SIZE);
+    }
+
+    /**
+     * Skips the rest of the current entry and reads the local file header of the next one.
+     *
+     * @return the next entry, or null once the central directory or the end of the stream is reached
+     * @throws IOException if the stream is not a ZIP or an entry cannot be read
+     */
+    public ZipArchiveEntry nextEntry() throws IOException {
+        if (entry != null && !entryRead) {
+            skipEntry();
+        }
+        entry = null;
+
+        byte[] header = new byte[30];
+        int read = in.readNBytes(header, 0, 4);
+        int signature = read == 4 ? intAt(header, 0) : 0;
+        if (read == 0 || signature == CENTRAL_FILE_HEADER || signature == END_OF_CENTRAL_DIRECTORY) {
+            return null;
+        }
+        if (signature != LOCAL_FILE_HEADER) {
+            throw new ZipException(entriesSeen ? "Unexpected record signature " + Integer.toHexString(signature)
+                    : "Not a ZIP file");
+        }
+        readFully(header, 4, 26);
+
+        int flags = shortAt(header, 6);
+        if ((flags & FLAG_ENCRYPTED) != 0) {
+            throw new ZipException("Encrypted ZIP entries are not supported");
+        }
+        byte[] name = new byte[shortAt(header, 26)];
+        readFully(name, 0, name.length);
+        byte[] extra = new byte[shortAt(header, 28)];
+        readFully(extra, 0, extra.length);
+
+        entry = new ZipArchiveEntry(new String(name, StandardCharsets.UTF_8));
+        entry.setMethod(shortAt(header, 8));
+        entry.setTime(ZipUtil.dosToJavaTime(uintAt(header, 10)));
+        dataDescriptor = (flags & FLAG_DATA_DESCRIPTOR) != 0;
+        zip64 = false;
+        long compressedSize = uintAt(header, 18);
+        long size = uintAt(header, 22);
+        for (int pos = 0; pos + 4 <= extra.length; pos += 4 + shortAt(extra, pos + 2)) {
+            if (shortAt(extra, pos) == ZIP64_EXTRA_FIELD) {
+                zip64 = true;
+                int field = pos + 4;
+                if (size == 0xFFFFFFFFL && field + 8 <= extra.length) {
+                    size = longAt(extra, field);
+                    field += 8;
+                }
+                if (compressedSize == 0xFFFFFFFFL && field + 8 <= extra.length) {
+                    compressedSize = longAt(extra, field);
+                }
+            }
+        }
+        if (!dataDescriptor) {
+            entry.setCrc(uintAt(header, 14));
+            entry.setCompressedSize(compressedSize);
+            entry.setSize(size);
+        } else if (entry.getMethod() != ZipArchiveEntry.DEFLATED) {
+            throw new ZipException("Entry " + entry.getName() + " has a data descriptor but is not deflated");
+        }
+        if (entry.getMethod() != ZipArchiveEntry.DEFLATED && entry.getMethod() != ZipArchiveEntry.STORED) {
+            throw new ZipException("Unsupported compression method " + entry.getMethod() + " of " + entry.getName());
+        }
+        entryRead = false;
+        entriesSeen = true;
+        return entry;
+    }
+
+    /**
+     * Returns the inflated data of the current entry. Closing the stream skips the rest of the entry.
+     *
+     * @return the data of the entry
+     * @throws IOException if the entry exceeds the maximum entry size
+     */
+    public InputStream getInputStream() throws IOException {
+        entryRead = true;
+        if (entry.getMethod() == ZipArchiveEntry.STORED) {
+            ZipLimits.checkSize(entry.getName(), entry.getSize());
+            return new StoredInputStream();
+        }
+        return new InflatingInputStream(null);
+    }
+
+    /**
+     * Writes the current entry to the output with its compressed data unchanged, keeping its compression
+     * method and level.
+     *
+     * @param out the ZIP stream to add the entry to
+     * @throws IOException if the entry cannot be read or written, or exceeds the zip bomb limits
+     */
+    public void copyRawEntry(ZipArchiveOutputStream out) throws IOException {
+        entryRead = true;
+        if (!dataDescriptor) {
+            ZipLimits.checkSize(entry.getName(), entry.getSize());
+            out.addRawArchiveEntry(entry, new StoredInputStream());
+            return;
+        }
+
+        RawBuffer raw = new RawBuffer();
+        try (InflatingInputStream data = new InflatingInputStream(raw)) {
+            data.transferTo(OutputStream.nullOutputStream());
+        }
+        out.addRawArchiveEntry(entry, raw.toInputStream());
+    }
+
+    /**
+     * Releases the inflater. The ZIP stream is left open.
+     */
+    @Override
+    public void close() {
+        inflater.end();
+    }
+
+    private void skipEntry() throws IOException {
+        try (InputStream data = entry.getMethod() == ZipArchiveEntry.STORED
+                ? new StoredInputStream() : new InflatingInputStream(null)) {
+            data.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * Reads the data descriptor following the data of the current entry and takes its CRC and sizes
+     */
+    private void readDataDescriptor() throws IOException {
+        byte[] descriptor = new byte[zip64 ? 24 : 16];
+        readFully(descriptor, 0, 4);
+        int offset = intAt(descriptor, 0) == DATA_DESCRIPTOR ? 4 : 0;
+        readFully(descriptor, 4, descriptor.length - 4 - (4 - offset));
+        entry.setCrc(uintAt(descriptor, offset));
+        entry.setCompressedSize(zip64 ? longAt(descriptor, offset + 4) : uintAt(descriptor, offset + 4));
+        entry.setSize(zip64 ? longAt(descriptor, offset + 12) : uintAt(descriptor, offset + 8));
+    }
+
+    private void readFully(byte[] b, int off, int len) throws IOException {
+        if (in.readNBytes(b, off, len) != len) {
+            throw new EOFException("Unexpected end of ZIP stream");
+        }
+    }
+
+    private static int shortAt(byte[] b, int pos) {
+        return (b[pos] & 0xFF) | (b[pos + 1] & 0xFF) << 8;
+    }
+
+    private static int intAt(byte[] b, int pos) {
+        return shortAt(b, pos) | shortAt(b, pos + 2) << 16;
+    }
+
+    private static long uintAt(byte[] b, int pos) {
+        return intAt(b, pos) & 0xFFFFFFFFL;
+    }
+
+    private static long longAt(byte[] b, int pos) {
+        return uintAt(b, pos) | uintAt(b, pos + 4) << 32;
+    }
+
+    /**
+     * The data of an entry whose compressed size is known, read as it is stored
+     */
+    private class StoredInputStream extends InputStream {
+        private long remaining = entry.getCompressedSize();
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read == -1) {
+                throw new EOFException("Unexpected end of ZIP entry " + entry.getName());
+            }
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            while (remaining > 0) {
+                if (read(buffer, 0, buffer.length) == -1) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The inflated data of a deflated entry. The compressed bytes not used by the inflater are pushed back,
+     * so the data of an entry with a data descriptor ends where the inflater finishes.
+     */
+    private class InflatingInputStream extends InputStream {
+        private final RawBuffer raw;
+        private long remaining = dataDescriptor ? -1 : entry.getCompressedSize();
+        private int filled;
+        private boolean dummyByte;
+        private boolean finished;
+
+        /**
+         * @param raw receives the compressed bytes read, or null
+         */
+        private InflatingInputStream(RawBuffer raw) {
+            this.raw = raw;
+            inflater.reset();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (finished) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            try {
+                while (true) {
+                    int inflated = inflater.inflate(b, off, len);
+                    if (inflated > 0) {
+                        ZipLimits.checkInflated(entry.getName(), inflater.getBytesRead(), inflater.getBytesWritten());
+                        return inflated;
+                    }
+                    if (inflater.finished() || inflater.needsDictionary()) {
+                        finish();
+                        return -1;
+                    }
+                    if (inflater.needsInput()) {
+                        fill();
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException("Invalid deflated data in " + entry.getName() + ": " + e.getMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            while (!finished) {
+                if (read(buffer, 0, buffer.length) == -1) {
+                    return;
+                }
+            }
+        }
+
+        private void fill() throws IOException {
+            int len = remaining < 0 ? BUFFER_SIZE : (int) Math.min(BUFFER_SIZE, remaining);
+            filled = len > 0 ? in.read(buffer, 0, len) : -1;
+            if (filled == -1) {
+                if (remaining != 0 || dummyByte) {
+                    throw new EOFException("Unexpected end of ZIP entry " + entry.getName());
+                }
+                // A raw deflate stream may need one byte past its end to finish
+                dummyByte = true;
+                buffer[0] = 0;
+                inflater.setInput(buffer, 0, 1);
+                filled = 0;
+                return;
+            }
+            if (remaining > 0) {
+                remaining -= filled;
+            }
+            if (raw != null) {
+                raw.write(buffer, 0, filled);
+            }
+            inflater.setInput(buffer, 0, filled);
+        }
+
+        private void finish() throws IOException {
+            finished = true;
+            if (!dataDescriptor) {
+                return;
+            }
+            int unused = inflater.getRemaining();
+            if (unused > 0) {
+                in.unread(buffer, filled - unused, unused);
+                if (raw != null) {
+                    raw.truncate(unused);
+                }
+            }
+            readDataDescriptor();
+            if (entry.getCompressedSize() != inflater.getBytesRead() || entry.getSize() != inflater.getBytesWritten()) {
+                throw new ZipException("Data descriptor of " + entry.getName() + " does not match its data");
+            }
+        }
+    }
+
+    /**
+     * Collects the compressed data of an entry with a data descriptor
+     */
+    private static class RawBuffer extends ByteArrayOutputStream {
+
+        private void truncate(int bytes) {
+            count -= bytes;
+        }
+
+        private InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+}
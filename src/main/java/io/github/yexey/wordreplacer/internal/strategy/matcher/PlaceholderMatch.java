@@ -0,0 +1,36 @@
+package io.github.yexey.wordreplacer.internal.strategy.matcher;
+
+import lombok.Getter;
+
+/**
+ * A single placeholder occurrence within a text
+ */
+@Getter
+public class PlaceholderMatch {
+    /**
+     * Index of the matched placeholder within the matcher's placeholder list
+     */
+    private final int placeholderId;
+
+    /**
+     * The matched placeholder text
+     */
+    private final String placeholder;
+
+    /**
+     * Start offset (inclusive) of the occurrence
+     */
+    private final int start;
+
+    /**
+     * End offset (exclusive) of the occurrence
+     */
+    private final int end;
+
+    public PlaceholderMatch(int placeholderId, String placeholder, int start, int end) {
+        this.placeholderId = placeholderId;
+        this.placeholder = placeholder;
+        this.start = start;
+        this.end = end;
+    }
+}
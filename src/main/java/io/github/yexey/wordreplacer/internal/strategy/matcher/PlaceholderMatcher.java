@@ -0,0 +1,11 @@
+package io.github.yexey.wordreplacer.internal.strategy.matcher;
+
+import java.util.List;
+
+/**
+ * Interface for finding several placeholders in a text at once
+ */
+public interface PlaceholderMatcher {
+    List<PlaceholderMatch> findAll(CharSequence text);
+    boolean matchesAny(CharSequence text);
+}
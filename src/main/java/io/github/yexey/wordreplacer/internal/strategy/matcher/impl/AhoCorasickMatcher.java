@@ -0,0 +1,218 @@
+package io.github.yexey.wordreplacer.internal.strategy.matcher.impl;
+
+import io.github.yexey.wordreplacer.internal.strategy.matcher.PlaceholderMatch;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.PlaceholderMatcher;
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * Matcher finding any number of fixed placeholders in a single scan of the text (Aho-Corasick automaton).
+ *
+ * Overlapping occurrences are resolved leftmost-longest, i.e. the occurrence starting first wins and
+ * among occurrences starting at the same offset the longest one wins.
+ */
+public class AhoCorasickMatcher implements PlaceholderMatcher {
+    private static final char[] NO_KEYS = new char[0];
+    private static final int[] NO_TARGETS = new int[0];
+
+    /**
+     * The placeholders, indexed by their placeholder id
+     */
+    @Getter
+    private final List<String> placeholders;
+
+    // Per state: sorted transition characters and their target states
+    private final char[][] keys;
+    private final int[][] targets;
+    // Per state: failure link, placeholder ending in this state (-1 for none),
+    // and the next state on the failure chain that ends a placeholder (-1 for none)
+    private final int[] fail;
+    private final int[] output;
+    private final int[] outputLink;
+
+    /**
+     * Builds the automaton for the given placeholders. Null, empty and duplicate placeholders are ignored.
+     *
+     * @param placeholders the placeholders to search for
+     */
+    public AhoCorasickMatcher(Collection<String> placeholders) {
+        List<String> distinct = new ArrayList<>();
+        for (String placeholder : new LinkedHashSet<>(placeholders)) {
+            if (placeholder != null && !placeholder.isEmpty()) {
+                distinct.add(placeholder);
+            }
+        }
+        this.placeholders = Collections.unmodifiableList(distinct);
+
+        // Build the trie
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> outputs = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        outputs.add(-1);
+        for (int id = 0; id < distinct.size(); id++) {
+            String placeholder = distinct.get(id);
+            int state = 0;
+            for (int i = 0; i < placeholder.length(); i++) {
+                Integer next = trie.get(state).get(placeholder.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    outputs.add(-1);
+                    trie.get(state).put(placeholder.charAt(i), next);
+                }
+                state = next;
+            }
+            outputs.set(state, id);
+        }
+
+        int size = trie.size();
+        keys = new char[size][];
+        targets = new int[size][];
+        fail = new int[size];
+        output = new int[size];
+        outputLink = new int[size];
+        for (int state = 0; state < size; state++) {
+            TreeMap<Character, Integer> transitions = trie.get(state);
+            keys[state] = transitions.isEmpty() ? NO_KEYS : new char[transitions.size()];
+            targets[state] = transitions.isEmpty() ? NO_TARGETS : new int[transitions.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+                keys[state][i] = transition.getKey();
+                targets[state][i] = transition.getValue();
+                i++;
+            }
+            output[state] = outputs.get(state);
+        }
+
+        // Compute failure and output links breadth first
+        Deque<Integer> queue = new ArrayDeque<>();
+        outputLink[0] = -1;
+        for (int child : targets[0]) {
+            fail[child] = 0;
+            outputLink[child] = -1;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < keys[state].length; i++) {
+                char c = keys[state][i];
+                int child = targets[state][i];
+                int f = fail[state];
+                while (f != 0 && next(f, c) == -1) {
+                    f = fail[f];
+                }
+                int target = next(f, c);
+                fail[child] = target == -1 || target == child ? 0 : target;
+                outputLink[child] = output[fail[child]] != -1 ? fail[child] : outputLink[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Finds all non-overlapping placeholder occurrences in the text, ordered by their start offset.
+     *
+     * @param text the text to search
+     * @return the occurrences, empty if there are none
+     */
+    @Override
+    public List<PlaceholderMatch> findAll(CharSequence text) {
+        List<PlaceholderMatch> candidates = null;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            int hit = output[state] != -1 ? state : outputLink[state];
+            while (hit != -1) {
+                if (candidates == null) {
+                    candidates = new ArrayList<>();
+                }
+                String placeholder = placeholders.get(output[hit]);
+                candidates.add(new PlaceholderMatch(output[hit], placeholder, i + 1 - placeholder.length(), i + 1));
+                hit = outputLink[hit];
+            }
+        }
+        if (candidates == null) {
+            return Collections.emptyList();
+        }
+
+        // Resolve overlaps leftmost-longest
+        candidates.sort(Comparator.comparingInt(PlaceholderMatch::getStart)
+                .thenComparing(Comparator.comparingInt(PlaceholderMatch::getEnd).reversed()));
+        List<PlaceholderMatch> matches = new ArrayList<>();
+        int lastEnd = 0;
+        for (PlaceholderMatch candidate : candidates) {
+            if (candidate.getStart() >= lastEnd) {
+                matches.add(candidate);
+                lastEnd = candidate.getEnd();
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Counts the occurrences of each placeholder in the text on its own, as repeated {@link String#indexOf}
+     * would: occurrences of the same placeholder do not overlap, occurrences of different placeholders may.
+     *
+     * @param text   the text to search
+     * @param counts the counters, indexed by placeholder id
+     * @param weight the amount to add to the counter of a placeholder per occurrence, e.g. -1 to subtract
+     */
+    public void countEach(CharSequence text, int[] counts, int weight) {
+        // End of the last counted occurrence per placeholder id, only needed once a placeholder occurs
+        Map<Integer, Integer> lastEnds = null;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            int hit = output[state] != -1 ? state : outputLink[state];
+            while (hit != -1) {
+                int id = output[hit];
+                if (lastEnds == null) {
+                    lastEnds = new HashMap<>();
+                }
+                Integer lastEnd = lastEnds.get(id);
+                if (lastEnd == null || i + 1 - placeholders.get(id).length() >= lastEnd) {
+                    counts[id] += weight;
+                    lastEnds.put(id, i + 1);
+                }
+                hit = outputLink[hit];
+            }
+        }
+    }
+
+    /**
+     * Checks whether the text contains any of the placeholders.
+     *
+     * @param text the text to search
+     * @return true if at least one placeholder occurs in the text
+     */
+    @Override
+    public boolean matchesAny(CharSequence text) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = step(state, text.charAt(i));
+            if (output[state] != -1 || outputLink[state] != -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int step(int state, char c) {
+        while (true) {
+            int next = next(state, c);
+            if (next != -1) {
+                return next;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int next(int state, char c) {
+        int i = Arrays.binarySearch(keys[state], c);
+        return i < 0 ? -1 : targets[state][i];
+    }
+}
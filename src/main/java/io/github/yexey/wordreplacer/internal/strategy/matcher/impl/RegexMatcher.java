@@ -0,0 +1,50 @@
+package io.github.yexey.wordreplacer.internal.strategy.matcher.impl;
+
+import io.github.yexey.wordreplacer.internal.strategy.matcher.PlaceholderMatch;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.PlaceholderMatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matcher finding placeholders described by a regular expression, e.g. {@code \{\{[A-Z_]+}}}.
+ *
+ * The placeholders are not known up front, so every match carries the placeholder id -1.
+ */
+public class RegexMatcher implements PlaceholderMatcher {
+    private final Pattern pattern;
+
+    public RegexMatcher(Pattern pattern) {
+        this.pattern = pattern;
+    }
+
+    @Override
+    public List<PlaceholderMatch> findAll(CharSequence text) {
+        Matcher matcher = pattern.matcher(text);
+        List<PlaceholderMatch> matches = null;
+        while (matcher.find()) {
+            if (matcher.start() == matcher.end()) {
+                continue;
+            }
+            if (matches == null) {
+                matches = new ArrayList<>();
+            }
+            matches.add(new PlaceholderMatch(-1, matcher.group(), matcher.start(), matcher.end()));
+        }
+        return matches == null ? Collections.emptyList() : matches;
+    }
+
+    @Override
+    public boolean matchesAny(CharSequence text) {
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            if (matcher.start() != matcher.end()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -10,4 +10,21 @@ public interface ReplacementTracker {
     void trackReplacement(String bookmark, String replacement, boolean success);
     Map<String, Integer> getReplacementCounts();
     List<String> getFailedReplacements();
-}
\ No newline at end of file
+
+    /**
+     * Tracks the result of replacing a bookmark throughout a document at once.
+     * A bookmark with zero hits is tracked as a failed replacement.
+     *
+     * @param bookmark    the bookmark that was replaced
+     * @param replacement the replacement text
+     * @param hits        the number of paragraphs the bookmark was replaced in
+     */
+    default void trackReplacements(String bookmark, String replacement, int hits) {
+        if (hits == 0) {
+            trackReplacement(bookmark, replacement, false);
+        }
+        for (int hit = 0; hit < hits; hit++) {
+            trackReplacement(bookmark, replacement, true);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.yexey.wordreplacer.internal.strategy.tracker.impl;
+
+import io.github.yexey.wordreplacer.internal.strategy.tracker.ReplacementTracker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe tracker for sharing replacement statistics between concurrently rendering threads.
+ *
+ * Every bookmark is assigned a numeric id the first time it is tracked. Hits are accumulated in a
+ * {@link LongAdder} per id, so concurrent renders updating the same bookmark do not contend on a lock
+ * or a boxed map entry. Only hit counts are stored; a bookmark that was tracked but never replaced is
+ * reported as failed.
+ */
+public class ConcurrentReplacementTracker implements ReplacementTracker {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final List<String> bookmarks = new ArrayList<>();
+    private volatile LongAdder[] counters = new LongAdder[16];
+
+    @Override
+    public void trackReplacement(String bookmark, String replacement, boolean success) {
+        trackHits(idOf(bookmark), success ? 1 : 0);
+    }
+
+    @Override
+    public void trackReplacements(String bookmark, String replacement, int hits) {
+        trackHits(idOf(bookmark), hits);
+    }
+
+    /**
+     * Returns the id of a bookmark, assigning a new one on first use.
+     * Callers tracking the same bookmarks repeatedly can resolve the ids once and use {@link #trackHits}.
+     *
+     * @param bookmark the bookmark
+     * @return the id of the bookmark
+     */
+    public int idOf(String bookmark) {
+        Integer id = ids.get(bookmark);
+        if (id != null) {
+            return id;
+        }
+        synchronized (bookmarks) {
+            id = ids.get(bookmark);
+            if (id == null) {
+                id = bookmarks.size();
+                if (id == counters.length) {
+                    counters = Arrays.copyOf(counters, id * 2);
+                }
+                counters[id] = new LongAdder();
+                bookmarks.add(bookmark);
+                // Publishing the id makes the counter visible to readers of the id
+                ids.put(bookmark, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Adds hits to the bookmark with the given id.
+     *
+     * @param id   the id returned by {@link #idOf(String)}
+     * @param hits the number of paragraphs the bookmark was replaced in
+     */
+    public void trackHits(int id, long hits) {
+        if (hits != 0) {
+            counters[id].add(hits);
+        }
+    }
+
+    /**
+     * Returns the number of hits tracked for a bookmark.
+     *
+     * @param bookmark the bookmark
+     * @return the number of hits, 0 if the bookmark has not been tracked
+     */
+    public long getHits(String bookmark) {
+        Integer id = ids.get(bookmark);
+        return id == null ? 0 : counters[id].sum();
+    }
+
+    @Override
+    public Map<String, Integer> getReplacementCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String bookmark : snapshot()) {
+            counts.put(bookmark, (int) getHits(bookmark));
+        }
+        return counts;
+    }
+
+    @Override
+    public List<String> getFailedReplacements() {
+        List<String> failed = new ArrayList<>();
+        for (String bookmark : snapshot()) {
+            if (getHits(bookmark) == 0) {
+                failed.add(bookmark);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Resets all hit counts to zero. Ids stay assigned.
+     */
+    public void reset() {
+        synchronized (bookmarks) {
+            for (int id = 0; id < bookmarks.size(); id++) {
+                counters[id].reset();
+            }
+        }
+    }
+
+    private List<String> snapshot() {
+        synchronized (bookmarks) {
+            return new ArrayList<>(bookmarks);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package io.github.yexey.wordreplacer.internal.strategy.tracker.impl;
+
+import io.github.yexey.wordreplacer.internal.strategy.tracker.ReplacementTracker;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracker ignoring all replacements, for rendering without any bookkeeping
+ */
+public final class NoOpReplacementTracker implements ReplacementTracker {
+    public static final NoOpReplacementTracker INSTANCE = new NoOpReplacementTracker();
+
+    private NoOpReplacementTracker() {
+    }
+
+    @Override
+    public void trackReplacement(String bookmark, String replacement, boolean success) {
+        // Nothing to track
+    }
+
+    @Override
+    public void trackReplacements(String bookmark, String replacement, int hits) {
+        // Nothing to track
+    }
+
+    @Override
+    public Map<String, Integer> getReplacementCounts() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public List<String> getFailedReplacements() {
+        return Collections.emptyList();
+    }
+}
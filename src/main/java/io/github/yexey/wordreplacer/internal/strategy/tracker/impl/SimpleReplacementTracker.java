@@ -9,6 +9,8 @@ import java.util.stream.Collectors;
 
 /**
  * Class for tracking replacement statistics
+ *
+ * Not thread-safe; use {@link ConcurrentReplacementTracker} to share statistics between threads.
  */
 public class SimpleReplacementTracker implements ReplacementTracker {
     private final Map<String, Integer> replacementCounts = new HashMap<>();
@@ -18,6 +20,11 @@ public class SimpleReplacementTracker implements ReplacementTracker {
         replacementCounts.put(bookmark, replacementCounts.getOrDefault(bookmark, 0) + (success ? 1 : 0));
     }
 
+    @Override
+    public void trackReplacements(String bookmark, String replacement, int hits) {
+        replacementCounts.merge(bookmark, hits, Integer::sum);
+    }
+
     @Override
     public Map<String, Integer> getReplacementCounts() {
         return new HashMap<>(replacementCounts);
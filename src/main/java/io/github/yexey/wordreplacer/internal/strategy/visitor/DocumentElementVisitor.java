@@ -12,4 +12,15 @@ public interface DocumentElementVisitor {
     void visitTableRow(XWPFTableRow row);
     void visitHeader(XWPFHeader header);
     void visitFooter(XWPFFooter footer);
+
+    /**
+     * Checks whether the combined text of a table, header or footer may contain anything this visitor
+     * acts on. Containers for which this returns false are not visited at all.
+     *
+     * @param text the text of all paragraphs of the container, one paragraph per line
+     * @return false if visiting the container cannot have any effect
+     */
+    default boolean mayMatch(String text) {
+        return true;
+    }
 }
\ No newline at end of file
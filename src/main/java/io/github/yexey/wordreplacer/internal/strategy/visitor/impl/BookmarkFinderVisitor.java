@@ -2,6 +2,7 @@ package io.github.yexey.wordreplacer.internal.strategy.visitor.impl;
 
 import lombok.Getter;
 import org.apache.poi.xwpf.usermodel.*;
+import io.github.yexey.wordreplacer.internal.model.DocumentTextModel;
 import io.github.yexey.wordreplacer.internal.strategy.visitor.DocumentElementVisitor;
 
 import static io.github.yexey.wordreplacer.internal.utils.BookmarkUtils.containsBookmark;
@@ -12,16 +13,22 @@ import static io.github.yexey.wordreplacer.internal.utils.BookmarkUtils.contains
  */
 public class BookmarkFinderVisitor implements DocumentElementVisitor {
     private final String bookmark;
+    private final DocumentTextModel textModel;
     @Getter
     private boolean found = false;
 
     public BookmarkFinderVisitor(String bookmark) {
+        this(bookmark, new DocumentTextModel());
+    }
+
+    public BookmarkFinderVisitor(String bookmark, DocumentTextModel textModel) {
         this.bookmark = bookmark;
+        this.textModel = textModel;
     }
 
     @Override
     public void visitParagraph(XWPFParagraph paragraph) {
-        if (containsBookmark(paragraph, bookmark)) {
+        if (!found && containsBookmark(paragraph, bookmark, textModel)) {
             found = true;
         }
     }
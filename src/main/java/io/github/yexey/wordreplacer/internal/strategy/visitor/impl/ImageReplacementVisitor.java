@@ -0,0 +1,105 @@
+package io.github.yexey.wordreplacer.internal.strategy.visitor.impl;
+
+import io.github.yexey.wordreplacer.internal.model.DocumentTextModel;
+import io.github.yexey.wordreplacer.internal.strategy.visitor.DocumentElementVisitor;
+import lombok.Getter;
+import org.apache.poi.xwpf.usermodel.*;
+
+import java.util.function.Consumer;
+
+/**
+ * Visitor for replacing bookmarks with pictures
+ *
+ * The first occurrence of the bookmark per paragraph is replaced by an empty run, which is then passed
+ * to the picture writer. Like {@link ReplacementVisitor}, only the hits are counted.
+ */
+public class ImageReplacementVisitor implements DocumentElementVisitor {
+    private final String bookmark;
+    private final Consumer<XWPFRun> pictureWriter;
+    private final DocumentTextModel textModel;
+
+    /**
+     * Number of paragraphs the bookmark was replaced in
+     */
+    @Getter
+    private int hits;
+
+    public ImageReplacementVisitor(String bookmark, Consumer<XWPFRun> pictureWriter, DocumentTextModel textModel) {
+        this.bookmark = bookmark;
+        this.pictureWriter = pictureWriter;
+        this.textModel = textModel;
+    }
+
+    @Override
+    public void visitParagraph(XWPFParagraph paragraph) {
+        int bookmarkStart = textModel.get(paragraph).getText().indexOf(bookmark);
+        if (bookmarkStart == -1) {
+            return;
+        }
+
+        XWPFRun run = textModel.replaceWithRun(paragraph, bookmarkStart, bookmarkStart + bookmark.length());
+        if (run == null) {
+            // The cached text was stale and has been rebuilt, so look the bookmark up once more
+            bookmarkStart = textModel.get(paragraph).getText().indexOf(bookmark);
+            if (bookmarkStart != -1) {
+                run = textModel.replaceWithRun(paragraph, bookmarkStart, bookmarkStart + bookmark.length());
+            }
+        }
+        if (run != null) {
+            pictureWriter.accept(run);
+            hits++;
+        }
+    }
+
+    @Override
+    public boolean mayMatch(String text) {
+        return text.contains(bookmark);
+    }
+
+    @Override
+    public void visitTable(XWPFTable table) {
+        for (XWPFTableRow row : table.getRows()) {
+            visitTableRow(row);
+        }
+    }
+
+    @Override
+    public void visitTableCell(XWPFTableCell cell) {
+        for (XWPFParagraph paragraph : cell.getParagraphs()) {
+            visitParagraph(paragraph);
+        }
+
+        for (XWPFTable nestedTable : cell.getTables()) {
+            visitTable(nestedTable);
+        }
+    }
+
+    @Override
+    public void visitTableRow(XWPFTableRow row) {
+        for (XWPFTableCell cell : row.getTableCells()) {
+            visitTableCell(cell);
+        }
+    }
+
+    @Override
+    public void visitHeader(XWPFHeader header) {
+        for (XWPFParagraph paragraph : header.getParagraphs()) {
+            visitParagraph(paragraph);
+        }
+
+        for (XWPFTable table : header.getTables()) {
+            visitTable(table);
+        }
+    }
+
+    @Override
+    public void visitFooter(XWPFFooter footer) {
+        for (XWPFParagraph paragraph : footer.getParagraphs()) {
+            visitParagraph(paragraph);
+        }
+
+        for (XWPFTable table : footer.getTables()) {
+            visitTable(table);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package io.github.yexey.wordreplacer.internal.strategy.visitor.impl;
+
+import io.github.yexey.wordreplacer.internal.model.DocumentTextModel;
+import io.github.yexey.wordreplacer.internal.model.ValueSlots;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.PlaceholderMatch;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.impl.AhoCorasickMatcher;
+import io.github.yexey.wordreplacer.internal.strategy.visitor.DocumentElementVisitor;
+import lombok.Getter;
+import org.apache.poi.xwpf.usermodel.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Visitor for replacing many bookmarks in a single traversal
+ *
+ * All bookmarks are searched at once with an {@link AhoCorasickMatcher}, so each paragraph's text is
+ * built and scanned only once regardless of the number of bookmarks. Like {@link ReplacementVisitor},
+ * the first occurrence of each bookmark per paragraph is replaced. Replacement values are never
+ * searched for bookmarks again.
+ */
+public class MultiReplacementVisitor implements DocumentElementVisitor {
+    @Getter
+    private final AhoCorasickMatcher matcher;
+    private final String[] replacements;
+    private final DocumentTextModel textModel;
+    private final ValueSlots slots;
+
+    /**
+     * Number of paragraphs each bookmark was replaced in, indexed by placeholder id of the matcher
+     */
+    @Getter
+    private final int[] hits;
+
+    public MultiReplacementVisitor(Map<String, String> replacements) {
+        this(replacements, new DocumentTextModel());
+    }
+
+    public MultiReplacementVisitor(Map<String, String> replacements, DocumentTextModel textModel) {
+        this(replacements, textModel, null);
+    }
+
+    /**
+     * @param slots records where the replacements were written, may be null
+     */
+    public MultiReplacementVisitor(Map<String, String> replacements, DocumentTextModel textModel, ValueSlots slots) {
+        this.textModel = textModel;
+        this.slots = slots;
+        this.matcher = new AhoCorasickMatcher(replacements.keySet());
+        List<String> bookmarks = matcher.getPlaceholders();
+        this.replacements = new String[bookmarks.size()];
+        for (int i = 0; i < bookmarks.size(); i++) {
+            this.replacements[i] = replacements.get(bookmarks.get(i));
+        }
+        this.hits = new int[bookmarks.size()];
+    }
+
+    @Override
+    public void visitParagraph(XWPFParagraph paragraph) {
+        List<PlaceholderMatch> matches = matcher.findAll(textModel.get(paragraph).getText());
+        if (matches.isEmpty()) {
+            return;
+        }
+
+        // Only the first occurrence of each bookmark counts, as with single replacements
+        boolean[] seen = new boolean[replacements.length];
+        int[] selected = new int[matches.size()];
+        int count = 0;
+        for (int i = 0; i < matches.size(); i++) {
+            int id = matches.get(i).getPlaceholderId();
+            if (!seen[id]) {
+                seen[id] = true;
+                selected[count++] = i;
+            }
+        }
+
+        // Replace from right to left so the offsets of earlier matches stay valid
+        for (int i = count - 1; i >= 0; i--) {
+            PlaceholderMatch match = matches.get(selected[i]);
+            int id = match.getPlaceholderId();
+            if (!textModel.replace(paragraph, match.getStart(), match.getEnd(), replacements[id])) {
+                if (i == count - 1) {
+                    // The cached text was stale and has been rebuilt before anything was edited, start over
+                    visitParagraph(paragraph);
+                }
+                // Otherwise the remaining offsets are stale as well, leave them unreplaced
+                return;
+            }
+            hits[id]++;
+            if (slots != null) {
+                slots.record(paragraph, match.getPlaceholder(), match.getStart(), replacements[id]);
+            }
+        }
+    }
+
+    @Override
+    public boolean mayMatch(String text) {
+        return matcher.matchesAny(text);
+    }
+
+    @Override
+    public void visitTable(XWPFTable table) {
+        for (XWPFTableRow row : table.getRows()) {
+            visitTableRow(row);
+        }
+    }
+
+    @Override
+    public void visitTableCell(XWPFTableCell cell) {
+        // Process paragraphs within the cell
+        for (XWPFParagraph paragraph : cell.getParagraphs()) {
+            visitParagraph(paragraph);
+        }
+
+        // Process nested tables
+        for (XWPFTable nestedTable : cell.getTables()) {
+            visitTable(nestedTable);
+        }
+    }
+
+    @Override
+    public void visitTableRow(XWPFTableRow row) {
+        for (XWPFTableCell cell : row.getTableCells()) {
+            visitTableCell(cell);
+        }
+    }
+
+    @Override
+    public void visitHeader(XWPFHeader header) {
+        for (XWPFParagraph paragraph : header.getParagraphs()) {
+            visitParagraph(paragraph);
+        }
+
+        for (XWPFTable table : header.getTables()) {
+            visitTable(table);
+        }
+    }
+
+    @Override
+    public void visitFooter(XWPFFooter footer) {
+        for (XWPFParagraph paragraph : footer.getParagraphs()) {
+            visitParagraph(paragraph);
+        }
+
+        for (XWPFTable table : footer.getTables()) {
+            visitTable(table);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.yexey.wordreplacer.internal.strategy.visitor.impl;
+
+import io.github.yexey.wordreplacer.internal.strategy.visitor.DocumentElementVisitor;
+import lombok.Getter;
+import org.apache.poi.xwpf.usermodel.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Visitor for collecting all paragraphs of a document, including table cells, headers and footers
+ */
+public class ParagraphCollectorVisitor implements DocumentElementVisitor {
+    @Getter
+    private final List<XWPFParagraph> paragraphs = new ArrayList<>();
+
+    @Override
+    public void visitParagraph(XWPFParagraph paragraph) {
+        paragraphs.add(paragraph);
+    }
+
+    @Override
+    public void visitTable(XWPFTable table) {
+        for (XWPFTableRow row : table.getRows()) {
+            visitTableRow(row);
+        }
+    }
+
+    @Override
+    public void visitTableCell(XWPFTableCell cell) {
+        for (XWPFParagraph paragraph : cell.getParagraphs()) {
+            visitParagraph(paragraph);
+        }
+
+        for (XWPFTable nestedTable : cell.getTables()) {
+            visitTable(nestedTable);
+        }
+    }
+
+    @Override
+    public void visitTableRow(XWPFTableRow row) {
+        for (XWPFTableCell cell : row.getTableCells()) {
+            visitTableCell(cell);
+        }
+    }
+
+    @Override
+    public void visitHeader(XWPFHeader header) {
+        for (XWPFParagraph paragraph : header.getParagraphs()) {
+            visitParagraph(paragraph);
+        }
+
+        for (XWPFTable table : header.getTables()) {
+            visitTable(table);
+        }
+    }
+
+    @Override
+    public void visitFooter(XWPFFooter footer) {
+        for (XWPFParagraph paragraph : footer.getParagraphs()) {
+            visitParagraph(paragraph);
+        }
+
+        for (XWPFTable table : footer.getTables()) {
+            visitTable(table);
+        }
+    }
+}
@@ -1,33 +1,51 @@
 package io.github.yexey.wordreplacer.internal.strategy.visitor.impl;
 
-import org.apache.poi.xwpf.usermodel.*;
+import io.github.yexey.wordreplacer.internal.model.DocumentTextModel;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.impl.AhoCorasickMatcher;
 import io.github.yexey.wordreplacer.internal.strategy.visitor.DocumentElementVisitor;
+import io.github.yexey.wordreplacer.internal.utils.BodyUtils;
+import lombok.Getter;
+import org.apache.poi.xwpf.usermodel.*;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import static io.github.yexey.wordreplacer.internal.utils.BookmarkUtils.containsBookmark;
+import java.util.*;
 
 /**
  * Visitor for removing elements containing bookmarks
+ *
+ * Visiting only marks the paragraphs containing any of the bookmarks; {@link #sweep()} removes them
+ * afterwards. Nothing is removed while the document is being traversed, and the marked paragraphs of
+ * each body (document body, table cell, header, footer) are removed together in a single pass.
  */
 public class RemovalVisitor implements DocumentElementVisitor {
-    private final String bookmark;
-    private final XWPFDocument document;
+    private final AhoCorasickMatcher matcher;
+    private final DocumentTextModel textModel;
+
+    // Marked paragraphs per body
+    private final Map<IBody, List<XWPFParagraph>> marked = new IdentityHashMap<>();
+
+    /**
+     * Number of paragraphs removed by {@link #sweep()}
+     */
+    @Getter
+    private int removedCount;
+
+    public RemovalVisitor(String bookmark) {
+        this(List.of(bookmark), new DocumentTextModel());
+    }
 
-    public RemovalVisitor(XWPFDocument document, String bookmark) {
-        this.bookmark = bookmark;
-        this.document = document;
+    public RemovalVisitor(Collection<String> bookmarks, DocumentTextModel textModel) {
+        this.matcher = new AhoCorasickMatcher(bookmarks);
+        this.textModel = textModel;
     }
 
     @Override
     public void visitParagraph(XWPFParagraph paragraph) {
-        if (containsBookmark(paragraph, bookmark)) {
-            int pos = document.getPosOfParagraph(paragraph);
-            if (pos >= 0) {
-                document.removeBodyElement(pos);
-            }
-        }
+        mark(paragraph);
+    }
+
+    @Override
+    public boolean mayMatch(String text) {
+        return matcher.matchesAny(text);
     }
 
     @Override
@@ -39,13 +57,8 @@ public class RemovalVisitor implements DocumentElementVisitor {
 
     @Override
     public void visitTableCell(XWPFTableCell cell) {
-        List<XWPFParagraph> paragraphs = cell.getParagraphs();
-        for (int i = 0; i < paragraphs.size(); i++) {
-            if (containsBookmark(paragraphs.get(i), bookmark)) {
-                cell.removeParagraph(i);
-                // Adjust index
-                i--;
-            }
+        for (XWPFParagraph paragraph : cell.getParagraphs()) {
+            mark(paragraph);
         }
 
         // Process nested tables
@@ -63,33 +76,40 @@ public class RemovalVisitor implements DocumentElementVisitor {
 
     @Override
     public void visitHeader(XWPFHeader header) {
-        List<XWPFParagraph> paragraphs = header.getParagraphs();
-        List<XWPFParagraph> paragraphsToRemove = new ArrayList<>();
-
-        for(var paragraph : paragraphs) {
-            if (containsBookmark(paragraph, bookmark)) {
-                paragraphsToRemove.add(paragraph);
-            }
-        }
-
-        for(var paragraph : paragraphsToRemove) {
-            header.removeParagraph(paragraph);
-        }
+        markHeaderFooter(header);
     }
 
     @Override
     public void visitFooter(XWPFFooter footer) {
-        List<XWPFParagraph> paragraphs = footer.getParagraphs();
-        List<XWPFParagraph> paragraphsToRemove = new ArrayList<>();
+        markHeaderFooter(footer);
+    }
 
-        for(var paragraph : paragraphs) {
-            if (containsBookmark(paragraph, bookmark)) {
-                paragraphsToRemove.add(paragraph);
+    /**
+     * Removes all marked paragraphs.
+     */
+    public void sweep() {
+        for (Map.Entry<IBody, List<XWPFParagraph>> entry : marked.entrySet()) {
+            for (XWPFParagraph paragraph : entry.getValue()) {
+                textModel.remove(paragraph);
             }
+            removedCount += BodyUtils.removeBodyElements(entry.getKey(), entry.getValue());
         }
+        marked.clear();
+    }
+
+    private void markHeaderFooter(XWPFHeaderFooter headerFooter) {
+        for (XWPFParagraph paragraph : headerFooter.getParagraphs()) {
+            mark(paragraph);
+        }
+    }
 
-        for(var paragraph : paragraphsToRemove) {
-            footer.removeParagraph(paragraph);
+    private void mark(XWPFParagraph paragraph) {
+        if (matches(paragraph)) {
+            marked.computeIfAbsent(paragraph.getBody(), key -> new ArrayList<>()).add(paragraph);
         }
     }
-}
\ No newline at end of file
+
+    private boolean matches(XWPFParagraph paragraph) {
+        return matcher.matchesAny(textModel.get(paragraph).getText());
+    }
+}
@@ -1,29 +1,57 @@
 package io.github.yexey.wordreplacer.internal.strategy.visitor.impl;
 
 import org.apache.poi.xwpf.usermodel.*;
-import io.github.yexey.wordreplacer.internal.strategy.tracker.ReplacementTracker;
+import io.github.yexey.wordreplacer.internal.model.DocumentTextModel;
+import io.github.yexey.wordreplacer.internal.model.ValueSlots;
 import io.github.yexey.wordreplacer.internal.strategy.visitor.DocumentElementVisitor;
-
-import java.util.List;
+import lombok.Getter;
 
 /**
  * Visitor for replacing bookmarks
+ *
+ * Only counts the paragraphs the bookmark was replaced in; the caller reports the count to a
+ * tracker once the traversal is done.
  */
 public class ReplacementVisitor implements DocumentElementVisitor {
     private final String bookmark;
     private final String replacement;
-    private final ReplacementTracker tracker;
+    private final DocumentTextModel textModel;
+    private final ValueSlots slots;
+
+    /**
+     * Number of paragraphs the bookmark was replaced in
+     */
+    @Getter
+    private int hits;
+
+    public ReplacementVisitor(String bookmark, String replacement) {
+        this(bookmark, replacement, new DocumentTextModel());
+    }
+
+    public ReplacementVisitor(String bookmark, String replacement, DocumentTextModel textModel) {
+        this(bookmark, replacement, textModel, null);
+    }
 
-    public ReplacementVisitor(String bookmark, String replacement, ReplacementTracker tracker) {
+    /**
+     * @param slots records where the replacement was written, may be null
+     */
+    public ReplacementVisitor(String bookmark, String replacement, DocumentTextModel textModel, ValueSlots slots) {
         this.bookmark = bookmark;
         this.replacement = replacement;
-        this.tracker = tracker;
+        this.textModel = textModel;
+        this.slots = slots;
     }
 
     @Override
     public void visitParagraph(XWPFParagraph paragraph) {
-        boolean success = replaceInParagraph(paragraph, bookmark, replacement);
-        tracker.trackReplacement(bookmark, replacement, success);
+        if (replaceInParagraph(paragraph, bookmark, replacement)) {
+            hits++;
+        }
+    }
+
+    @Override
+    public boolean mayMatch(String text) {
+        return text.contains(bookmark);
     }
 
     @Override
@@ -84,73 +112,23 @@ public class ReplacementVisitor implements DocumentElementVisitor {
      * @return true if the bookmark was found and replaced, false otherwise
      */
     private boolean replaceInParagraph(XWPFParagraph paragraph, String bookmark, String replacement) {
-        // Implementation similar to original code but using the strategy
-        // This is a simplified version - would need formatting preservation logic
-
-        List<XWPFRun> runs = paragraph.getRuns();
-        if (runs == null || runs.isEmpty()) {
-            return false;
-        }
-
-        StringBuilder fullText = new StringBuilder();
-        int[] runEndPositions = new int[runs.size() + 1];
-        runEndPositions[0] = 0;
-
-        // Build full text and track positions
-        for (int i = 0; i < runs.size(); i++) {
-            String text = runs.get(i).getText(0);
-            if (text == null) text = "";
-            fullText.append(text);
-            runEndPositions[i + 1] = fullText.length();
-        }
-
-        // Find bookmark in full text
-        String completeText = fullText.toString();
-        int bookmarkStart = completeText.indexOf(bookmark);
+        // Find bookmark in the cached full text
+        int bookmarkStart = textModel.get(paragraph).getText().indexOf(bookmark);
         if (bookmarkStart == -1) {
             return false;
         }
 
-        int bookmarkEnd = bookmarkStart + bookmark.length();
-
-        // Find which runs contain the bookmark
-        int startRunIndex = -1;
-        int endRunIndex = -1;
-
-        for (int i = 0; i < runs.size(); i++) {
-            if (startRunIndex == -1 && runEndPositions[i + 1] > bookmarkStart) {
-                startRunIndex = i;
-            }
-            if (endRunIndex == -1 && runEndPositions[i + 1] >= bookmarkEnd) {
-                endRunIndex = i;
-                break;
+        if (!textModel.replace(paragraph, bookmarkStart, bookmarkStart + bookmark.length(), replacement)) {
+            // The cached text was stale and has been rebuilt, so look the bookmark up once more
+            bookmarkStart = textModel.get(paragraph).getText().indexOf(bookmark);
+            if (bookmarkStart == -1
+                    || !textModel.replace(paragraph, bookmarkStart, bookmarkStart + bookmark.length(), replacement)) {
+                return false;
             }
         }
-
-        if (startRunIndex == -1 || endRunIndex == -1) {
-            return false;
-        }
-
-        // Modify the runs
-        XWPFRun startRun = runs.get(startRunIndex);
-        String startRunText = startRun.getText(0) != null ? startRun.getText(0) : "";
-        int bookmarkStartInRun = bookmarkStart - runEndPositions[startRunIndex];
-
-        XWPFRun endRun = runs.get(endRunIndex);
-        String endRunText = endRun.getText(0) != null ? endRun.getText(0) : "";
-        int bookmarkEndInRun = bookmarkEnd - runEndPositions[endRunIndex];
-
-        // Create new text for first run
-        String textBeforeBookmark = startRunText.substring(0, bookmarkStartInRun);
-        String textAfterBookmark = endRunText.substring(bookmarkEndInRun);
-        String newStartRunText = textBeforeBookmark + replacement + textAfterBookmark;
-
-        // Set the new text and remove extra runs
-        startRun.setText(newStartRunText, 0);
-        for (int i = endRunIndex; i > startRunIndex; i--) {
-            paragraph.removeRun(i);
+        if (slots != null) {
+            slots.record(paragraph, bookmark, bookmarkStart, replacement);
         }
-
         return true;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,469 @@
+package io.github.yexey.wordreplacer.internal.streaming;
+
+import io.github.yexey.wordreplacer.internal.strategy.matcher.PlaceholderMatch;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.impl.AhoCorasickMatcher;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.stream.*;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Replaces placeholders in a WordprocessingML part (document, header or footer) while streaming it as StAX events.
+ *
+ * Events outside of paragraphs are written through immediately. The events of a paragraph (including
+ * paragraphs nested in it, e.g. in text boxes) are buffered until the paragraph ends, so a placeholder
+ * split across several runs or text elements is still found. Memory use is therefore bounded by the
+ * largest paragraph of the part.
+ *
+ * The text of a match is written into the text element the match starts in; the text elements it
+ * spans afterwards lose their matched part. Like the DOM based replacement, the first occurrence of
+ * each placeholder per paragraph is replaced.
+ *
+ * Table rows containing the marker of a row source are buffered as a whole and written once per record
+ * of the source, with the record's values taking precedence over the document wide replacements. The
+ * records are pulled from the source while writing, so only one row is held in memory at a time.
+ */
+public class StreamingPartRenderer {
+    public static final String W_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    private static final QName XML_SPACE = new QName(XMLConstants.XML_NS_URI, "space", "xml");
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newInstance();
+
+    private final Replacements replacements;
+
+    /**
+     * The row sources by marker; a source is removed once its row has been repeated
+     */
+    private final Map<String, Iterator<Map<String, String>>> rowSources;
+
+    /**
+     * @param matcher      the matcher finding the placeholders
+     * @param replacements the replacement values, indexed by placeholder id
+     * @param hits         counters of replaced paragraphs, indexed by placeholder id
+     */
+    public StreamingPartRenderer(AhoCorasickMatcher matcher, String[] replacements, int[] hits) {
+        this(matcher, replacements, hits, new HashMap<>());
+    }
+
+    /**
+     * @param matcher      the matcher finding the placeholders
+     * @param replacements the replacement values, indexed by placeholder id
+     * @param hits         counters of replaced paragraphs, indexed by placeholder id
+     * @param rowSources   the records of each repeated row by the marker placeholder of the row,
+     *                     consumed sources are removed from the map
+     */
+    public StreamingPartRenderer(AhoCorasickMatcher matcher, String[] replacements, int[] hits,
+                                 Map<String, Iterator<Map<String, String>>> rowSources) {
+        this.replacements = new Replacements(matcher, replacements, hits);
+        this.rowSources = rowSources;
+    }
+
+    /**
+     * Streams the part from the input to the output, replacing placeholders on the way.
+     * Neither stream is closed.
+     *
+     * @param in  the part XML
+     * @param out the stream receiving the rendered part XML
+     * @throws XMLStreamException if the part is not well-formed
+     */
+    public void render(InputStream in, OutputStream out) throws XMLStreamException {
+        // The StAX implementation may close the streams at the end of the document
+        XMLEventReader reader = INPUT_FACTORY.createXMLEventReader(CloseShieldInputStream.wrap(in));
+        XMLEventWriter writer = OUTPUT_FACTORY.createXMLEventWriter(CloseShieldOutputStream.wrap(out), "UTF-8");
+        RowBuffer rows = new RowBuffer(new ParagraphBuffer(replacements), writer);
+
+        while (reader.hasNext()) {
+            rows.add(reader.nextEvent());
+        }
+
+        writer.flush();
+        writer.close();
+        reader.close();
+    }
+
+    /**
+     * Writes a buffered table row, once per record if it contains the marker of a row source.
+     * Rows nested in a row without a marker are checked for markers themselves.
+     */
+    private void renderRow(List<XMLEvent> events, ParagraphBuffer paragraphs, XMLEventWriter writer)
+            throws XMLStreamException {
+        String marker = findMarker(events);
+        if (marker == null) {
+            paragraphs.add(events.get(0), writer);
+            RowBuffer nestedRows = new RowBuffer(paragraphs, writer);
+            for (XMLEvent event : events.subList(1, events.size() - 1)) {
+                nestedRows.add(event);
+            }
+            paragraphs.add(events.get(events.size() - 1), writer);
+            return;
+        }
+
+        Iterator<Map<String, String>> records = rowSources.remove(marker);
+        RowReplacements rowReplacements = null;
+        while (records.hasNext()) {
+            Map<String, String> record = records.next();
+            if (rowReplacements == null) {
+                rowReplacements = new RowReplacements(marker, record.keySet());
+            }
+            ParagraphBuffer recordParagraphs = new ParagraphBuffer(rowReplacements.forRecord(record));
+            for (XMLEvent event : events) {
+                recordParagraphs.add(event, writer);
+            }
+        }
+        if (rowReplacements != null) {
+            rowReplacements.addHitsTo(replacements);
+        }
+    }
+
+    /**
+     * Returns the marker of a row source occurring in the row's own cells (not in nested rows), or null
+     */
+    private String findMarker(List<XMLEvent> events) {
+        StringBuilder text = new StringBuilder();
+        int rowDepth = 0;
+        boolean inText = false;
+        for (XMLEvent event : events) {
+            if (isStart(event, "tr")) {
+                rowDepth++;
+            } else if (isEnd(event, "tr")) {
+                rowDepth--;
+            } else if (rowDepth == 1) {
+                if (isStart(event, "t")) {
+                    inText = true;
+                } else if (isEnd(event, "t")) {
+                    inText = false;
+                } else if (inText && event.isCharacters()) {
+                    text.append(event.asCharacters().getData());
+                } else if (isEnd(event, "p")) {
+                    text.append('\n');
+                }
+            }
+        }
+        for (String marker : rowSources.keySet()) {
+            if (text.indexOf(marker) != -1) {
+                return marker;
+            }
+        }
+        return null;
+    }
+
+    private static void renderParagraph(List<XMLEvent> events, XMLEventWriter writer, Replacements replacements)
+            throws XMLStreamException {
+        // Collect the text elements, grouped by the paragraph they directly belong to
+        Map<Integer, List<TextSegment>> segmentsByParagraph = new LinkedHashMap<>();
+        Deque<Integer> paragraphs = new ArrayDeque<>();
+        int nextParagraphId = 0;
+        TextSegment current = null;
+        for (int i = 0; i < events.size(); i++) {
+            XMLEvent event = events.get(i);
+            if (isStart(event, "p")) {
+                paragraphs.push(nextParagraphId++);
+            } else if (isEnd(event, "p")) {
+                paragraphs.pop();
+            } else if (isStart(event, "t") && !paragraphs.isEmpty()) {
+                current = new TextSegment(i);
+                segmentsByParagraph.computeIfAbsent(paragraphs.peek(), id -> new ArrayList<>()).add(current);
+            } else if (isEnd(event, "t")) {
+                current = null;
+            } else if (current != null && event.isCharacters()) {
+                current.text.append(event.asCharacters().getData());
+                current.characterEvents.add(i);
+            }
+        }
+
+        Map<Integer, TextSegment> modified = new HashMap<>();
+        for (List<TextSegment> segments : segmentsByParagraph.values()) {
+            replaceInSegments(segments, modified, replacements);
+        }
+
+        if (modified.isEmpty()) {
+            for (XMLEvent event : events) {
+                writer.add(event);
+            }
+            return;
+        }
+
+        Set<Integer> skipped = new HashSet<>();
+        for (TextSegment segment : modified.values()) {
+            skipped.addAll(segment.characterEvents);
+        }
+        for (int i = 0; i < events.size(); i++) {
+            TextSegment segment = modified.get(i);
+            if (segment != null) {
+                writer.add(preserveSpace(events.get(i).asStartElement(), segment.newText));
+                if (!segment.newText.isEmpty()) {
+                    writer.add(EVENT_FACTORY.createCharacters(segment.newText));
+                }
+            } else if (!skipped.contains(i)) {
+                writer.add(events.get(i));
+            }
+        }
+    }
+
+    private static void replaceInSegments(List<TextSegment> segments, Map<Integer, TextSegment> modified,
+                                          Replacements replacements) {
+        StringBuilder fullText = new StringBuilder();
+        for (TextSegment segment : segments) {
+            segment.start = fullText.length();
+            fullText.append(segment.text);
+        }
+
+        List<PlaceholderMatch> matches = replacements.matcher.findAll(fullText);
+        if (matches.isEmpty()) {
+            return;
+        }
+
+        // Only the first occurrence of each placeholder counts, as with the DOM based replacement
+        boolean[] seen = new boolean[replacements.values.length];
+        List<PlaceholderMatch> selected = new ArrayList<>();
+        for (PlaceholderMatch match : matches) {
+            if (!seen[match.getPlaceholderId()]) {
+                seen[match.getPlaceholderId()] = true;
+                selected.add(match);
+                replacements.hits[match.getPlaceholderId()]++;
+            }
+        }
+
+        // Rebuild the text of every segment touched by a match
+        int m = 0;
+        for (TextSegment segment : segments) {
+            int segmentEnd = segment.start + segment.text.length();
+            while (m < selected.size() && selected.get(m).getEnd() <= segment.start) {
+                m++;
+            }
+            if (m >= selected.size() || selected.get(m).getStart() >= segmentEnd) {
+                continue;
+            }
+
+            StringBuilder newText = new StringBuilder();
+            int pos = segment.start;
+            int current = m;
+            while (pos < segmentEnd) {
+                PlaceholderMatch match = current < selected.size() ? selected.get(current) : null;
+                if (match != null && pos >= match.getStart()) {
+                    if (pos == match.getStart()) {
+                        newText.append(replacements.values[match.getPlaceholderId()]);
+                    }
+                    pos = Math.min(match.getEnd(), segmentEnd);
+                    if (pos == match.getEnd()) {
+                        current++;
+                    }
+                } else {
+                    int stop = match == null ? segmentEnd : Math.min(segmentEnd, match.getStart());
+                    newText.append(fullText, pos, stop);
+                    pos = stop;
+                }
+            }
+            m = current;
+            segment.newText = newText.toString();
+            modified.put(segment.startEvent, segment);
+        }
+    }
+
+    private static StartElement preserveSpace(StartElement element, String text) {
+        boolean needsPreserve = !text.isEmpty()
+                && (Character.isWhitespace(text.charAt(0)) || Character.isWhitespace(text.charAt(text.length() - 1)));
+        if (!needsPreserve || element.getAttributeByName(XML_SPACE) != null) {
+            return element;
+        }
+        List<Attribute> attributes = new ArrayList<>();
+        element.getAttributes().forEachRemaining(attributes::add);
+        attributes.add(EVENT_FACTORY.createAttribute(XML_SPACE, "preserve"));
+        return EVENT_FACTORY.createStartElement(element.getName(), attributes.iterator(), element.getNamespaces());
+    }
+
+    private static boolean isStart(XMLEvent event, String localName) {
+        return event.isStartElement() && isW(event.asStartElement().getName(), localName);
+    }
+
+    private static boolean isEnd(XMLEvent event, String localName) {
+        return event.isEndElement() && isW(event.asEndElement().getName(), localName);
+    }
+
+    private static boolean isW(QName name, String localName) {
+        return localName.equals(name.getLocalPart()) && W_NS.equals(name.getNamespaceURI());
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * Buffers each table row outside of paragraphs while row sources are left and passes all other
+     * events to the paragraph buffer
+     */
+    private class RowBuffer {
+        private final ParagraphBuffer paragraphs;
+        private final XMLEventWriter writer;
+        private final List<XMLEvent> row = new ArrayList<>();
+        private int rowDepth;
+
+        private RowBuffer(ParagraphBuffer paragraphs, XMLEventWriter writer) {
+            this.paragraphs = paragraphs;
+            this.writer = writer;
+        }
+
+        private void add(XMLEvent event) throws XMLStreamException {
+            if (rowDepth == 0 && !paragraphs.isBuffering() && !rowSources.isEmpty() && isStart(event, "tr")) {
+                rowDepth = 1;
+                row.add(event);
+            } else if (rowDepth > 0) {
+                row.add(event);
+                if (isStart(event, "tr")) {
+                    rowDepth++;
+                } else if (isEnd(event, "tr") && --rowDepth == 0) {
+                    List<XMLEvent> events = new ArrayList<>(row);
+                    row.clear();
+                    renderRow(events, paragraphs, writer);
+                }
+            } else {
+                paragraphs.add(event, writer);
+            }
+        }
+    }
+
+    /**
+     * Writes events outside of paragraphs through and buffers each paragraph until it ends
+     */
+    private static class ParagraphBuffer {
+        private final Replacements replacements;
+        private final List<XMLEvent> buffer = new ArrayList<>();
+        private int paragraphDepth;
+
+        private ParagraphBuffer(Replacements replacements) {
+            this.replacements = replacements;
+        }
+
+        private boolean isBuffering() {
+            return paragraphDepth > 0;
+        }
+
+        private void add(XMLEvent event, XMLEventWriter writer) throws XMLStreamException {
+            if (isStart(event, "p")) {
+                paragraphDepth++;
+            }
+
+            if (paragraphDepth > 0) {
+                buffer.add(event);
+            } else {
+                writer.add(event);
+            }
+
+            if (isEnd(event, "p") && --paragraphDepth == 0) {
+                renderParagraph(buffer, writer, replacements);
+                buffer.clear();
+            }
+        }
+    }
+
+    /**
+     * A matcher with the replacement values and hit counters of its placeholders, indexed by placeholder id
+     */
+    private static class Replacements {
+        private final AhoCorasickMatcher matcher;
+        private final String[] values;
+        private final int[] hits;
+
+        private Replacements(AhoCorasickMatcher matcher, String[] values, int[] hits) {
+            this.matcher = matcher;
+            this.values = values;
+            this.hits = hits;
+        }
+    }
+
+    /**
+     * The replacements of a repeated row: the placeholders of the first record, the marker and the
+     * document wide placeholders, matched by one matcher built once per row
+     */
+    private class RowReplacements {
+        private final String marker;
+        private final AhoCorasickMatcher matcher;
+        private final int[] hits;
+
+        /**
+         * The id of each placeholder in the document wide matcher, -1 if it is not a document wide placeholder
+         */
+        private final int[] documentIds;
+
+        private RowReplacements(String marker, Set<String> recordPlaceholders) {
+            this.marker = marker;
+            Set<String> placeholders = new LinkedHashSet<>(recordPlaceholders);
+            placeholders.add(marker);
+            placeholders.addAll(replacements.matcher.getPlaceholders());
+            this.matcher = new AhoCorasickMatcher(placeholders);
+            this.hits = new int[matcher.getPlaceholders().size()];
+
+            Map<String, Integer> documentPlaceholders = new HashMap<>();
+            List<String> documentList = replacements.matcher.getPlaceholders();
+            for (int i = 0; i < documentList.size(); i++) {
+                documentPlaceholders.put(documentList.get(i), i);
+            }
+            List<String> rowList = matcher.getPlaceholders();
+            this.documentIds = new int[rowList.size()];
+            for (int i = 0; i < rowList.size(); i++) {
+                documentIds[i] = documentPlaceholders.getOrDefault(rowList.get(i), -1);
+            }
+        }
+
+        /**
+         * Returns the values for one record: the record's value, else the document wide value, else an
+         * empty text for the marker; any other placeholder is replaced by itself, i.e. left untouched.
+         */
+        private Replacements forRecord(Map<String, String> record) {
+            List<String> placeholders = matcher.getPlaceholders();
+            String[] values = new String[placeholders.size()];
+            for (int i = 0; i < values.length; i++) {
+                String placeholder = placeholders.get(i);
+                if (record.containsKey(placeholder)) {
+                    values[i] = record.get(placeholder);
+                } else if (documentIds[i] != -1) {
+                    values[i] = replacements.values[documentIds[i]];
+                } else {
+                    values[i] = placeholder.equals(marker) ? "" : placeholder;
+                }
+            }
+            return new Replacements(matcher, values, hits);
+        }
+
+        /**
+         * Adds the hits of the document wide placeholders inside the repeated rows to the document counters
+         */
+        private void addHitsTo(Replacements document) {
+            for (int i = 0; i < hits.length; i++) {
+                if (documentIds[i] != -1) {
+                    document.hits[documentIds[i]] += hits[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * The text of one w:t element
+     */
+    private static class TextSegment {
+        private final int startEvent;
+        private final List<Integer> characterEvents = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+        private int start;
+        private String newText;
+
+        private TextSegment(int startEvent) {
+            this.startEvent = startEvent;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.yexey.wordreplacer.internal.template;
+
+import lombok.Getter;
+import org.apache.poi.xwpf.usermodel.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Location of a paragraph within a document, independent of a concrete XWPFDocument instance.
+ *
+ * The path starts with the index of the body element within the part. For paragraphs inside tables
+ * it continues with the row index, the cell index and the body element index within the cell,
+ * repeated once per level of table nesting.
+ */
+@Getter
+public class ParagraphLocation {
+    private final PartType partType;
+    private final int partIndex;
+    private final int[] path;
+
+    public ParagraphLocation(PartType partType, int partIndex, int[] path) {
+        this.partType = partType;
+        this.partIndex = partIndex;
+        this.path = path;
+    }
+
+    /**
+     * Looks up the paragraph at this location in the given document.
+     *
+     * @param document a document with the same structure as the one the location was taken from
+     * @return the paragraph at this location
+     * @throws IllegalStateException if the document has no paragraph at this location
+     */
+    public XWPFParagraph resolve(XWPFDocument document) {
+        IBody body = resolvePart(document);
+        for (int i = 0; i < path.length; i += 3) {
+            List<IBodyElement> elements = body.getBodyElements();
+            IBodyElement element = path[i] < elements.size() ? elements.get(path[i]) : null;
+            if (i == path.length - 1 && element instanceof XWPFParagraph) {
+                return (XWPFParagraph) element;
+            }
+            if (i == path.length - 1 || !(element instanceof XWPFTable)) {
+                break;
+            }
+            XWPFTableRow row = ((XWPFTable) element).getRow(path[i + 1]);
+            List<XWPFTableCell> cells = row != null ? row.getTableCells() : List.of();
+            if (path[i + 2] >= cells.size()) {
+                break;
+            }
+            body = cells.get(path[i + 2]);
+        }
+        throw new IllegalStateException("No paragraph at " + this);
+    }
+
+    private IBody resolvePart(XWPFDocument document) {
+        switch (partType) {
+            case HEADER:
+                return document.getHeaderList().get(partIndex);
+            case FOOTER:
+                return document.getFooterList().get(partIndex);
+            default:
+                return document;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return partType + "[" + partIndex + "]" + Arrays.toString(path);
+    }
+}
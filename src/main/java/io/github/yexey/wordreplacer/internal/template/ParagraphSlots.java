@@ -0,0 +1,31 @@
+package io.github.yexey.wordreplacer.internal.template;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * All placeholder slots of one paragraph, ordered by their start offset
+ */
+@Getter
+public class ParagraphSlots {
+    private final ParagraphLocation location;
+    private final List<PlaceholderSlot> slots;
+
+    /**
+     * Whether every slot lies within a single run, as in templates written by the TemplateNormalizer.
+     * The runs of such a paragraph can be filled without removing any run.
+     */
+    private final boolean singleRun;
+
+    public ParagraphSlots(ParagraphLocation location, List<PlaceholderSlot> slots) {
+        this.location = location;
+        this.slots = slots;
+
+        boolean allSingleRun = true;
+        for (PlaceholderSlot slot : slots) {
+            allSingleRun &= slot.getStartRunIndex() == slot.getEndRunIndex();
+        }
+        this.singleRun = allSingleRun;
+    }
+}
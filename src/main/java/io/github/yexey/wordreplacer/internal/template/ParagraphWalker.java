@@ -0,0 +1,57 @@
+package io.github.yexey.wordreplacer.internal.template;
+
+import org.apache.poi.xwpf.usermodel.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Walks all paragraphs of a document in document order (body, headers, footers, including nested
+ * tables) and passes each paragraph together with its location to a callback
+ */
+public class ParagraphWalker {
+
+    private ParagraphWalker() {
+    }
+
+    /**
+     * @param document the document to walk
+     * @param callback receives every paragraph and its location
+     */
+    public static void walk(XWPFDocument document, BiConsumer<XWPFParagraph, ParagraphLocation> callback) {
+        walkBody(document, PartType.BODY, 0, new int[0], callback);
+        List<XWPFHeader> headers = document.getHeaderList();
+        for (int i = 0; i < headers.size(); i++) {
+            walkBody(headers.get(i), PartType.HEADER, i, new int[0], callback);
+        }
+        List<XWPFFooter> footers = document.getFooterList();
+        for (int i = 0; i < footers.size(); i++) {
+            walkBody(footers.get(i), PartType.FOOTER, i, new int[0], callback);
+        }
+    }
+
+    private static void walkBody(IBody body, PartType partType, int partIndex, int[] parentPath,
+                                 BiConsumer<XWPFParagraph, ParagraphLocation> callback) {
+        List<IBodyElement> elements = body.getBodyElements();
+        for (int i = 0; i < elements.size(); i++) {
+            IBodyElement element = elements.get(i);
+            int[] path = Arrays.copyOf(parentPath, parentPath.length + 1);
+            path[parentPath.length] = i;
+            if (element instanceof XWPFParagraph) {
+                callback.accept((XWPFParagraph) element, new ParagraphLocation(partType, partIndex, path));
+            } else if (element instanceof XWPFTable) {
+                List<XWPFTableRow> rows = ((XWPFTable) element).getRows();
+                for (int r = 0; r < rows.size(); r++) {
+                    List<XWPFTableCell> cells = rows.get(r).getTableCells();
+                    for (int c = 0; c < cells.size(); c++) {
+                        int[] cellPath = Arrays.copyOf(path, path.length + 2);
+                        cellPath[path.length] = r;
+                        cellPath[path.length + 1] = c;
+                        walkBody(cells.get(c), partType, partIndex, cellPath, callback);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package io.github.yexey.wordreplacer.internal.template;
+
+/**
+ * The document parts a paragraph can live in
+ */
+public enum PartType {
+    BODY,
+    HEADER,
+    FOOTER
+}
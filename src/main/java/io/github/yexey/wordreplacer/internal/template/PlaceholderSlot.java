@@ -0,0 +1,41 @@
+package io.github.yexey.wordreplacer.internal.template;
+
+import lombok.Getter;
+
+/**
+ * A placeholder occurrence within a paragraph, given both as offsets into the paragraph text
+ * and as the run range it covers
+ */
+@Getter
+public class PlaceholderSlot {
+    private final String placeholder;
+    private final int start;
+    private final int end;
+    private final int startRunIndex;
+    private final int startInRun;
+    private final int endRunIndex;
+    private final int endInRun;
+
+    public PlaceholderSlot(String placeholder, int start, int end, int[] runEndPositions) {
+        this.placeholder = placeholder;
+        this.start = start;
+        this.end = end;
+
+        // Same run lookup as RunUtils.replaceRange, done once at compile time
+        int startRun = -1;
+        int endRun = -1;
+        for (int i = 0; i + 1 < runEndPositions.length; i++) {
+            if (startRun == -1 && runEndPositions[i + 1] > start) {
+                startRun = i;
+            }
+            if (runEndPositions[i + 1] >= end) {
+                endRun = i;
+                break;
+            }
+        }
+        this.startRunIndex = startRun;
+        this.startInRun = start - runEndPositions[startRun];
+        this.endRunIndex = endRun;
+        this.endInRun = end - runEndPositions[endRun];
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.yexey.wordreplacer.internal.template;
+
+import io.github.yexey.wordreplacer.internal.strategy.matcher.PlaceholderMatch;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.PlaceholderMatcher;
+import io.github.yexey.wordreplacer.internal.utils.RunUtils;
+import io.github.yexey.wordreplacer.internal.utils.TableUtils;
+import org.apache.poi.xwpf.usermodel.*;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRow;
+
+import java.util.*;
+
+/**
+ * A table row prepared for repetition: a detached copy of the row XML together with the placeholder
+ * slots of its cell paragraphs, located once.
+ *
+ * Every inserted row is a copy of the prototype XML whose slots are filled from right to left, so the
+ * row is neither searched for placeholders again nor built from the original row. Only the paragraphs
+ * directly inside the cells are filled; tables nested in the row are copied unchanged.
+ */
+public class RowPrototype {
+    private final CTRow row;
+    private final String marker;
+    private final List<CellSlots> cells;
+
+    private RowPrototype(CTRow row, String marker, List<CellSlots> cells) {
+        this.row = row;
+        this.marker = marker;
+        this.cells = cells;
+    }
+
+    /**
+     * Prepares a row. Like WordReplacer.replace(Map), only the first occurrence of each placeholder
+     * per paragraph gets a slot.
+     *
+     * @param templateRow the row to repeat
+     * @param marker      the placeholder marking the row, removed from every inserted row unless a value is given
+     * @param matcher     the matcher finding the placeholders of the row
+     * @return the prototype
+     */
+    public static RowPrototype of(XWPFTableRow templateRow, String marker, PlaceholderMatcher matcher) {
+        List<CellSlots> cells = new ArrayList<>();
+        List<XWPFTableCell> tableCells = templateRow.getTableCells();
+        for (int c = 0; c < tableCells.size(); c++) {
+            List<XWPFParagraph> paragraphs = tableCells.get(c).getParagraphs();
+            for (int p = 0; p < paragraphs.size(); p++) {
+                List<XWPFRun> runs = paragraphs.get(p).getRuns();
+                List<PlaceholderMatch> matches = matcher.findAll(RunUtils.text(runs));
+                if (matches.isEmpty()) {
+                    continue;
+                }
+                int[] runEndPositions = RunUtils.runEndPositions(runs);
+                Set<String> seen = new HashSet<>();
+                List<PlaceholderSlot> slots = new ArrayList<>();
+                for (PlaceholderMatch match : matches) {
+                    if (seen.add(match.getPlaceholder())) {
+                        slots.add(new PlaceholderSlot(match.getPlaceholder(), match.getStart(), match.getEnd(), runEndPositions));
+                    }
+                }
+                cells.add(new CellSlots(c, p, slots));
+            }
+        }
+        return new RowPrototype((CTRow) templateRow.getCtRow().copy(), marker, cells);
+    }
+
+    /**
+     * Inserts a copy of the prototype after the previously inserted row and fills in the values.
+     * Placeholders without a value are left untouched.
+     *
+     * @param rows   the inserter positioned in the table the prototype was taken from
+     * @param values a map of placeholders to their replacement values
+     * @return the inserted row
+     */
+    public XWPFTableRow insert(TableUtils.RowInserter rows, Map<String, String> values) {
+        XWPFTableRow inserted = rows.insert(row);
+        for (CellSlots cell : cells) {
+            XWPFParagraph paragraph = inserted.getCell(cell.cellIndex).getParagraphs().get(cell.paragraphIndex);
+
+            // Replace from right to left so the run positions of earlier slots stay valid
+            for (int i = cell.slots.size() - 1; i >= 0; i--) {
+                PlaceholderSlot slot = cell.slots.get(i);
+                String value = values.get(slot.getPlaceholder());
+                if (value == null && slot.getPlaceholder().equals(marker)) {
+                    value = "";
+                }
+                if (value != null) {
+                    RunUtils.replaceRuns(paragraph, slot.getStartRunIndex(), slot.getStartInRun(),
+                            slot.getEndRunIndex(), slot.getEndInRun(), value);
+                }
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * The slots of one paragraph, addressed by cell index and paragraph index within the cell
+     */
+    private static class CellSlots {
+        private final int cellIndex;
+        private final int paragraphIndex;
+        private final List<PlaceholderSlot> slots;
+
+        private CellSlots(int cellIndex, int paragraphIndex, List<PlaceholderSlot> slots) {
+            this.cellIndex = cellIndex;
+            this.paragraphIndex = paragraphIndex;
+            this.slots = slots;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package io.github.yexey.wordreplacer.internal.template;
+
+import io.github.yexey.wordreplacer.internal.model.DocumentTextModel;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.PlaceholderMatch;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.impl.AhoCorasickMatcher;
+import io.github.yexey.wordreplacer.internal.utils.BodyUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.xwpf.usermodel.*;
+
+import java.util.*;
+
+/**
+ * Keeps or drops conditional sections enclosed in start and end markers, e.g.
+ * <code>{{#NOTES}}</code> ... <code>{{/NOTES}}</code>, in a single traversal of the document.
+ *
+ * Every body (document body, header, footer, table cell) is scanned once in element order. A dropped
+ * section removes the whole range of body elements from the paragraph holding its start marker to the one
+ * holding its end marker, including the tables in between, and everything nested in it is skipped. A section
+ * starting and ending in the same paragraph only removes the text in between. The markers of kept sections
+ * are removed, together with their paragraph if nothing but whitespace is left. A section must start and end
+ * in the same body. The start marker of a section without an end marker there is left untouched, and the
+ * elements after it are evaluated as usual. The elements of a body are removed together in one pass.
+ */
+@Slf4j
+public class SectionEvaluator {
+
+    private static class Marker {
+        private final String section;
+        private final boolean start;
+        private final boolean keep;
+
+        private Marker(String section, boolean start, boolean keep) {
+            this.section = section;
+            this.start = start;
+            this.keep = keep;
+        }
+    }
+
+    private final DocumentTextModel textModel;
+    private final Map<String, Marker> markers = new HashMap<>();
+    private final AhoCorasickMatcher matcher;
+
+    /**
+     * Number of sections removed by {@link #apply}
+     */
+    @Getter
+    private int droppedCount;
+
+    /**
+     * @param sections  whether to keep each section, by section name
+     * @param prefix    the start delimiter of a marker, e.g. <code>{{</code>
+     * @param suffix    the end delimiter of a marker, e.g. <code>}}</code>
+     * @param textModel the text model of the document, which is notified of every edit and removal
+     */
+    public SectionEvaluator(Map<String, Boolean> sections, String prefix, String suffix, DocumentTextModel textModel) {
+        this.textModel = textModel;
+        for (Map.Entry<String, Boolean> section : sections.entrySet()) {
+            boolean keep = Boolean.TRUE.equals(section.getValue());
+            markers.put(prefix + "#" + section.getKey() + suffix, new Marker(section.getKey(), true, keep));
+            markers.put(prefix + "/" + section.getKey() + suffix, new Marker(section.getKey(), false, keep));
+        }
+        this.matcher = new AhoCorasickMatcher(markers.keySet());
+    }
+
+    /**
+     * Evaluates the sections in the body, headers and footers of the document.
+     *
+     * @param document the document
+     */
+    public void apply(XWPFDocument document) {
+        applyBody(document);
+        for (XWPFHeader header : document.getHeaderList()) {
+            if (matcher.matchesAny(textModel.getText(header))) {
+                applyBody(header);
+            }
+        }
+        for (XWPFFooter footer : document.getFooterList()) {
+            if (matcher.matchesAny(textModel.getText(footer))) {
+                applyBody(footer);
+            }
+        }
+    }
+
+    private void applyBody(IBody body) {
+        List<IBodyElement> elements = body.getBodyElements();
+        int size = elements.size();
+        boolean[] removed = new boolean[size];
+        // The markers of each paragraph, found on first use
+        List<List<PlaceholderMatch>> found = new ArrayList<>(Collections.nCopies(size, null));
+        // Text ranges to cut by paragraph position, in ascending order
+        Map<Integer, List<int[]>> cuts = new LinkedHashMap<>();
+
+        Marker dropping = null;
+        int dropStart = 0;
+        int dropMatch = 0;
+        int dropOffset = 0;
+        int position = 0;
+        int next = 0;
+        while (true) {
+            if (position == size) {
+                if (dropping == null) {
+                    break;
+                }
+                // No end marker: leave the start marker untouched and evaluate everything after it
+                log.warn("Section {} has no end marker in the same body and is kept", dropping.section);
+                dropping = null;
+                position = dropStart;
+                next = dropMatch + 1;
+            }
+            IBodyElement element = elements.get(position);
+            if (element instanceof XWPFTable) {
+                XWPFTable table = (XWPFTable) element;
+                if (dropping == null && matcher.matchesAny(textModel.getText(table))) {
+                    applyTable(table);
+                }
+            }
+            if (!(element instanceof XWPFParagraph)) {
+                position++;
+                next = 0;
+                continue;
+            }
+            List<PlaceholderMatch> matches = found.get(position);
+            if (matches == null) {
+                matches = matcher.findAll(textModel.get((XWPFParagraph) element).getText());
+                found.set(position, matches);
+            }
+            if (next == matches.size()) {
+                position++;
+                next = 0;
+                continue;
+            }
+
+            PlaceholderMatch match = matches.get(next);
+            Marker marker = markers.get(match.getPlaceholder());
+            if (dropping != null) {
+                if (!marker.start && marker.section.equals(dropping.section)) {
+                    if (dropStart == position) {
+                        // Starts and ends in this paragraph, cut only the text in between
+                        cuts.computeIfAbsent(position, p -> new ArrayList<>())
+                                .add(new int[]{dropOffset, match.getEnd()});
+                    } else {
+                        Arrays.fill(removed, dropStart, position + 1, true);
+                    }
+                    droppedCount++;
+                    dropping = null;
+                }
+            } else if (marker.start && !marker.keep) {
+                dropping = marker;
+                dropStart = position;
+                dropMatch = next;
+                dropOffset = match.getStart();
+            } else {
+                // A marker of a kept section, or an end marker without its start
+                cuts.computeIfAbsent(position, p -> new ArrayList<>())
+                        .add(new int[]{match.getStart(), match.getEnd()});
+            }
+            next++;
+        }
+
+        for (Map.Entry<Integer, List<int[]>> entry : cuts.entrySet()) {
+            int paragraphPosition = entry.getKey();
+            if (removed[paragraphPosition]) {
+                continue;
+            }
+            XWPFParagraph paragraph = (XWPFParagraph) elements.get(paragraphPosition);
+            List<int[]> ranges = entry.getValue();
+            for (int i = ranges.size() - 1; i >= 0; i--) {
+                textModel.replace(paragraph, ranges.get(i)[0], ranges.get(i)[1], "");
+            }
+            if (textModel.get(paragraph).getText().isBlank()) {
+                removed[paragraphPosition] = true;
+            }
+        }
+
+        List<IBodyElement> remove = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (removed[i]) {
+                forget(elements.get(i));
+                remove.add(elements.get(i));
+            }
+        }
+        BodyUtils.removeBodyElements(body, remove);
+
+        // Table cells, headers and footers need at least one paragraph
+        if (body.getParagraphs().isEmpty()) {
+            if (body instanceof XWPFTableCell) {
+                ((XWPFTableCell) body).addParagraph();
+            } else if (body instanceof XWPFHeaderFooter) {
+                ((XWPFHeaderFooter) body).createParagraph();
+            }
+        }
+    }
+
+    private void applyTable(XWPFTable table) {
+        for (XWPFTableRow row : table.getRows()) {
+            for (XWPFTableCell cell : row.getTableCells()) {
+                applyBody(cell);
+            }
+        }
+    }
+
+    /**
+     * Notifies the text model of every paragraph removed with the element
+     */
+    private void forget(IBodyElement element) {
+        if (element instanceof XWPFParagraph) {
+            textModel.remove((XWPFParagraph) element);
+        } else if (element instanceof XWPFTable) {
+            for (XWPFTableRow row : ((XWPFTable) element).getRows()) {
+                for (XWPFTableCell cell : row.getTableCells()) {
+                    for (IBodyElement nested : cell.getBodyElements()) {
+                        forget(nested);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.yexey.wordreplacer.internal.template;
+
+import io.github.yexey.wordreplacer.internal.strategy.matcher.PlaceholderMatch;
+import io.github.yexey.wordreplacer.internal.strategy.matcher.PlaceholderMatcher;
+import io.github.yexey.wordreplacer.internal.utils.RunUtils;
+import org.apache.poi.xwpf.usermodel.*;
+
+import java.util.*;
+
+/**
+ * Collects the placeholder slots of a document in one traversal of all parts
+ */
+public class TemplateIndexer {
+    private final PlaceholderMatcher matcher;
+    private final List<ParagraphSlots> result = new ArrayList<>();
+
+    private TemplateIndexer(PlaceholderMatcher matcher) {
+        this.matcher = matcher;
+    }
+
+    /**
+     * Indexes the placeholders of the document. Like WordReplacer.replace(Map), only the first
+     * occurrence of each placeholder per paragraph gets a slot.
+     *
+     * @param document the document to index
+     * @param matcher  the matcher finding the placeholders
+     * @return the slots of all paragraphs containing at least one placeholder
+     */
+    public static List<ParagraphSlots> index(XWPFDocument document, PlaceholderMatcher matcher) {
+        TemplateIndexer indexer = new TemplateIndexer(matcher);
+        ParagraphWalker.walk(document, indexer::indexParagraph);
+        return indexer.result;
+    }
+
+    private void indexParagraph(XWPFParagraph paragraph, ParagraphLocation location) {
+        List<XWPFRun> runs = paragraph.getRuns();
+        if (runs == null || runs.isEmpty()) {
+            return;
+        }
+
+        List<PlaceholderMatch> matches = matcher.findAll(RunUtils.text(runs));
+        if (matches.isEmpty()) {
+            return;
+        }
+
+        int[] runEndPositions = RunUtils.runEndPositions(runs);
+        Set<String> seen = new HashSet<>();
+        List<PlaceholderSlot> slots = new ArrayList<>();
+        for (PlaceholderMatch match : matches) {
+            if (seen.add(match.getPlaceholder())) {
+                slots.add(new PlaceholderSlot(match.getPlaceholder(), match.getStart(), match.getEnd(), runEndPositions));
+            }
+        }
+        result.add(new ParagraphSlots(location, Collections.unmodifiableList(slots)));
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.yexey.wordreplacer.internal.utils;
+
+import org.apache.poi.xwpf.usermodel.*;
+
+import java.util.*;
+
+public class BodyUtils {
+
+    private BodyUtils() {
+    }
+
+    /**
+     * Removes paragraphs and tables from a body (document body, header, footer or table cell) in one pass.
+     *
+     * The body elements are walked once from the last to the first, so the position of every element still
+     * to be removed stays valid, and each marked element is removed through the public POI API of its body.
+     * This replaces a position lookup per element. Other body elements, e.g. content controls, are not removed.
+     *
+     * @param body     the body containing the elements
+     * @param elements the elements to remove
+     * @return the number of removed elements
+     */
+    public static int removeBodyElements(IBody body, Collection<? extends IBodyElement> elements) {
+        if (elements.isEmpty()) {
+            return 0;
+        }
+        Set<IBodyElement> remove = Collections.newSetFromMap(new IdentityHashMap<>());
+        remove.addAll(elements);
+
+        int removed = 0;
+        List<IBodyElement> bodyElements = body.getBodyElements();
+        for (int pos = bodyElements.size() - 1; pos >= 0; pos--) {
+            IBodyElement element = bodyElements.get(pos);
+            if (remove.contains(element) && removeBodyElement(body, element, pos)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private static boolean removeBodyElement(IBody body, IBodyElement element, int pos) {
+        if (!(element instanceof XWPFParagraph) && !(element instanceof XWPFTable)) {
+            return false;
+        }
+        if (body instanceof XWPFDocument) {
+            return ((XWPFDocument) body).removeBodyElement(pos);
+        }
+        if (body instanceof XWPFHeaderFooter) {
+            XWPFHeaderFooter headerFooter = (XWPFHeaderFooter) body;
+            if (element instanceof XWPFTable) {
+                headerFooter.removeTable((XWPFTable) element);
+            } else {
+                headerFooter.removeParagraph((XWPFParagraph) element);
+            }
+            return true;
+        }
+        if (body instanceof XWPFTableCell) {
+            XWPFTableCell cell = (XWPFTableCell) body;
+            if (element instanceof XWPFTable) {
+                cell.removeTable(cell.getTables().indexOf(element));
+            } else {
+                cell.removeParagraph(cell.getParagraphs().indexOf(element));
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -1,5 +1,7 @@
 package io.github.yexey.wordreplacer.internal.utils;
 
+import io.github.yexey.wordreplacer.internal.model.DocumentTextModel;
+import io.github.yexey.wordreplacer.internal.model.ParagraphText;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
 import org.apache.poi.xwpf.usermodel.XWPFRun;
 
@@ -30,4 +32,17 @@ public class BookmarkUtils {
         String paragraphText = sb.toString();
         return paragraphText.contains(bookmark);
     }
-}
\ No newline at end of file
+
+    /**
+     * Checks if a paragraph contains the specified bookmark, using the paragraph text cached in the text model.
+     *
+     * @param paragraph the paragraph to check
+     * @param bookmark  the bookmark to search for
+     * @param textModel the text model of the paragraph's document
+     * @return true if the paragraph contains the bookmark, false otherwise
+     */
+    public static boolean containsBookmark(XWPFParagraph paragraph, String bookmark, DocumentTextModel textModel) {
+        ParagraphText text = textModel.get(paragraph);
+        return text.getRunCount() > 0 && text.getText().contains(bookmark);
+    }
+}
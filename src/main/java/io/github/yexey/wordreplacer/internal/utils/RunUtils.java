@@ -0,0 +1,155 @@
+package io.github.yexey.wordreplacer.internal.utils;
+
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+
+import java.util.List;
+
+public class RunUtils {
+    /**
+     * Builds the table of run end positions for the concatenated text of the given runs.
+     * Entry {@code i + 1} holds the end offset of run {@code i}, entry 0 is always 0.
+     *
+     * @param runs the runs of a paragraph
+     * @return the run end positions, one entry longer than the number of runs
+     */
+    public static int[] runEndPositions(List<XWPFRun> runs) {
+        int[] runEndPositions = new int[runs.size() + 1];
+        int length = 0;
+        for (int i = 0; i < runs.size(); i++) {
+            String text = runs.get(i).getText(0);
+            if (text != null) {
+                length += text.length();
+            }
+            runEndPositions[i + 1] = length;
+        }
+        return runEndPositions;
+    }
+
+    /**
+     * Concatenates the text of the given runs.
+     *
+     * @param runs the runs of a paragraph
+     * @return the paragraph text as seen by the replacement logic
+     */
+    public static String text(List<XWPFRun> runs) {
+        StringBuilder sb = new StringBuilder();
+        for (XWPFRun run : runs) {
+            String text = run.getText(0);
+            if (text != null) {
+                sb.append(text);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Replaces the text range [start, end) of the paragraph, which may span multiple runs.
+     * The replacement is written into the run the range starts in, so it keeps that run's formatting,
+     * and the runs following it up to the run the range ends in are removed.
+     *
+     * Several ranges of the same paragraph may be replaced with the same run end positions
+     * as long as they are replaced from right to left.
+     *
+     * @param paragraph       the paragraph containing the runs
+     * @param runEndPositions the run end positions as built by {@link #runEndPositions(List)}
+     * @param start           the start offset of the range in the paragraph text
+     * @param end             the end offset of the range in the paragraph text
+     * @param replacement     the text to replace the range with
+     * @return true if the range was found and replaced, false otherwise
+     */
+    public static boolean replaceRange(XWPFParagraph paragraph, int[] runEndPositions,
+                                       int start, int end, String replacement) {
+        List<XWPFRun> runs = paragraph.getRuns();
+
+        // Find which runs contain the range
+        int startRunIndex = -1;
+        int endRunIndex = -1;
+
+        for (int i = 0; i < runs.size() && i + 1 < runEndPositions.length; i++) {
+            if (startRunIndex == -1 && runEndPositions[i + 1] > start) {
+                startRunIndex = i;
+            }
+            if (endRunIndex == -1 && runEndPositions[i + 1] >= end) {
+                endRunIndex = i;
+                break;
+            }
+        }
+
+        if (startRunIndex == -1 || endRunIndex == -1) {
+            return false;
+        }
+
+        return replaceRuns(paragraph, startRunIndex, start - runEndPositions[startRunIndex],
+                endRunIndex, end - runEndPositions[endRunIndex], replacement);
+    }
+
+    /**
+     * Replaces the text from an offset in one run to an offset in a later (or the same) run.
+     * The replacement is written into the start run and the runs after it up to the end run are removed.
+     *
+     * @param paragraph     the paragraph containing the runs
+     * @param startRunIndex the index of the run the range starts in
+     * @param startInRun    the start offset within the start run
+     * @param endRunIndex   the index of the run the range ends in
+     * @param endInRun      the end offset within the end run
+     * @param replacement   the text to replace the range with
+     * @return true if the range was replaced, false if the runs no longer exist
+     */
+    public static boolean replaceRuns(XWPFParagraph paragraph, int startRunIndex, int startInRun,
+                                      int endRunIndex, int endInRun, String replacement) {
+        List<XWPFRun> runs = paragraph.getRuns();
+        if (endRunIndex >= runs.size()) {
+            return false;
+        }
+
+        // Modify the runs
+        XWPFRun startRun = runs.get(startRunIndex);
+        String startRunText = startRun.getText(0) != null ? startRun.getText(0) : "";
+
+        XWPFRun endRun = runs.get(endRunIndex);
+        String endRunText = endRun.getText(0) != null ? endRun.getText(0) : "";
+
+        // Create new text for first run
+        String textBefore = startRunText.substring(0, startInRun);
+        String textAfter = endRunText.substring(endInRun);
+
+        // Set the new text and remove extra runs
+        startRun.setText(textBefore + replacement + textAfter, 0);
+        for (int i = endRunIndex; i > startRunIndex; i--) {
+            paragraph.removeRun(i);
+        }
+
+        return true;
+    }
+
+    /**
+     * Splits a run at an offset and inserts a new empty run between the text before and after the offset.
+     * The text after the offset is moved into a run of its own; both new runs copy the formatting of the split run.
+     *
+     * @param paragraph the paragraph containing the run
+     * @param runIndex  the index of the run to split
+     * @param offset    the offset within the run's text
+     * @return the new empty run
+     */
+    public static XWPFRun splitRun(XWPFParagraph paragraph, int runIndex, int offset) {
+        XWPFRun run = paragraph.getRuns().get(runIndex);
+        String text = run.getText(0) != null ? run.getText(0) : "";
+        String textAfter = text.substring(offset);
+        run.setText(text.substring(0, offset), 0);
+
+        XWPFRun inserted = insertRunWithFormatting(paragraph, runIndex + 1, run);
+        if (!textAfter.isEmpty()) {
+            insertRunWithFormatting(paragraph, runIndex + 2, run).setText(textAfter);
+        }
+        return inserted;
+    }
+
+    private static XWPFRun insertRunWithFormatting(XWPFParagraph paragraph, int pos, XWPFRun format) {
+        XWPFRun inserted = paragraph.insertNewRun(pos);
+        if (format.getCTR().isSetRPr()) {
+            inserted.getCTR().setRPr(format.getCTR().getRPr());
+        }
+        return inserted;
+    }
+}
@@ -0,0 +1,132 @@
+package io.github.yexey.wordreplacer.internal.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.apache.xmlbeans.XmlCursor;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRow;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTbl;
+
+import javax.xml.namespace.QName;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+public class TableUtils {
+
+    private static final QName ROW = new QName("http://schemas.openxmlformats.org/wordprocessingml/2006/main", "tr");
+
+    /**
+     * The row list of XWPFTable, which POI only fills through methods that insert the row XML by position.
+     * There is no public way around it: re-creating the table with new XWPFTable(ctTbl, body) reads the rows
+     * through a list that counts them again for every row, which is quadratic as well.
+     */
+    private static final Field TABLE_ROWS = tableRowsField();
+
+    /**
+     * Inserts copies of row XML into a table after a given row, each one next to the previous one.
+     *
+     * XWPFTable.addRow() looks up the insert position among the table's rows, copies the row XML twice and
+     * shifts the row list, so inserting n rows one by one costs O(n^2). Here every row XML is inserted at a
+     * cursor that stays behind the last inserted row, and {@link #close()} registers all new rows with the
+     * table in one step by adding them to its private row list.
+     *
+     * If that list is not accessible, e.g. with POI on the module path, the rows are registered one by one
+     * through XWPFTable.addRow() instead. The result is the same, only slower for many rows.
+     */
+    public static class RowInserter implements AutoCloseable {
+        private final XWPFTable table;
+        private final int position;
+        private final XmlCursor cursor;
+        private final List<XWPFTableRow> rows = new ArrayList<>();
+        private final boolean reflective;
+
+        /**
+         * @param after the row to insert the new rows after
+         */
+        public RowInserter(XWPFTableRow after) {
+            this(after, TABLE_ROWS != null);
+        }
+
+        /**
+         * @param after      the row to insert the new rows after
+         * @param reflective whether to register the rows through the row list of XWPFTable if it is accessible,
+         *                   false to always use XWPFTable.addRow()
+         */
+        public RowInserter(XWPFTableRow after, boolean reflective) {
+            this.reflective = reflective;
+            this.table = after.getTable();
+            this.position = table.getRows().indexOf(after) + 1;
+            this.cursor = after.getCtRow().newCursor();
+            cursor.toEndToken();
+            cursor.toNextToken();
+        }
+
+        /**
+         * Inserts a copy of the row XML after the previously inserted row.
+         *
+         * @param source the row XML to copy, typically a detached prototype
+         * @return the inserted row, registered with the table on {@link #close()}
+         */
+        public XWPFTableRow insert(CTRow source) {
+            cursor.beginElement(ROW);
+            cursor.toParent();
+            CTRow ctRow = (CTRow) cursor.getObject();
+            ctRow.set(source);
+            cursor.toEndToken();
+            cursor.toNextToken();
+
+            XWPFTableRow row = new XWPFTableRow(ctRow, table);
+            rows.add(row);
+            return row;
+        }
+
+        /**
+         * Registers the inserted rows with the table.
+         */
+        @Override
+        public void close() {
+            cursor.close();
+            if (rows.isEmpty()) {
+                return;
+            }
+            List<XWPFTableRow> tableRows = reflective ? tableRows(table) : null;
+            if (tableRows != null) {
+                tableRows.addAll(position, rows);
+            } else {
+                // Registers every row at its position; the copy addRow() inserts before it is removed again
+                CTTbl ctTbl = table.getCTTbl();
+                for (int i = 0; i < rows.size(); i++) {
+                    table.addRow(rows.get(i), position + i);
+                    ctTbl.removeTr(position + i);
+                }
+            }
+            rows.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<XWPFTableRow> tableRows(XWPFTable table) {
+        if (TABLE_ROWS == null) {
+            return null;
+        }
+        try {
+            return (List<XWPFTableRow>) TABLE_ROWS.get(table);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static Field tableRowsField() {
+        try {
+            Field field = XWPFTable.class.getDeclaredField("tableRows");
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // E.g. POI on the module path; rows are then registered through XWPFTable.addRow()
+            log.debug("Cannot access the rows of XWPFTable, inserting many rows will be slow", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package io.github.yexey.wordreplacer;
+
+import org.apache.poi.xwpf.usermodel.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static io.github.yexey.wordreplacer.TestDocuments.extractFullText;
+import static io.github.yexey.wordreplacer.TestDocuments.loadTemplate;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncRendererTest {
+
+    @Test
+    public void testAsyncRendererRejectsWhenSaturated() throws Exception {
+        CompiledTemplate compiled = CompiledTemplate.compile(loadTemplate(), List.of("{{NAME}}"));
+
+        // Ein Kanal, der erst nach Freigabe schreibt, hält den einzigen Render-Thread belegt
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        WritableByteChannel blockingChannel = blockingChannel(release, written);
+
+        try (AsyncRenderer renderer = AsyncRenderer.builder().threads(1).queueCapacity(1).build()) {
+            CompletableFuture<Void> running = renderer.render(compiled, Map.of("{{NAME}}", "Jane"), blockingChannel);
+            CompletableFuture<byte[]> queued = renderer.render(compiled, Map.of("{{NAME}}", "John"));
+            CompletableFuture<byte[]> rejected = renderer.render(compiled, Map.of("{{NAME}}", "Max"));
+
+            // Ein laufendes und ein wartendes Rendering belegen alle Plätze, das dritte wird sofort abgelehnt
+            assertEquals(2, renderer.getInFlight());
+            CompletionException failure = assertThrows(CompletionException.class, rejected::join);
+            assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+
+            release.countDown();
+            running.join();
+            try (XWPFDocument rendered = new XWPFDocument(new ByteArrayInputStream(written.toByteArray()))) {
+                assertTrue(extractFullText(rendered).contains("Hier ist mein Text Jane"));
+            }
+            try (XWPFDocument rendered = new XWPFDocument(new ByteArrayInputStream(queued.join()))) {
+                assertTrue(extractFullText(rendered).contains("Hier ist mein Text John"));
+            }
+        }
+    }
+
+    @Test
+    public void testAsyncRendererWaitsForSlot() throws Exception {
+        CompiledTemplate compiled = CompiledTemplate.compile(loadTemplate(), List.of("{{NAME}}"));
+        CountDownLatch release = new CountDownLatch(1);
+        WritableByteChannel blockingChannel = blockingChannel(release, new ByteArrayOutputStream());
+
+        try (AsyncRenderer renderer = AsyncRenderer.builder()
+                .threads(1)
+                .queueCapacity(1)
+                .overflowPolicy(AsyncRenderer.OverflowPolicy.WAIT)
+                .maxWait(Duration.ofSeconds(30))
+                .build()) {
+            CompletableFuture<Void> running = renderer.render(compiled, Map.of("{{NAME}}", "Jane"), blockingChannel);
+            CompletableFuture<byte[]> queued = renderer.render(compiled, Map.of("{{NAME}}", "John"));
+
+            // Der dritte Aufruf blockiert den Aufrufer, bis ein Platz frei wird
+            CompletableFuture<CompletableFuture<byte[]>> waiting = CompletableFuture.supplyAsync(
+                    () -> renderer.render(compiled, Map.of("{{NAME}}", "Max")));
+            assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+            assertEquals(2, renderer.getInFlight());
+
+            release.countDown();
+            byte[] document = waiting.get(30, TimeUnit.SECONDS).join();
+            try (XWPFDocument rendered = new XWPFDocument(new ByteArrayInputStream(document))) {
+                assertTrue(extractFullText(rendered).contains("Hier ist mein Text Max"));
+            }
+            running.join();
+            queued.join();
+        }
+
+        // Nach Ablauf der Wartezeit wird das Rendering abgelehnt
+        CountDownLatch blocked = new CountDownLatch(1);
+        try (AsyncRenderer renderer = AsyncRenderer.builder()
+                .threads(1)
+                .queueCapacity(1)
+                .overflowPolicy(AsyncRenderer.OverflowPolicy.WAIT)
+                .maxWait(Duration.ofMillis(50))
+                .build()) {
+            CompletableFuture<Void> running = renderer.render(compiled, Map.of("{{NAME}}", "Jane"),
+                    blockingChannel(blocked, new ByteArrayOutputStream()));
+            renderer.render(compiled, Map.of("{{NAME}}", "John"));
+
+            long start = System.nanoTime();
+            CompletableFuture<byte[]> rejected = renderer.render(compiled, Map.of("{{NAME}}", "Max"));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+            CompletionException failure = assertThrows(CompletionException.class, rejected::join);
+            assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+
+            blocked.countDown();
+            running.join();
+        }
+    }
+
+    /**
+     * Ein Kanal, der erst nach Freigabe des Latches schreibt
+     */
+    private WritableByteChannel blockingChannel(CountDownLatch release, ByteArrayOutputStream written) {
+        return new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+                int length = source.remaining();
+                byte[] bytes = new byte[length];
+                source.get(bytes);
+                written.write(bytes, 0, length);
+                return length;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
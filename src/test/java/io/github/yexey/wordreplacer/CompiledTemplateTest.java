@@ -0,0 +1,58 @@
+package io.github.yexey.wordreplacer;
+
+import org.apache.poi.xwpf.usermodel.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static io.github.yexey.wordreplacer.TestDocuments.extractFullText;
+import static io.github.yexey.wordreplacer.TestDocuments.loadTemplate;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledTemplateTest {
+
+    @Test
+    public void testRenderMatchesWordReplacer() throws Exception {
+        byte[] template = loadTemplate();
+
+        Map<String, String> values = new HashMap<>();
+        values.put("{{NAME}}", "John Doe");
+        values.put("{{EMAIL}}", "john.doe@example.com");
+        values.put("{{PHONE}}", "(555) 123-4567");
+        values.put("{{DATE}}", "2023-03-03");
+
+        CompiledTemplate compiled = CompiledTemplate.compile(template, values.keySet());
+        assertEquals(Set.of("{{NAME}}", "{{EMAIL}}", "{{PHONE}}", "{{DATE}}"), compiled.getPlaceholders());
+
+        // Mehrfaches Rendern derselben kompilierten Vorlage muss dasselbe Ergebnis liefern wie WordReplacer
+        try (XWPFDocument expected = new XWPFDocument(new ByteArrayInputStream(template))) {
+            new WordReplacer(expected).replace(values);
+            for (int i = 0; i < 2; i++) {
+                try (XWPFDocument rendered = compiled.render(values)) {
+                    assertEquals(extractFullText(expected), extractFullText(rendered));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCompileWithPattern() throws Exception {
+        CompiledTemplate compiled = CompiledTemplate.compile(loadTemplate(), Pattern.compile("\\{\\{[A-Z]+}}"));
+        assertTrue(compiled.getPlaceholders().containsAll(List.of("{{NAME}}", "{{PHONE}}", "{{NOTES}}")));
+
+        // Ohne Wert bleibt der Platzhalter stehen
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compiled.render(Map.of("{{NAME}}", "Jane"), out);
+        try (XWPFDocument rendered = new XWPFDocument(new ByteArrayInputStream(out.toByteArray()))) {
+            String text = extractFullText(rendered);
+            assertTrue(text.contains("Hier ist mein Text Jane"));
+            assertTrue(text.contains("{{PHONE}}"));
+        }
+    }
+}
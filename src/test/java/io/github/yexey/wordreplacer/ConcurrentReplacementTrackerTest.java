@@ -0,0 +1,71 @@
+package io.github.yexey.wordreplacer;
+
+import io.github.yexey.wordreplacer.internal.strategy.tracker.impl.ConcurrentReplacementTracker;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentReplacementTrackerTest {
+
+    /**
+     * Prüft, dass gleichzeitig aus vielen Threads gezählte Treffer vollständig ankommen, auch während neue
+     * Platzhalter registriert werden und das Zählerfeld wächst
+     */
+    @Test
+    public void testConcurrentTotals() throws Exception {
+        int threads = 8;
+        int rounds = 2000;
+        ConcurrentReplacementTracker tracker = new ConcurrentReplacementTracker();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    int shared = tracker.idOf("{{GEMEINSAM}}");
+                    for (int i = 0; i < rounds; i++) {
+                        tracker.trackReplacement("{{NAME}}", "John", true);
+                        tracker.trackReplacements("{{ORT}}", "Berlin", 2);
+                        tracker.trackHits(shared, 3);
+                        // Jeder Thread registriert eigene Platzhalter, sodass die Ids wachsen
+                        if (i % 20 == 0) {
+                            tracker.trackReplacements("{{T" + thread + "_" + i + "}}", "x", 1);
+                        }
+                        tracker.trackReplacement("{{FEHLT}}", "x", false);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals((long) threads * rounds, tracker.getHits("{{NAME}}"));
+        assertEquals(2L * threads * rounds, tracker.getHits("{{ORT}}"));
+        assertEquals(3L * threads * rounds, tracker.getHits("{{GEMEINSAM}}"));
+        assertEquals(0, tracker.getHits("{{FEHLT}}"));
+
+        Map<String, Integer> counts = tracker.getReplacementCounts();
+        assertEquals(4 + threads * rounds / 20, counts.size());
+        assertEquals(1, counts.get("{{T" + (threads - 1) + "_" + (rounds - 20) + "}}"));
+        assertEquals(List.of("{{FEHLT}}"), tracker.getFailedReplacements());
+
+        tracker.reset();
+        assertEquals(0, tracker.getHits("{{NAME}}"));
+        assertEquals(counts.size(), tracker.getFailedReplacements().size());
+    }
+}
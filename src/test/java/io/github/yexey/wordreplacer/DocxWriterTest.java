@@ -0,0 +1,56 @@
+package io.github.yexey.wordreplacer;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocxWriterTest {
+
+    @Test
+    public void testParallelStoredWrite() throws Exception {
+        byte[] template;
+        try (InputStream resourceStream = getClass().getClassLoader().getResourceAsStream("template.docx")) {
+            assertNotNull(resourceStream, "template.docx konnte nicht in src/test/resources gefunden werden");
+            template = resourceStream.readAllBytes();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(template))) {
+            WordReplacer replacer = new WordReplacer(document);
+            replacer.replace("{{NAME}}", "John Doe");
+            replacer.replace("{{DATE}}", "2023-03-03");
+
+            DocxWriter writer = DocxWriter.builder()
+                    .executor(executor)
+                    .compressionLevel(Deflater.NO_COMPRESSION)
+                    .build();
+            writer.write(replacer, template, out);
+        } finally {
+            executor.shutdown();
+        }
+
+        try (XWPFDocument written = new XWPFDocument(new ByteArrayInputStream(out.toByteArray()))) {
+            String text = written.getParagraphs().stream().map(XWPFParagraph::getText).reduce("", String::concat);
+            assertTrue(text.contains("Hier ist mein Text John Doe"), "Name wurde nicht korrekt ersetzt");
+        }
+
+        // Geänderte Teile werden unkomprimiert gespeichert, unveränderte bleiben komprimiert
+        try (ZipFile zip = ZipFile.builder().setSeekableByteChannel(new SeekableInMemoryByteChannel(out.toByteArray())).get()) {
+            assertEquals(ZipArchiveEntry.STORED, zip.getEntry("word/document.xml").getMethod());
+            assertEquals(ZipArchiveEntry.DEFLATED, zip.getEntry("word/styles.xml").getMethod());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package io.github.yexey.wordreplacer;
+
+import io.github.yexey.wordreplacer.internal.strategy.tracker.ReplacementTracker;
+import io.github.yexey.wordreplacer.internal.strategy.tracker.impl.ConcurrentReplacementTracker;
+import org.apache.poi.xwpf.usermodel.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static io.github.yexey.wordreplacer.TestDocuments.extractFullText;
+import static io.github.yexey.wordreplacer.TestDocuments.loadTemplate;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailMergeTest {
+
+    @Test
+    public void testMailMergePreservesOrder() throws Exception {
+        CompiledTemplate compiled = CompiledTemplate.compile(loadTemplate(), List.of("{{NAME}}"));
+        List<Map<String, String>> records = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            records.add(Map.of("{{NAME}}", "Person " + i));
+        }
+
+        ConcurrentReplacementTracker tracker = new ConcurrentReplacementTracker();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            MailMerge merge = MailMerge.builder()
+                    .template(compiled)
+                    .executor(executor)
+                    .tracker(tracker)
+                    .ordered(true)
+                    .maxInFlight(3)
+                    .build();
+
+            // Geordnete Ausgabe: Index und Inhalt müssen der Eingabereihenfolge entsprechen
+            List<Long> indexes = new ArrayList<>();
+            MailMerge.Stats stats = merge.run(records.stream(), (index, record, document) -> {
+                indexes.add(index);
+                try (XWPFDocument rendered = new XWPFDocument(new ByteArrayInputStream(document))) {
+                    assertTrue(extractFullText(rendered).contains("Hier ist mein Text Person " + index));
+                }
+            });
+
+            assertEquals(20, stats.getDocuments());
+            assertEquals(LongStream.range(0, 20).boxed().collect(Collectors.toList()), indexes);
+
+            // Alle parallel gerenderten Dokumente zählen in denselben Tracker
+            assertEquals(20, tracker.getHits("{{NAME}}"));
+            assertTrue(tracker.getFailedReplacements().isEmpty());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testMailMergeDeliversInCompletionOrder() throws Exception {
+        CompiledTemplate compiled = CompiledTemplate.compile(loadTemplate(), List.of("{{NAME}}"));
+        List<Map<String, String>> records = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            records.add(Map.of("{{NAME}}", "Person " + i));
+        }
+
+        // Der erste Datensatz wird erst gerendert, wenn alle anderen ausgeliefert sind
+        CountDownLatch othersDelivered = new CountDownLatch(4);
+        AtomicInteger submitted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Executor executor = task -> pool.execute(submitted.getAndIncrement() > 0 ? task : () -> {
+            try {
+                othersDelivered.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            task.run();
+        });
+        try {
+            MailMerge merge = MailMerge.builder()
+                    .template(compiled)
+                    .executor(executor)
+                    .maxInFlight(5)
+                    .build();
+
+            List<Long> indexes = new ArrayList<>();
+            MailMerge.Stats stats = merge.run(records, (index, record, document) -> {
+                indexes.add(index);
+                assertEquals(records.get((int) index), record);
+                try (XWPFDocument rendered = new XWPFDocument(new ByteArrayInputStream(document))) {
+                    assertTrue(extractFullText(rendered).contains("Hier ist mein Text Person " + index));
+                }
+                othersDelivered.countDown();
+            });
+
+            // Ungeordnete Ausgabe: fertige Dokumente werden sofort ausgeliefert, das verzögerte zuletzt
+            assertEquals(5, stats.getDocuments());
+            assertEquals(0L, indexes.get(4));
+            assertEquals(Set.of(0L, 1L, 2L, 3L, 4L), new HashSet<>(indexes));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testMailMergePropagatesRenderFailure() throws Exception {
+        CompiledTemplate compiled = CompiledTemplate.compile(loadTemplate(), List.of("{{NAME}}"));
+        List<Map<String, String>> records = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            records.add(Map.of("{{NAME}}", i == 2 ? "Fehler" : "Person " + i));
+        }
+
+        // Ein Tracker, der beim Rendern des dritten Datensatzes scheitert
+        ReplacementTracker failingTracker = new ConcurrentReplacementTracker() {
+            @Override
+            public void trackReplacements(String bookmark, String replacement, int hits) {
+                if ("Fehler".equals(replacement)) {
+                    throw new UncheckedIOException(new IOException("Speicher voll"));
+                }
+                super.trackReplacements(bookmark, replacement, hits);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            MailMerge merge = MailMerge.builder()
+                    .template(compiled)
+                    .executor(executor)
+                    .tracker(failingTracker)
+                    .ordered(true)
+                    .maxInFlight(2)
+                    .build();
+
+            // Die Datensätze vor dem fehlerhaften werden noch ausgeliefert, danach bricht der Lauf ab
+            List<Long> indexes = new ArrayList<>();
+            IOException failure = assertThrows(IOException.class,
+                    () -> merge.run(records, (index, record, document) -> indexes.add(index)));
+            assertEquals("Could not render record 2", failure.getMessage());
+            assertEquals("Speicher voll", failure.getCause().getMessage());
+            assertEquals(List.of(0L, 1L), indexes);
+
+            // Fehler des Empfängers werden unverändert weitergereicht
+            IOException handlerFailure = new IOException("Ablage nicht erreichbar");
+            MailMerge working = MailMerge.builder().template(compiled).executor(executor).build();
+            assertSame(handlerFailure, assertThrows(IOException.class,
+                    () -> working.run(List.of(Map.of("{{NAME}}", "Jane")), (index, record, document) -> {
+                        throw handlerFailure;
+                    })));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
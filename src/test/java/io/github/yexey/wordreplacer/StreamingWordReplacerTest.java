@@ -0,0 +1,192 @@
+package io.github.yexey.wordreplacer;
+
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.poi.openxml4j.util.ZipSecureFile;
+import org.apache.poi.xwpf.usermodel.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static io.github.yexey.wordreplacer.TestDocuments.extractFullText;
+import static io.github.yexey.wordreplacer.TestDocuments.loadTemplate;
+import static io.github.yexey.wordreplacer.TestDocuments.rawEntry;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingWordReplacerTest {
+
+    @Test
+    public void testStreamingMatchesWordReplacer() throws Exception {
+        byte[] template = loadTemplate();
+
+        Map<String, String> replacements = new HashMap<>();
+        replacements.put("{{NAME}}", " John Doe ");
+        replacements.put("{{EMAIL}}", "john.doe@example.com");
+        replacements.put("{{PHONE}}", "(555) 123-4567");
+        replacements.put("{{DATE}}", "2023-03-03 & <morgen>");
+        replacements.put("{{NOTES}}", "Keine");
+
+        StreamingWordReplacer replacer = new StreamingWordReplacer(replacements);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        replacer.render(new ByteArrayInputStream(template), out);
+
+        // Das gestreamte Ergebnis muss dem DOM-basierten Ergebnis entsprechen
+        try (XWPFDocument expected = new XWPFDocument(new ByteArrayInputStream(template));
+             XWPFDocument streamed = new XWPFDocument(new ByteArrayInputStream(out.toByteArray()))) {
+            new WordReplacer(expected).replace(replacements);
+            assertEquals(extractFullText(expected), extractFullText(streamed));
+            assertTrue(extractFullText(streamed).contains("Hier ist mein Text  John Doe  an"));
+        }
+        assertEquals(3, replacer.getTracker().getReplacementCounts().get("{{PHONE}}"));
+        assertTrue(replacer.getTracker().getFailedReplacements().isEmpty());
+    }
+
+    /**
+     * Prüft, dass eine Tabellenzeile beim Streamen je Datensatz aus dem Iterator wiederholt wird
+     */
+    @Test
+    public void testStreamingRepeatsTableRows() throws Exception {
+        byte[] template;
+        try (XWPFDocument document = new XWPFDocument()) {
+            document.createParagraph().createRun().setText("Rechnung für {{NAME}}");
+            XWPFTable table = document.createTable(2, 2);
+            table.getRow(0).getCell(0).getParagraphs().get(0).createRun().setText("Artikel");
+            XWPFParagraph first = table.getRow(1).getCell(0).getParagraphs().get(0);
+            first.createRun().setText("{{ZEILE}}{{ART");
+            first.createRun().setText("IKEL}}");
+            table.getRow(1).getCell(1).getParagraphs().get(0).createRun().setText("{{PREIS}} für {{NAME}}");
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            document.write(bytes);
+            template = bytes.toByteArray();
+        }
+
+        List<Map<String, String>> records = List.of(
+                Map.of("{{ARTIKEL}}", "Tisch", "{{PREIS}}", "100"),
+                Map.of("{{ARTIKEL}}", "Stuhl", "{{PREIS}}", "40"));
+
+        StreamingWordReplacer replacer = new StreamingWordReplacer(Map.of("{{NAME}}", "John Doe"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        replacer.render(new ByteArrayInputStream(template), out, Map.of("{{ZEILE}}", records.iterator()));
+
+        try (XWPFDocument streamed = new XWPFDocument(new ByteArrayInputStream(out.toByteArray()))) {
+            XWPFTable table = streamed.getTables().get(0);
+            assertEquals(3, table.getNumberOfRows());
+            assertEquals("Artikel", table.getRow(0).getCell(0).getText());
+            assertEquals("Tisch", table.getRow(1).getCell(0).getText());
+            assertEquals("100 für John Doe", table.getRow(1).getCell(1).getText());
+            assertEquals("Stuhl", table.getRow(2).getCell(0).getText());
+            assertEquals("40 für John Doe", table.getRow(2).getCell(1).getText());
+            assertEquals("Rechnung für John Doe", streamed.getParagraphs().get(0).getText());
+        }
+        assertEquals(3, replacer.getTracker().getReplacementCounts().get("{{NAME}}"));
+    }
+
+    /**
+     * Prüft, dass alle anderen Einträge mit unveränderten komprimierten Daten kopiert werden, auch aus von POI
+     * geschriebenen Dateien mit Data Descriptor
+     */
+    @Test
+    public void testStreamingCopiesEntriesUnchanged() throws Exception {
+        byte[] wordTemplate = loadTemplate();
+        byte[] poiTemplate;
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(wordTemplate))) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            document.write(bytes);
+            poiTemplate = bytes.toByteArray();
+        }
+
+        StreamingWordReplacer replacer = new StreamingWordReplacer(Map.of("{{NAME}}", "John Doe"));
+        for (byte[] template : List.of(wordTemplate, poiTemplate)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            replacer.render(new ByteArrayInputStream(template), out);
+
+            try (ZipFile original = ZipFile.builder().setSeekableByteChannel(new SeekableInMemoryByteChannel(template)).get();
+                 ZipFile result = ZipFile.builder().setSeekableByteChannel(new SeekableInMemoryByteChannel(out.toByteArray())).get()) {
+                for (String name : List.of("word/styles.xml", "word/theme/theme1.xml", "[Content_Types].xml")) {
+                    assertEquals(original.getEntry(name).getMethod(), result.getEntry(name).getMethod());
+                    assertArrayEquals(rawEntry(original, name), rawEntry(result, name), name);
+                }
+            }
+            try (XWPFDocument streamed = new XWPFDocument(new ByteArrayInputStream(out.toByteArray()))) {
+                assertTrue(extractFullText(streamed).contains("John Doe"));
+            }
+        }
+    }
+
+    /**
+     * Prüft, dass Eingaben ohne word/document.xml abgelehnt werden, statt eine leere Datei zu schreiben
+     */
+    @Test
+    public void testStreamingRejectsNonDocxInput() throws Exception {
+        StreamingWordReplacer replacer = new StreamingWordReplacer(Map.of("{{NAME}}", "John Doe"));
+
+        byte[] text = "Kein ZIP".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> replacer.render(new ByteArrayInputStream(text), new ByteArrayOutputStream()));
+        assertThrows(IOException.class,
+                () -> replacer.render(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream()));
+
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            out.putNextEntry(new ZipEntry("readme.txt"));
+            out.write(text);
+            out.closeEntry();
+        }
+        IOException exception = assertThrows(IOException.class,
+                () -> replacer.render(new ByteArrayInputStream(zip.toByteArray()), new ByteArrayOutputStream()));
+        assertTrue(exception.getMessage().contains("word/document.xml"));
+    }
+
+    /**
+     * Prüft, dass beim Streamen dieselben Zip-Bomb-Grenzen wie beim Öffnen durch POI gelten
+     */
+    @Test
+    public void testStreamingRejectsZipBombs() throws Exception {
+        byte[] template = loadTemplate();
+
+        // Das Dokument wird um viele MB stark komprimierbarer Leerzeichen aufgebläht
+        ByteArrayOutputStream bomb = new ByteArrayOutputStream();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(template));
+             ZipOutputStream out = new ZipOutputStream(bomb)) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                byte[] content = in.readAllBytes();
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                if (entry.getName().equals("word/document.xml")) {
+                    String xml = new String(content, StandardCharsets.UTF_8);
+                    int end = xml.lastIndexOf("</w:body>");
+                    out.write(xml.substring(0, end).getBytes(StandardCharsets.UTF_8));
+                    out.write(" ".repeat(20 * 1024 * 1024).getBytes(StandardCharsets.US_ASCII));
+                    out.write(xml.substring(end).getBytes(StandardCharsets.UTF_8));
+                } else {
+                    out.write(content);
+                }
+                out.closeEntry();
+            }
+        }
+
+        StreamingWordReplacer replacer = new StreamingWordReplacer(Map.of("{{NAME}}", "John Doe"));
+        IOException exception = assertThrows(IOException.class,
+                () -> replacer.render(new ByteArrayInputStream(bomb.toByteArray()), OutputStream.nullOutputStream()));
+        assertTrue(String.valueOf(exception.getMessage()).contains("Zip bomb")
+                        || String.valueOf(exception.getCause()).contains("Zip bomb"),
+                "Zip-Bomb wurde nicht erkannt: " + exception);
+
+        // Mit gelockerter Grenze lässt sich dieselbe Datei verarbeiten
+        double minInflateRatio = ZipSecureFile.getMinInflateRatio();
+        ZipSecureFile.setMinInflateRatio(0);
+        try {
+            replacer.render(new ByteArrayInputStream(bomb.toByteArray()), OutputStream.nullOutputStream());
+        } finally {
+            ZipSecureFile.setMinInflateRatio(minInflateRatio);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.yexey.wordreplacer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testHotColdTiers() throws Exception {
+        Path first = copyTemplate("first.docx");
+        Path second = copyTemplate("second.docx");
+        long templateSize = Files.size(first);
+
+        // Nur ein Template passt in die heiße Stufe, beide in die kalte
+        TemplateCache cache = new TemplateCache(
+                bytes -> CompiledTemplate.compile(bytes, List.of("{{NAME}}")), templateSize, 2 * templateSize);
+
+        CompiledTemplate compiled = cache.get(first);
+        assertSame(compiled, cache.get(first));
+        cache.get(second);
+        assertNotNull(cache.get(first));
+
+        TemplateCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(1, stats.getColdHits());
+        assertEquals(2, stats.getEvictions());
+        assertEquals(1, stats.getHotEntries());
+        assertEquals(1, stats.getColdEntries());
+
+        // Eine geänderte Datei wird neu geladen
+        Files.setLastModifiedTime(first, FileTime.fromMillis(Files.getLastModifiedTime(first).toMillis() + 5000));
+        assertNotSame(compiled, cache.get(first));
+        assertEquals(3, cache.getStats().getMisses());
+    }
+
+    @Test
+    public void testContentHashKey() throws Exception {
+        byte[] template = Files.readAllBytes(copyTemplate("template.docx"));
+        TemplateCache cache = new TemplateCache(
+                bytes -> CompiledTemplate.compile(bytes, List.of("{{NAME}}")), Long.MAX_VALUE, Long.MAX_VALUE);
+
+        assertSame(cache.get(template), cache.get(template.clone()));
+        assertEquals(1, cache.getStats().getMisses());
+        assertEquals(1, cache.getStats().getHits());
+    }
+
+    /**
+     * Prüft, dass ein Ladevorgang, der ein clear() oder eine Dateiänderung überdauert, nicht mehr im Cache landet
+     */
+    @Test
+    public void testStaleLoadsAreNotCached() throws Exception {
+        Path path = copyTemplate("template.docx");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // Der Cache wird geleert, während das Template noch kompiliert wird
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            TemplateCache cache = new TemplateCache(blockFirstCompilation(started, release), Long.MAX_VALUE, Long.MAX_VALUE);
+            Future<CompiledTemplate> load = executor.submit(() -> cache.get(path));
+            started.await();
+            cache.clear();
+            release.countDown();
+            assertNotNull(load.get());
+            assertEquals(0, cache.getStats().getHotEntries());
+
+            // Die Datei ändert sich, während die alte Version noch kompiliert wird
+            CountDownLatch restarted = new CountDownLatch(1);
+            CountDownLatch released = new CountDownLatch(1);
+            TemplateCache changing = new TemplateCache(blockFirstCompilation(restarted, released), Long.MAX_VALUE, Long.MAX_VALUE);
+            Future<CompiledTemplate> oldLoad = executor.submit(() -> changing.get(path));
+            restarted.await();
+            Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 5000));
+            CompiledTemplate current = changing.get(path);
+            released.countDown();
+            assertNotSame(current, oldLoad.get());
+            assertEquals(1, changing.getStats().getHotEntries());
+            assertSame(current, changing.get(path));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Compiler, dessen erste Kompilierung wartet, bis sie freigegeben wird
+     */
+    private static TemplateCache.TemplateCompiler blockFirstCompilation(CountDownLatch started, CountDownLatch release) {
+        AtomicInteger compilations = new AtomicInteger();
+        return bytes -> {
+            if (compilations.getAndIncrement() == 0) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            return CompiledTemplate.compile(bytes, List.of("{{NAME}}"));
+        };
+    }
+
+    private Path copyTemplate(String name) throws Exception {
+        Path path = tempDir.resolve(name);
+        try (InputStream resourceStream = getClass().getClassLoader().getResourceAsStream("template.docx")) {
+            assertNotNull(resourceStream, "template.docx konnte nicht in src/test/resources gefunden werden");
+            Files.copy(resourceStream, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return path;
+    }
+}
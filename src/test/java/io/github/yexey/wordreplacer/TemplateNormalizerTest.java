@@ -0,0 +1,52 @@
+package io.github.yexey.wordreplacer;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFRun;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateNormalizerTest {
+
+    @Test
+    public void testNormalizeJoinsSplitPlaceholders() throws Exception {
+        byte[] template;
+        try (XWPFDocument document = new XWPFDocument()) {
+            XWPFParagraph paragraph = document.createParagraph();
+            paragraph.getCTP().setRsidR(new byte[]{0, 0x12, 0x34, 0x56});
+            paragraph.createRun().setText("Sehr geehrte");
+            XWPFRun revised = paragraph.createRun();
+            revised.getCTR().setRsidR(new byte[]{0, 0x65, 0x43, 0x21});
+            revised.setText("r Herr ");
+            paragraph.createRun().setText("{{NA");
+            XWPFRun bold = paragraph.createRun();
+            bold.setBold(true);
+            bold.setText("ME}}");
+            paragraph.createRun().setText(",");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.write(out);
+            template = out.toByteArray();
+        }
+
+        byte[] normalized = TemplateNormalizer.normalize(template, List.of("{{NAME}}"));
+
+        // Der Platzhalter steht in einem Lauf, gleich formatierte Läufe sind zusammengeführt
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(normalized))) {
+            XWPFParagraph paragraph = document.getParagraphs().get(0);
+            assertEquals("Sehr geehrter Herr {{NAME}},", paragraph.getText());
+            assertEquals(1, paragraph.getRuns().size());
+            assertFalse(paragraph.getCTP().isSetRsidR());
+        }
+
+        CompiledTemplate compiled = CompiledTemplate.compile(normalized, List.of("{{NAME}}"));
+        try (XWPFDocument rendered = compiled.render(Map.of("{{NAME}}", "Müller"))) {
+            assertEquals("Sehr geehrter Herr Müller,", rendered.getParagraphs().get(0).getText());
+        }
+    }
+}
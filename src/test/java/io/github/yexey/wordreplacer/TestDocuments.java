@@ -0,0 +1,65 @@
+package io.github.yexey.wordreplacer;
+
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.poi.xwpf.usermodel.*;
+
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Hilfsmethoden zum Laden der Testvorlage und zum Auslesen erzeugter Dokumente
+ */
+final class TestDocuments {
+
+    private TestDocuments() {
+    }
+
+    /**
+     * Lädt template.docx aus src/test/resources
+     */
+    static byte[] loadTemplate() throws Exception {
+        try (InputStream resourceStream = TestDocuments.class.getClassLoader().getResourceAsStream("template.docx")) {
+            assertNotNull(resourceStream, "template.docx konnte nicht in src/test/resources gefunden werden");
+            return resourceStream.readAllBytes();
+        }
+    }
+
+    /**
+     * Liefert den Text aller Absätze aus Dokument, Tabellen, Kopf- und Fußzeilen, ein Absatz pro Zeile
+     */
+    static String extractFullText(XWPFDocument document) {
+        StringBuilder text = new StringBuilder();
+        appendText(document, text);
+        for (XWPFHeader header : document.getHeaderList()) {
+            appendText(header, text);
+        }
+        for (XWPFFooter footer : document.getFooterList()) {
+            appendText(footer, text);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Liefert die komprimierten Daten eines ZIP-Eintrags, wie sie in der Datei stehen
+     */
+    static byte[] rawEntry(ZipFile zip, String name) throws Exception {
+        try (InputStream in = zip.getRawInputStream(zip.getEntry(name))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static void appendText(IBody body, StringBuilder text) {
+        for (IBodyElement element : body.getBodyElements()) {
+            if (element instanceof XWPFParagraph) {
+                text.append(((XWPFParagraph) element).getText()).append("\n");
+            } else if (element instanceof XWPFTable) {
+                for (XWPFTableRow row : ((XWPFTable) element).getRows()) {
+                    for (XWPFTableCell cell : row.getTableCells()) {
+                        appendText(cell, text);
+                    }
+                }
+            }
+        }
+    }
+}
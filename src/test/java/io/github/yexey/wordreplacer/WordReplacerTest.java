@@ -1,21 +1,46 @@
 package io.github.yexey.wordreplacer;
 
+import io.github.yexey.wordreplacer.internal.utils.TableUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.poi.openxml4j.util.ZipSecureFile;
+import org.apache.poi.wp.usermodel.HeaderFooterType;
 import org.apache.poi.xwpf.usermodel.*;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTRow;
 
+import javax.imageio.ImageIO;
+import javax.xml.namespace.QName;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
+import static io.github.yexey.wordreplacer.TestDocuments.rawEntry;
 import static org.junit.jupiter.api.Assertions.*;
 
 @Slf4j
@@ -70,6 +95,695 @@ class WordReplacerTest {
         }
     }
 
+    /**
+     * Prüft das nachträgliche Ändern bereits ersetzter Werte, ohne das Dokument erneut zu durchsuchen
+     */
+    @Test
+    public void testUpdateChangesOnlyReplacedValues() {
+        XWPFDocument document = new XWPFDocument();
+        XWPFParagraph greeting = document.createParagraph();
+        greeting.createRun().setText("Hallo {{VOR");
+        greeting.createRun().setText("NAME}} {{NACHNAME}}!");
+        XWPFParagraph place = document.createParagraph();
+        place.createRun().setText("{{DATUM}} in {{ORT}}");
+        XWPFTable table = document.createTable(1, 1);
+        XWPFTableCell cell = table.getRow(0).getCell(0);
+        cell.getParagraphs().get(0).createRun().setText("{{ORT}}");
+
+        WordReplacer replacer = new WordReplacer(document);
+        replacer.replace(Map.of("{{VORNAME}}", "John", "{{NACHNAME}}", "Doe", "{{ORT}}", "Berlin"));
+        assertEquals("Hallo John Doe!", greeting.getText());
+
+        // Nur geänderte Werte werden geschrieben, dahinter liegende Werte verschieben sich mit
+        assertEquals(1, replacer.update(Map.of("{{VORNAME}}", "Johanna", "{{NACHNAME}}", "Doe")));
+        assertEquals("Hallo Johanna Doe!", greeting.getText());
+        assertEquals(1, replacer.update(Map.of("{{NACHNAME}}", "Müller-Lüdenscheidt")));
+        assertEquals("Hallo Johanna Müller-Lüdenscheidt!", greeting.getText());
+
+        // Noch nicht ersetzte Platzhalter werden normal ersetzt
+        assertEquals(0, replacer.update(Map.of("{{DATUM}}", "1. Mai")));
+        assertEquals("1. Mai in Berlin", place.getText());
+
+        // Auch ein leerer Wert am Ende eines Paragraphen lässt sich wieder füllen
+        assertEquals(2, replacer.update(Map.of("{{ORT}}", "")));
+        assertEquals("1. Mai in ", place.getText());
+        assertEquals(2, replacer.update(Map.of("{{ORT}}", "Hamburg")));
+        assertEquals("1. Mai in Hamburg", place.getText());
+        assertEquals("Hamburg", cell.getText());
+
+        // Werte in entfernten Paragraphen sind verloren
+        replacer.removeParagraph("Hamburg");
+        assertEquals(0, replacer.update(Map.of("{{ORT}}", "München")));
+    }
+
+    /**
+     * Prüft, dass direkt über POI geänderte Paragraphen ohne invalidateIndex() neu gelesen statt beschädigt werden
+     */
+    @Test
+    public void testDirectEditsAreDetected() {
+        XWPFDocument document = new XWPFDocument();
+        XWPFParagraph greeting = document.createParagraph();
+        greeting.createRun().setText("Hallo ");
+        greeting.createRun().setText("{{NAME}}");
+        greeting.createRun().setText(", willkommen");
+        XWPFParagraph date = document.createParagraph();
+        date.createRun().setText("Am {{DATUM}}");
+        date.createRun().setText(" in {{ORT}}");
+
+        WordReplacer replacer = new WordReplacer(document);
+        assertEquals(1, replacer.countOccurrences("{{NAME}}"));
+        assertEquals(1, replacer.countOccurrences("{{ORT}}"));
+
+        // Gleiche Anzahl Runs, aber anderer Text im betroffenen Run
+        greeting.getRuns().get(1).setText("Frau {{NAME}}", 0);
+        replacer.replace("{{NAME}}", "Müller");
+        assertEquals("Hallo Frau Müller, willkommen", greeting.getText());
+
+        // Entfernte Runs verschieben alle Offsets
+        date.removeRun(0);
+        replacer.replace(Map.of("{{ORT}}", "Berlin"));
+        assertEquals(" in Berlin", date.getText());
+        assertEquals(0, replacer.countOccurrences("{{ORT}}"));
+
+        // Ein direkt überschriebener Wert wird nicht an alter Stelle aktualisiert
+        greeting.getRuns().get(1).setText("Herr Müller", 0);
+        assertEquals(0, replacer.update(Map.of("{{NAME}}", "Schmidt")));
+        assertEquals("Hallo Herr Müller, willkommen", greeting.getText());
+    }
+
+    /**
+     * Prüft die Batch-Ersetzung in einem Durchlauf, auch über mehrere Runs verteilt
+     */
+    @Test
+    public void testBatchReplacementInSinglePass() {
+        XWPFDocument document = new XWPFDocument();
+        XWPFParagraph paragraph = document.createParagraph();
+        paragraph.createRun().setText("Hallo {{VOR");
+        paragraph.createRun().setText("NAME}} {{NACHNAME}}, ");
+        paragraph.createRun().setText("{{NACHNAME}}");
+        XWPFTable table = document.createTable(1, 1);
+        table.getRow(0).getCell(0).getParagraphs().get(0).createRun().setText("{{ORT}}");
+
+        Map<String, String> replacements = new HashMap<>();
+        replacements.put("{{VORNAME}}", "{{NACHNAME}}");
+        replacements.put("{{NACHNAME}}", "Doe");
+        replacements.put("{{ORT}}", "Berlin");
+        replacements.put("{{FEHLT}}", "x");
+
+        WordReplacer replacer = new WordReplacer(document);
+        replacer.replace(replacements);
+
+        // Ersetzungswerte werden nicht erneut ersetzt, je Paragraph nur das erste Vorkommen
+        assertEquals("Hallo {{NACHNAME}} Doe, {{NACHNAME}}", paragraph.getText());
+        assertEquals("Berlin", table.getRow(0).getCell(0).getText());
+        assertEquals(1, replacer.getTracker().getReplacementCounts().get("{{NACHNAME}}"));
+        assertEquals(List.of("{{FEHLT}}"), replacer.getTracker().getFailedReplacements());
+    }
+
+    /**
+     * Prüft, dass der Platzhalter-Index nach Ersetzungen und Entfernungen konsistent bleibt
+     */
+    @Test
+    public void testBookmarkIndexStaysConsistent() throws Exception {
+        try (InputStream resourceStream = getClass().getClassLoader().getResourceAsStream("template.docx")) {
+            assertNotNull(resourceStream, "template.docx konnte nicht in src/test/resources gefunden werden");
+            XWPFDocument document = new XWPFDocument(resourceStream);
+            WordReplacer replacer = new WordReplacer(document);
+
+            assertEquals(3, replacer.countOccurrences("{{PHONE}}"));
+            assertTrue(replacer.hasBookmark("{{NOTES}}"));
+            assertFalse(replacer.hasBookmark("{{UNBEKANNT}}"));
+
+            // Ersetzungswerte können neue Platzhalter einführen
+            replacer.replace("{{PHONE}}", "{{UNBEKANNT}}");
+            assertEquals(0, replacer.countOccurrences("{{PHONE}}"));
+            assertEquals(3, replacer.countOccurrences("{{UNBEKANNT}}"));
+
+            replacer.removeParagraph("{{NOTES}}");
+            assertFalse(replacer.hasBookmark("{{NOTES}}"));
+            assertTrue(replacer.hasBookmark("This should not be removed 2"));
+        }
+    }
+
+    /**
+     * Prüft, dass der Index jeden Platzhalter für sich zählt, auch wenn sich Platzhalter überschneiden
+     */
+    @Test
+    public void testBookmarkIndexCountsOverlappingPlaceholders() {
+        XWPFDocument document = new XWPFDocument();
+        document.createParagraph().createRun().setText("{{NAME}} und {{NAME}}");
+        document.createParagraph().createRun().setText("{{NAME}}{{NAMEN}}");
+        document.createTable(1, 1).getRow(0).getCell(0).getParagraphs().get(0).createRun().setText("aaa {{NAMEN}}");
+
+        WordReplacer replacer = new WordReplacer(document);
+        List<String> bookmarks = List.of("{{NAME}}", "NAME", "{{NAMEN}}", "aa", "a");
+        assertEquals(3, replacer.countOccurrences("{{NAME}}"));
+        assertEquals(5, replacer.countOccurrences("NAME"));
+        assertEquals(1, replacer.countOccurrences("aa"));
+        assertEquals(3, replacer.countOccurrences("a"));
+
+        // Nach Änderungen stimmen die fortgeschriebenen Zählungen mit einem neu aufgebauten Index überein
+        replacer.replace(Map.of("{{NAMEN}}", "aaaa", "{{NAME}}", "NAME"));
+        replacer.removeParagraph("NAME und");
+        WordReplacer fresh = new WordReplacer(document);
+        for (String bookmark : bookmarks) {
+            assertEquals(fresh.countOccurrences(bookmark), replacer.countOccurrences(bookmark), bookmark);
+        }
+        assertEquals(1, replacer.countOccurrences("NAME"));
+    }
+
+    /**
+     * Prüft das Entfernen vieler Paragraphen in einem Durchlauf
+     */
+    @Test
+    public void testRemoveManyParagraphs() {
+        XWPFDocument document = new XWPFDocument();
+        for (int i = 0; i < 50; i++) {
+            document.createParagraph().createRun().setText(i % 2 == 0 ? "Bleibt " + i : "{{OPTIONAL_" + (i % 5) + "}}");
+        }
+        XWPFTable table = document.createTable(1, 1);
+        XWPFTableCell cell = table.getRow(0).getCell(0);
+        cell.getParagraphs().get(0).createRun().setText("{{OPTIONAL_1}}");
+        cell.addParagraph().createRun().setText("Bleibt in Zelle");
+
+        WordReplacer replacer = new WordReplacer(document);
+        assertEquals(11, replacer.removeParagraphs(List.of("{{OPTIONAL_1}}", "{{OPTIONAL_3}}", "{{OPTIONAL_5}}", " ")));
+
+        assertEquals(40, document.getParagraphs().size());
+        assertEquals(40, document.getDocument().getBody().sizeOfPArray());
+        assertSame(document.getDocument().getBody().getPArray(1), document.getParagraphs().get(1).getCTP());
+        assertEquals("Bleibt 0", document.getParagraphs().get(0).getText());
+        assertFalse(replacer.hasBookmark("{{OPTIONAL_1}}"));
+        assertEquals(1, cell.getParagraphs().size());
+        assertEquals("Bleibt in Zelle", cell.getParagraphs().get(0).getText());
+    }
+
+    /**
+     * Prüft, dass bedingte Abschnitte über Absätze und Tabellen hinweg in einem Durchlauf entfernt werden
+     */
+    @Test
+    public void testApplySections() {
+        XWPFDocument document = new XWPFDocument();
+        document.createParagraph().createRun().setText("Einleitung");
+        document.createParagraph().createRun().setText("{{#NOTES}}");
+        document.createParagraph().createRun().setText("Hinweis");
+        document.createTable(1, 1).getRow(0).getCell(0).getParagraphs().get(0).createRun().setText("Hinweistabelle");
+        document.createParagraph().createRun().setText("{{/NOTES}}");
+        document.createParagraph().createRun().setText("{{#TERMS}}");
+        document.createParagraph().createRun().setText("Bedingungen");
+        document.createParagraph().createRun().setText("{{/TERMS}}");
+        document.createParagraph().createRun().setText("Text {{#INLINE}}weg{{/INLINE}}bleibt");
+        XWPFTableCell cell = document.createTable(1, 1).getRow(0).getCell(0);
+        cell.getParagraphs().get(0).createRun().setText("{{#CELL}}");
+        cell.addParagraph().createRun().setText("Zelleninhalt");
+        XmlCursor cursor = cell.getParagraphs().get(1).getCTP().newCursor();
+        cursor.toEndToken();
+        cursor.toNextToken();
+        cell.insertNewTbl(cursor).createRow().addNewTableCell().setText("Verschachtelt");
+        cell.addParagraph().createRun().setText("{{/CELL}}");
+        document.createParagraph().createRun().setText("Ende {{#OTHER}}");
+        // Ohne Endmarker bleibt der Abschnitt stehen, spätere Abschnitte werden trotzdem ausgewertet
+        document.createParagraph().createRun().setText("{{#OPEN}}");
+        document.createParagraph().createRun().setText("{{#LATER}}");
+        document.createParagraph().createRun().setText("Später");
+        document.createParagraph().createRun().setText("{{/LATER}}");
+        document.createParagraph().createRun().setText("{{#SHOWN}}Sichtbar{{/SHOWN}}");
+
+        assertEquals(1, cell.getTables().size());
+
+        WordReplacer replacer = new WordReplacer(document);
+        assertTrue(replacer.hasBookmark("{{#NOTES}}"));
+        assertEquals(4, replacer.applySections(Map.of("NOTES", false, "TERMS", true, "INLINE", false, "CELL", false,
+                "OPEN", false, "LATER", false, "SHOWN", true)));
+
+        List<String> texts = new ArrayList<>();
+        for (XWPFParagraph paragraph : document.getParagraphs()) {
+            texts.add(paragraph.getText());
+        }
+        assertEquals(List.of("Einleitung", "Bedingungen", "Text bleibt", "Ende {{#OTHER}}", "{{#OPEN}}", "Sichtbar"),
+                texts);
+        assertEquals(document.getParagraphs().size(), document.getDocument().getBody().sizeOfPArray());
+
+        // Die Tabelle im Abschnitt ist entfernt, die Zelle behält einen leeren Absatz
+        assertEquals(1, document.getTables().size());
+        assertEquals(1, cell.getParagraphs().size());
+        assertTrue(cell.getTables().isEmpty());
+        assertEquals(0, cell.getCTTc().sizeOfTblArray());
+        assertEquals("", cell.getText());
+
+        // Der Index kennt die entfernten Marker nicht mehr
+        assertFalse(replacer.hasBookmark("{{#NOTES}}"));
+        assertFalse(replacer.hasBookmark("{{/TERMS}}"));
+        assertTrue(replacer.hasBookmark("{{#OTHER}}"));
+    }
+
+    /**
+     * Prüft, dass nur die Werte der im Dokument vorhandenen Platzhalter geladen werden
+     */
+    @Test
+    public void testLazyAndAsyncValuesAreOnlyFetchedWhenNeeded() {
+        XWPFDocument document = new XWPFDocument();
+        XWPFParagraph paragraph = document.createParagraph();
+        paragraph.createRun().setText("Hallo {{VOR");
+        paragraph.createRun().setText("NAME}} aus {{ORT}}");
+
+        List<String> fetched = new ArrayList<>();
+        Map<String, Supplier<String>> lazy = new HashMap<>();
+        lazy.put("{{VORNAME}}", () -> {
+            fetched.add("{{VORNAME}}");
+            return "John";
+        });
+        lazy.put("{{FEHLT}}", () -> {
+            fetched.add("{{FEHLT}}");
+            return "x";
+        });
+
+        WordReplacer replacer = new WordReplacer(document);
+        replacer.replaceLazy(lazy);
+        assertEquals(List.of("{{VORNAME}}"), fetched);
+        assertEquals(List.of("{{FEHLT}}"), replacer.getTracker().getFailedReplacements());
+
+        Map<String, Supplier<CompletableFuture<String>>> async = new HashMap<>();
+        async.put("{{ORT}}", () -> CompletableFuture.supplyAsync(() -> "Berlin"));
+        async.put("{{VORNAME}}", () -> {
+            throw new AssertionError("Bereits ersetzte Platzhalter dürfen nicht geladen werden");
+        });
+        replacer.replaceAsync(async);
+        assertEquals("Hallo John aus Berlin", paragraph.getText());
+    }
+
+    /**
+     * Prüft das Auffinden aller Platzhalter in einem Durchlauf, auch über mehrere Runs verteilt
+     */
+    @Test
+    public void testDiscoverPlaceholders() throws Exception {
+        try (InputStream resourceStream = getClass().getClassLoader().getResourceAsStream("template.docx")) {
+            assertNotNull(resourceStream, "template.docx konnte nicht in src/test/resources gefunden werden");
+            XWPFDocument document = new XWPFDocument(resourceStream);
+            WordReplacer replacer = new WordReplacer(document);
+
+            Map<String, DiscoveredPlaceholder> placeholders = replacer.discoverPlaceholders("{{", "}}");
+            assertEquals(replacer.countOccurrences("{{PHONE}}"), placeholders.get("{{PHONE}}").getCount());
+            assertTrue(placeholders.containsKey("{{NAME}}"));
+            assertTrue(placeholders.containsKey("{{NOTES}}"));
+
+            // Nach dem Ersetzen bleiben nur die nicht ersetzten Platzhalter übrig
+            replacer.replace("{{PHONE}}", "(555) 123-4567");
+            assertFalse(replacer.discoverPlaceholders("{{", "}}").containsKey("{{PHONE}}"));
+        }
+
+        XWPFDocument document = new XWPFDocument();
+        XWPFParagraph paragraph = document.createParagraph();
+        paragraph.createRun().setText("{{ Text {{VOR");
+        paragraph.createRun().setText("NAME}} und {{VORNAME}}");
+        XWPFTable table = document.createTable(1, 2);
+        table.getRow(0).getCell(1).getParagraphs().get(0).createRun().setText("{{VORNAME}}");
+        document.createHeader(HeaderFooterType.DEFAULT).createParagraph().createRun().setText("{{VORNAME}}");
+        // Neu angelegte Kopfzeilen führt POI erst nach dem Laden in der Kopfzeilenliste
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        document.write(written);
+        document = new XWPFDocument(new ByteArrayInputStream(written.toByteArray()));
+
+        Map<String, DiscoveredPlaceholder> placeholders = new WordReplacer(document).discoverPlaceholders("{{", "}}");
+        assertEquals(List.of("{{VORNAME}}"), new ArrayList<>(placeholders.keySet()));
+        List<DiscoveredPlaceholder.Occurrence> occurrences = placeholders.get("{{VORNAME}}").getOccurrences();
+        assertEquals(4, occurrences.size());
+        assertEquals(8, occurrences.get(0).getStart());
+
+        // Fundstellen nennen Teil und Pfad, ohne interne Strukturen preiszugeben
+        assertEquals(DiscoveredPlaceholder.Part.BODY, occurrences.get(2).getPart());
+        assertEquals(List.of(1, 0, 1, 0), occurrences.get(2).getPath());
+        assertEquals(DiscoveredPlaceholder.Part.HEADER, occurrences.get(3).getPart());
+        assertEquals(0, occurrences.get(3).getPartIndex());
+        assertThrows(UnsupportedOperationException.class, () -> occurrences.get(0).getPath().set(0, 5));
+    }
+
+    /**
+     * Prüft, dass Tabellen und Kopfzeilen ohne Platzhalter übersprungen, nach Änderungen aber neu geprüft werden
+     */
+    @Test
+    public void testContainersWithoutMatchAreSkippedUntilChanged() {
+        XWPFDocument document = new XWPFDocument();
+        XWPFTable boilerplate = document.createTable(2, 2);
+        boilerplate.getRow(0).getCell(0).getParagraphs().get(0).createRun().setText("Rechtlicher Hinweis");
+        XWPFTable table = document.createTable(1, 1);
+        XWPFParagraph cellParagraph = table.getRow(0).getCell(0).getParagraphs().get(0);
+        cellParagraph.createRun().setText("Kunde: {{KUNDE}}");
+        XWPFHeader header = document.createHeader(HeaderFooterType.DEFAULT);
+        header.createParagraph().createRun().setText("Seite");
+
+        WordReplacer replacer = new WordReplacer(document);
+        replacer.replace("{{FEHLT}}", "x");
+        assertEquals(List.of("{{FEHLT}}"), replacer.getTracker().getFailedReplacements());
+
+        // Der Ersetzungswert führt einen neuen Platzhalter ein, die zwischengespeicherte Tabelle muss neu geprüft werden
+        replacer.replace("{{KUNDE}}", "{{NAME}}");
+        replacer.replace("{{NAME}}", "John Doe");
+        assertEquals("Kunde: John Doe", cellParagraph.getText());
+        assertEquals(1, replacer.getTracker().getReplacementCounts().get("{{NAME}}"));
+
+        assertEquals(0, replacer.removeParagraphs(List.of("{{NAME}}")));
+        assertEquals("Seite", header.getParagraphs().get(0).getText());
+    }
+
+    /**
+     * Prüft, dass direkt über POI geänderte Kopfzeilen und Tabellen trotz zwischengespeichertem Text neu geprüft werden
+     */
+    @Test
+    public void testContainersEditedDirectlyAreCheckedAgain() throws Exception {
+        XWPFDocument document = new XWPFDocument();
+        XWPFTable table = document.createTable(1, 1);
+        table.getRow(0).getCell(0).getParagraphs().get(0).createRun().setText("Kunde: ");
+        document.createHeader(HeaderFooterType.DEFAULT).createParagraph().createRun().setText("Seite");
+        // Neu angelegte Kopfzeilen führt POI erst nach dem Laden in der Kopfzeilenliste
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        document.write(written);
+        document = new XWPFDocument(new ByteArrayInputStream(written.toByteArray()));
+        table = document.getTables().get(0);
+        XWPFHeader header = document.getHeaderList().get(0);
+
+        WordReplacer replacer = new WordReplacer(document);
+        replacer.replace("{{NAME}}", "x");
+        assertEquals(List.of("{{NAME}}"), replacer.getTracker().getFailedReplacements());
+
+        // Neuer Absatz in der Kopfzeile und neuer Run in der Tabellenzelle, ohne den WordReplacer
+        header.createParagraph().createRun().setText("{{NAME}}");
+        XWPFParagraph cellParagraph = table.getRow(0).getCell(0).getParagraphs().get(0);
+        cellParagraph.createRun().setText("{{NAME}}");
+
+        replacer.replace("{{NAME}}", "John Doe");
+        assertEquals("John Doe", header.getParagraphs().get(1).getText());
+        assertEquals("Kunde: John Doe", cellParagraph.getText());
+    }
+
+    /**
+     * Prüft, dass eine Tabellenzeile je Datensatz wiederholt und die Vorlagenzeile entfernt wird
+     */
+    @Test
+    public void testRepeatTableRow() {
+        XWPFDocument document = new XWPFDocument();
+        XWPFTable table = document.createTable(3, 2);
+        table.getRow(0).getCell(0).getParagraphs().get(0).createRun().setText("Artikel");
+        table.getRow(0).getCell(1).getParagraphs().get(0).createRun().setText("Preis");
+        XWPFParagraph first = table.getRow(1).getCell(0).getParagraphs().get(0);
+        first.createRun().setText("{{ZEILE}}{{ART");
+        first.createRun().setText("IKEL}}");
+        table.getRow(1).getCell(1).getParagraphs().get(0).createRun().setText("{{PREIS}} {{WAEHRUNG}}");
+        table.getRow(2).getCell(0).getParagraphs().get(0).createRun().setText("Summe");
+
+        List<Map<String, String>> records = List.of(
+                Map.of("{{ARTIKEL}}", "Tisch", "{{PREIS}}", "100"),
+                Map.of("{{ARTIKEL}}", "Stuhl", "{{PREIS}}", "40"),
+                Map.of("{{ARTIKEL}}", "Lampe", "{{PREIS}}", "25"));
+
+        WordReplacer replacer = new WordReplacer(document);
+        assertEquals(3, replacer.repeatTableRow("{{ZEILE}}", records.iterator()));
+
+        assertEquals(5, table.getNumberOfRows());
+        assertEquals("Tisch", table.getRow(1).getCell(0).getText());
+        assertEquals("40 {{WAEHRUNG}}", table.getRow(2).getCell(1).getText());
+        assertEquals("Lampe", table.getRow(3).getCell(0).getText());
+        assertEquals("Summe", table.getRow(4).getCell(0).getText());
+        assertFalse(replacer.hasBookmark("{{ZEILE}}"));
+
+        // Die Zeilenobjekte der Tabelle entsprechen genau dem XML
+        assertEquals(5, table.getCTTbl().sizeOfTrArray());
+        for (int i = 0; i < 5; i++) {
+            assertSame(table.getCTTbl().getTrArray(i), table.getRow(i).getCtRow());
+        }
+
+        // Nicht belegte Platzhalter bleiben für eine spätere Ersetzung erhalten
+        replacer.replace("{{WAEHRUNG}}", "EUR");
+        assertEquals(3, replacer.getTracker().getReplacementCounts().get("{{WAEHRUNG}}"));
+        assertEquals("25 EUR", table.getRow(3).getCell(1).getText());
+        assertEquals(0, replacer.repeatTableRow("{{ZEILE}}", records.iterator()));
+    }
+
+    /**
+     * Prüft, dass eingefügte Zeilen über die Zeilenliste von POI und über XWPFTable.addRow() gleich eingetragen werden
+     */
+    @Test
+    public void testRowInserterWithAndWithoutReflection() {
+        for (boolean reflective : new boolean[]{true, false}) {
+            XWPFDocument document = new XWPFDocument();
+            XWPFTable table = document.createTable(2, 1);
+            table.getRow(0).getCell(0).setText("Kopf");
+            table.getRow(1).getCell(0).setText("Summe");
+            CTRow prototype = (CTRow) table.getRow(0).getCtRow().copy();
+
+            try (TableUtils.RowInserter rows = new TableUtils.RowInserter(table.getRow(0), reflective)) {
+                for (int i = 1; i <= 3; i++) {
+                    rows.insert(prototype).getCell(0).getParagraphs().get(0).getRuns().get(0).setText("Zeile " + i, 0);
+                }
+            }
+            // Auch hinter der letzten Zeile
+            try (TableUtils.RowInserter rows = new TableUtils.RowInserter(table.getRow(4), reflective)) {
+                rows.insert(prototype);
+            }
+
+            assertEquals(6, table.getNumberOfRows(), "reflective=" + reflective);
+            assertEquals(6, table.getCTTbl().sizeOfTrArray(), "reflective=" + reflective);
+            for (int i = 0; i < 6; i++) {
+                assertSame(table.getCTTbl().getTrArray(i), table.getRow(i).getCtRow(), "reflective=" + reflective);
+            }
+            assertEquals("Zeile 1", table.getRow(1).getCell(0).getText());
+            assertEquals("Zeile 3", table.getRow(3).getCell(0).getText());
+            assertEquals("Summe", table.getRow(4).getCell(0).getText());
+            assertEquals("Kopf", table.getRow(5).getCell(0).getText());
+        }
+    }
+
+    /**
+     * Prüft, dass ein Bild für alle Vorkommen nur einmal ins Dokument aufgenommen und korrekt geschrieben wird
+     */
+    @Test
+    public void testReplaceWithImageAddsImageOnce() throws Exception {
+        byte[] template;
+        try (InputStream resourceStream = getClass().getClassLoader().getResourceAsStream("template.docx")) {
+            assertNotNull(resourceStream, "template.docx konnte nicht in src/test/resources gefunden werden");
+            template = resourceStream.readAllBytes();
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB), "png", png);
+        byte[] pngBytes = png.toByteArray();
+
+        // Das vorbereitete Bild wird prozessweit über den Inhalts-Hash wiederverwendet
+        ReplacementImage image = ReplacementImage.of(pngBytes);
+        assertSame(image, ReplacementImage.of(pngBytes.clone()));
+        assertEquals(4, image.getWidth());
+        assertEquals(2, image.getHeight());
+
+        WordReplacer replacer;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(template))) {
+            int picturesBefore = document.getAllPackagePictures().size();
+            replacer = new WordReplacer(document);
+            replacer.replaceWithImage("{{NAME}}", image);
+            replacer.replaceWithImage("{{EMAIL}}", image, 8, 4);
+            assertFalse(replacer.hasBookmark("{{NAME}}"));
+            assertEquals(picturesBefore + 1, document.getAllPackagePictures().size());
+            replacer.write(template, out);
+        }
+        assertTrue(replacer.getTracker().getReplacementCounts().get("{{NAME}}") > 0);
+
+        try (XWPFDocument written = new XWPFDocument(new ByteArrayInputStream(out.toByteArray()))) {
+            long copies = written.getAllPackagePictures().stream()
+                    .filter(picture -> Arrays.equals(picture.getData(), pngBytes))
+                    .count();
+            assertEquals(1, copies);
+            assertFalse(extractFullText(written).contains("{{NAME}}"));
+            assertFalse(extractFullText(written).contains("{{EMAIL}}"));
+
+            // Jede Zeichnung hat eine eigene ID
+            List<String> ids = new ArrayList<>();
+            for (XmlObject docPr : written.getDocument().selectPath("declare namespace wp="
+                    + "'http://schemas.openxmlformats.org/drawingml/2006/wordprocessingDrawing' .//wp:docPr")) {
+                ids.add(docPr.newCursor().getAttributeText(new QName("", "id")));
+            }
+            assertTrue(ids.size() > 1);
+            assertEquals(ids.size(), ids.stream().distinct().count());
+        }
+    }
+
+    /**
+     * Prüft, dass beim Schreiben nur geänderte Teile neu komprimiert und alle anderen roh übernommen werden
+     */
+    @Test
+    public void testWritePassesUntouchedPartsThrough() throws Exception {
+        byte[] template;
+        try (InputStream resourceStream = getClass().getClassLoader().getResourceAsStream("template.docx")) {
+            assertNotNull(resourceStream, "template.docx konnte nicht in src/test/resources gefunden werden");
+            template = resourceStream.readAllBytes();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(template))) {
+            WordReplacer replacer = new WordReplacer(document);
+            replacer.replace("{{NAME}}", "John Doe");
+            replacer.replace("{{PHONE}}", "(555) 123-4567");
+            replacer.removeParagraph("{{NOTES}}");
+            replacer.write(template, out);
+        }
+
+        try (XWPFDocument written = new XWPFDocument(new ByteArrayInputStream(out.toByteArray()))) {
+            String fullText = extractFullText(written);
+            assertTrue(fullText.contains("Hier ist mein Text John Doe"), "Name wurde nicht korrekt ersetzt");
+            assertFalse(fullText.contains("{{NOTES}}"), "NOTES-Platzhalter wurde nicht entfernt");
+            assertEquals(3, countPhoneNumberOccurrences(written));
+        }
+
+        // Unveränderte Teile sind Byte für Byte die komprimierten Einträge des Templates
+        try (ZipFile original = ZipFile.builder().setSeekableByteChannel(new SeekableInMemoryByteChannel(template)).get();
+             ZipFile result = ZipFile.builder().setSeekableByteChannel(new SeekableInMemoryByteChannel(out.toByteArray())).get()) {
+            assertArrayEquals(rawEntry(original, "word/styles.xml"), rawEntry(result, "word/styles.xml"));
+            assertArrayEquals(rawEntry(original, "word/theme/theme1.xml"), rawEntry(result, "word/theme/theme1.xml"));
+            assertFalse(Arrays.equals(rawEntry(original, "word/document.xml"), rawEntry(result, "word/document.xml")));
+        }
+    }
+
+    /**
+     * Prüft, dass das Aufwärmen das eingebettete Template fehlerfrei durch alle Pfade rendert
+     */
+    @Test
+    public void testWarmUp() throws Exception {
+        Duration first = WordReplacer.warmUp();
+        Duration second = WordReplacer.warmUp();
+        assertFalse(first.isNegative());
+        assertFalse(second.isNegative());
+        log.info("Aufwärmen: erster Lauf {} ms, zweiter Lauf {} ms", first.toMillis(), second.toMillis());
+
+        // Jeder Pfad liefert ein vollständig ersetztes Dokument
+        Map<String, byte[]> rendered = WarmUp.render();
+        assertEquals(List.of("passThrough", "poi", "open", "streaming", "compiled"), new ArrayList<>(rendered.keySet()));
+        for (Map.Entry<String, byte[]> entry : rendered.entrySet()) {
+            try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(entry.getValue()))) {
+                String fullText = extractFullText(document);
+                String path = entry.getKey();
+                assertTrue(fullText.contains("Dear John Doe,"), path + ": Name wurde nicht ersetzt");
+                assertTrue(fullText.contains("john.doe@example.com (555) 123-4567"), path + ": Kontakt wurde nicht ersetzt");
+                assertFalse(fullText.contains("{{LOGO}}"), path + ": Bild-Platzhalter übrig");
+                assertEquals("2024-01-01\n", document.getHeaderList().get(0).getText(), path);
+                assertEquals("1 Main Street\n", document.getFooterList().get(0).getText(), path);
+
+                // Bild nur beim bearbeiteten Dokument, Entfernen nur mit WordReplacer, Zeilen nicht im CompiledTemplate
+                boolean edited = path.equals("passThrough") || path.equals("poi");
+                assertEquals(edited ? 1 : 0, document.getAllPictures().size(), path);
+                assertEquals(edited || path.equals("open"), !fullText.contains("{{OPTIONAL}}"), path);
+                if (!path.equals("compiled")) {
+                    XWPFTable table = document.getTables().get(0);
+                    assertEquals(3, table.getNumberOfRows(), path);
+                    assertEquals("Pencil", table.getRow(2).getCell(0).getText(), path);
+                    assertEquals("0.99", table.getRow(2).getCell(1).getText(), path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prüft das Öffnen eines Templates aus einer Datei und aus einem gemappten Puffer
+     */
+    @Test
+    public void testOpenTemplateFromPathAndBuffer() throws Exception {
+        Path templatePath = tempDir.resolve("template.docx");
+        try (InputStream resourceStream = getClass().getClassLoader().getResourceAsStream("template.docx")) {
+            assertNotNull(resourceStream, "template.docx konnte nicht in src/test/resources gefunden werden");
+            Files.copy(resourceStream, templatePath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        byte[] template = Files.readAllBytes(templatePath);
+
+        // Aus der Datei, mit wahlfreiem Zugriff
+        ByteArrayOutputStream fromPath = new ByteArrayOutputStream();
+        try (WordReplacer replacer = WordReplacer.open(templatePath)) {
+            replacer.replace("{{NAME}}", "John Doe");
+            replacer.removeParagraph("{{NOTES}}");
+            replacer.write(fromPath);
+        }
+
+        // Aus einem gemappten Puffer; Position und Inhalt des Puffers bleiben unverändert
+        ByteArrayOutputStream fromBuffer = new ByteArrayOutputStream();
+        try (FileChannel channel = FileChannel.open(templatePath, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            try (WordReplacer replacer = WordReplacer.open(buffer)) {
+                replacer.replace("{{NAME}}", "John Doe");
+                replacer.removeParagraph("{{NOTES}}");
+                replacer.write(fromBuffer);
+            }
+            assertEquals(0, buffer.position());
+        }
+
+        for (byte[] written : List.of(fromPath.toByteArray(), fromBuffer.toByteArray())) {
+            try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(written))) {
+                String fullText = extractFullText(document);
+                assertTrue(fullText.contains("Hier ist mein Text John Doe"), "Name wurde nicht korrekt ersetzt");
+                assertFalse(fullText.contains("{{NOTES}}"), "NOTES-Platzhalter wurde nicht entfernt");
+            }
+            // Unveränderte Teile werden roh aus dem Template übernommen
+            try (ZipFile original = ZipFile.builder().setSeekableByteChannel(new SeekableInMemoryByteChannel(template)).get();
+                 ZipFile result = ZipFile.builder().setSeekableByteChannel(new SeekableInMemoryByteChannel(written)).get()) {
+                assertArrayEquals(rawEntry(original, "word/styles.xml"), rawEntry(result, "word/styles.xml"));
+            }
+        }
+
+        // Ein selbst geladenes Dokument kennt sein Template nicht
+        try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(template))) {
+            WordReplacer replacer = new WordReplacer(document);
+            assertThrows(IllegalStateException.class, () -> replacer.write(new ByteArrayOutputStream()));
+        }
+    }
+
+    /**
+     * Prüft, dass beim Öffnen mit wahlfreiem Zugriff die Zip-Bomb-Grenzen von POI gelten
+     */
+    @Test
+    public void testOpenRejectsZipBombs() throws Exception {
+        byte[] template;
+        try (InputStream resourceStream = getClass().getClassLoader().getResourceAsStream("template.docx")) {
+            assertNotNull(resourceStream, "template.docx konnte nicht in src/test/resources gefunden werden");
+            template = resourceStream.readAllBytes();
+        }
+
+        // Das Dokument wird um viele MB stark komprimierbarer Leerzeichen aufgebläht
+        Path bomb = tempDir.resolve("bomb.docx");
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(template));
+             ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(bomb))) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                byte[] content = in.readAllBytes();
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                if (entry.getName().equals("word/document.xml")) {
+                    String xml = new String(content, StandardCharsets.UTF_8);
+                    int end = xml.lastIndexOf("</w:body>");
+                    out.write(xml.substring(0, end).getBytes(StandardCharsets.UTF_8));
+                    out.write(" ".repeat(20 * 1024 * 1024).getBytes(StandardCharsets.US_ASCII));
+                    out.write(xml.substring(end).getBytes(StandardCharsets.UTF_8));
+                } else {
+                    out.write(content);
+                }
+                out.closeEntry();
+            }
+        }
+
+        Exception exception = assertThrows(Exception.class, () -> WordReplacer.open(bomb).close());
+        assertTrue(causes(exception).stream().anyMatch(cause -> String.valueOf(cause.getMessage()).contains("Zip bomb")),
+                "Zip-Bomb wurde nicht erkannt: " + exception);
+
+        // Mit gelockerter Grenze lässt sich dieselbe Datei öffnen
+        double minInflateRatio = ZipSecureFile.getMinInflateRatio();
+        ZipSecureFile.setMinInflateRatio(0);
+        try (WordReplacer replacer = WordReplacer.open(bomb)) {
+            assertTrue(replacer.hasBookmark("{{NAME}}"));
+        } finally {
+            ZipSecureFile.setMinInflateRatio(minInflateRatio);
+        }
+    }
+
+    private List<Throwable> causes(Throwable throwable) {
+        List<Throwable> causes = new ArrayList<>();
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            causes.add(cause);
+        }
+        return causes;
+    }
+
     /**
      * Führt die Ersetzungen im Word-Dokument durch
      */